@@ -0,0 +1,349 @@
+package io.github.reoseah.ecs.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.RecordComponentElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/// Generates a structure-of-arrays `ColumnType` for each record annotated
+/// with `io.github.reoseah.ecs.Component`, see the annotation for the
+/// generated API.
+///
+/// The code is written as plain strings to keep the processor free of
+/// dependencies.
+@SupportedAnnotationTypes(ComponentProcessor.ANNOTATION)
+public class ComponentProcessor extends AbstractProcessor {
+    static final String ANNOTATION = "io.github.reoseah.ecs.Component";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (var annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() != ElementKind.RECORD) {
+                    this.error(element, "@Component can only be applied to records");
+                    continue;
+                }
+                var record = (TypeElement) element;
+                if (!record.getTypeParameters().isEmpty()) {
+                    this.error(element, "@Component records can't be generic");
+                    continue;
+                }
+                if (record.getRecordComponents().isEmpty()) {
+                    this.error(element, "@Component records should have at least one component");
+                    continue;
+                }
+                if (record.getModifiers().contains(Modifier.PRIVATE)) {
+                    this.error(element, "@Component records can't be private");
+                    continue;
+                }
+                try {
+                    this.generate(record);
+                } catch (IOException e) {
+                    this.error(element, "Failed to generate column type: " + e.getMessage());
+                }
+            }
+        }
+        return true;
+    }
+
+    private void generate(TypeElement record) throws IOException {
+        String packageName = this.processingEnv.getElementUtils().getPackageOf(record).getQualifiedName().toString();
+        String recordName = record.getQualifiedName().toString();
+        String className = record.getSimpleName() + "Column";
+
+        var fields = new ArrayList<Field>();
+        for (RecordComponentElement component : record.getRecordComponents()) {
+            fields.add(new Field(component.getSimpleName().toString(), this.processingEnv.getTypeUtils().erasure(component.asType())));
+        }
+
+        var file = this.processingEnv.getFiler().createSourceFile(packageName.isEmpty() ? className : packageName + "." + className, record);
+        try (var out = new PrintWriter(file.openWriter())) {
+            new Writer(out, recordName, className, fields).write(packageName);
+        }
+    }
+
+    private void error(Element element, String message) {
+        this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    /// Record component with its erased type, stored in an array of that
+    /// type.
+    record Field(String name, TypeMirror type) {
+        boolean isPrimitive() {
+            return this.type.getKind().isPrimitive();
+        }
+
+        String typeName() {
+            return this.type.toString();
+        }
+
+        /// Returns an expression creating an array of the field's type.
+        String newArray(String capacity) {
+            String typeName = this.typeName();
+            int dims = typeName.indexOf('[');
+            if (dims == -1) {
+                return "new " + typeName + "[" + capacity + "]";
+            }
+            return "new " + typeName.substring(0, dims) + "[" + capacity + "]" + typeName.substring(dims);
+        }
+
+        String zero() {
+            return switch (this.type.getKind()) {
+                case BOOLEAN -> "false";
+                case BYTE, SHORT, CHAR, INT, LONG, FLOAT, DOUBLE -> "0";
+                default -> "null";
+            };
+        }
+
+        /// Returns the size in bytes of a primitive field in snapshots, with
+        /// booleans stored as bytes.
+        int bytes() {
+            return switch (this.type.getKind()) {
+                case BOOLEAN, BYTE -> 1;
+                case SHORT, CHAR -> 2;
+                case INT, FLOAT -> 4;
+                case LONG, DOUBLE -> 8;
+                default -> throw new IllegalStateException();
+            };
+        }
+
+        String put(String buffer, String value) {
+            return switch (this.type.getKind()) {
+                case BOOLEAN -> buffer + ".put((byte) (" + value + " ? 1 : 0))";
+                case BYTE -> buffer + ".put(" + value + ")";
+                default -> buffer + ".put" + capitalize(this.typeName()) + "(" + value + ")";
+            };
+        }
+
+        String get(String buffer) {
+            return switch (this.type.getKind()) {
+                case BOOLEAN -> buffer + ".get() != 0";
+                case BYTE -> buffer + ".get()";
+                default -> buffer + ".get" + capitalize(this.typeName()) + "()";
+            };
+        }
+    }
+
+    private record Writer(PrintWriter out, String recordName, String className, List<Field> fields) {
+        void write(String packageName) {
+            boolean primitive = this.fields.stream().allMatch(Field::isPrimitive);
+
+            if (!packageName.isEmpty()) {
+                this.out.println("package " + packageName + ";");
+                this.out.println();
+            }
+            this.out.println("import io.github.reoseah.ecs.ColumnType;");
+            this.out.println("import io.github.reoseah.ecs.World;");
+            this.out.println();
+            if (primitive) {
+                this.out.println("import java.nio.ByteBuffer;");
+            }
+            this.out.println("import java.util.Arrays;");
+            this.out.println();
+            this.out.println("/// Column type storing [" + this.recordName + "] as one array per record");
+            this.out.println("/// component, generated from its `@Component` annotation.");
+            this.out.println("@SuppressWarnings({\"rawtypes\", \"unchecked\"})");
+            this.out.println("public final class " + this.className + " implements ColumnType<" + this.className + ".Storage> {");
+            this.out.println("    public static final " + this.className + " INSTANCE = new " + this.className + "();");
+            this.out.println();
+            this.out.println("    private " + this.className + "() {");
+            this.out.println("    }");
+            this.out.println();
+
+            this.writeStorage();
+            this.writeColumnType();
+            this.writeBulkCopy();
+            if (primitive) {
+                this.writeSerialization();
+            }
+            this.writeAccessors();
+            this.out.println("}");
+        }
+
+        private void writeStorage() {
+            this.out.println("    /// Arrays parallel to the rows of an archetype.");
+            this.out.println("    public static final class Storage {");
+            for (var field : this.fields) {
+                this.out.println("        public final " + field.typeName() + "[] " + field.name() + ";");
+            }
+            this.out.println();
+            this.out.println("        Storage(" + this.join(field -> field.typeName() + "[] " + field.name()) + ") {");
+            for (var field : this.fields) {
+                this.out.println("            this." + field.name() + " = " + field.name() + ";");
+            }
+            this.out.println("        }");
+            this.out.println("    }");
+            this.out.println();
+        }
+
+        private void writeColumnType() {
+            this.out.println("    @Override");
+            this.out.println("    public Storage createStorage(int capacity) {");
+            this.out.println("        return new Storage(" + this.join(field -> field.newArray("capacity")) + ");");
+            this.out.println("    }");
+            this.out.println();
+            this.out.println("    @Override");
+            this.out.println("    public Storage growStorage(Storage current, int newCapacity) {");
+            this.out.println("        return new Storage(" + this.join(field -> "Arrays.copyOf(current." + field.name() + ", newCapacity)") + ");");
+            this.out.println("    }");
+            this.out.println();
+            this.out.println("    @Override");
+            this.out.println("    public void remove(Storage storage, int index) {");
+            for (var field : this.fields) {
+                this.out.println("        storage." + field.name() + "[index] = " + field.zero() + ";");
+            }
+            this.out.println("    }");
+            this.out.println();
+            this.out.println("    @Override");
+            this.out.println("    public void replace(Storage storage, int from, int to) {");
+            for (var field : this.fields) {
+                this.out.println("        storage." + field.name() + "[to] = storage." + field.name() + "[from];");
+                this.out.println("        storage." + field.name() + "[from] = " + field.zero() + ";");
+            }
+            this.out.println("    }");
+            this.out.println();
+            this.out.println("    @Override");
+            this.out.println("    public void transfer(Storage storage, int index, Storage destination, int destinationIndex) {");
+            for (var field : this.fields) {
+                this.out.println("        destination." + field.name() + "[destinationIndex] = storage." + field.name() + "[index];");
+            }
+            this.out.println("    }");
+            this.out.println();
+        }
+
+        private void writeBulkCopy() {
+            this.out.println("    /// Copies `count` rows at once, like [#transfer] for each of them.");
+            this.out.println("    public static void copyRows(Storage storage, int index, Storage destination, int destinationIndex, int count) {");
+            for (var field : this.fields) {
+                this.out.println("        System.arraycopy(storage." + field.name() + ", index, destination." + field.name() + ", destinationIndex, count);");
+            }
+            this.out.println("    }");
+            this.out.println();
+            this.out.println("    @Override");
+            this.out.println("    public void transferRange(Storage storage, int index, Storage destination, int destinationIndex, int count) {");
+            this.out.println("        copyRows(storage, index, destination, destinationIndex, count);");
+            this.out.println("    }");
+            this.out.println();
+            this.out.println("    @Override");
+            this.out.println("    public void fillRange(Storage storage, int index, Storage destination, int destinationIndex, int count) {");
+            for (var field : this.fields) {
+                this.out.println("        Arrays.fill(destination." + field.name() + ", destinationIndex, destinationIndex + count, storage." + field.name() + "[index]);");
+            }
+            this.out.println("    }");
+            this.out.println();
+        }
+
+        private void writeSerialization() {
+            int rowBytes = this.fields.stream().mapToInt(Field::bytes).sum();
+            this.out.println("    @Override");
+            this.out.println("    public long serializedSize(Storage storage, int start, int count) {");
+            this.out.println("        return (long) count * " + rowBytes + ";");
+            this.out.println("    }");
+            this.out.println();
+            this.out.println("    @Override");
+            this.out.println("    public void write(Storage storage, int start, int count, ByteBuffer buffer) {");
+            for (var field : this.fields) {
+                this.out.println("        for (int i = start; i < start + count; i++) {");
+                this.out.println("            " + field.put("buffer", "storage." + field.name() + "[i]") + ";");
+                this.out.println("        }");
+            }
+            this.out.println("    }");
+            this.out.println();
+            this.out.println("    @Override");
+            this.out.println("    public void read(Storage storage, int start, int count, ByteBuffer buffer) {");
+            for (var field : this.fields) {
+                this.out.println("        for (int i = start; i < start + count; i++) {");
+                this.out.println("            storage." + field.name() + "[i] = " + field.get("buffer") + ";");
+                this.out.println("        }");
+            }
+            this.out.println("    }");
+            this.out.println();
+        }
+
+        private void writeAccessors() {
+            this.out.println("    public static " + this.recordName + " get(Storage storage, int row) {");
+            this.out.println("        return new " + this.recordName + "(" + this.join(field -> "storage." + field.name() + "[row]") + ");");
+            this.out.println("    }");
+            this.out.println();
+            this.out.println("    public static void set(Storage storage, int row, " + this.recordName + " value) {");
+            for (var field : this.fields) {
+                this.out.println("        storage." + field.name() + "[row] = value." + field.name() + "();");
+            }
+            this.out.println("    }");
+            this.out.println();
+            // record components are passed as parameters here, so the other
+            // parameters can't reuse their names
+            String storage = this.parameterName("storage");
+            String row = this.parameterName("row");
+            String entity = this.parameterName("entity");
+            String component = this.parameterName("component");
+            String parameters = this.join(field -> field.typeName() + " " + field.name());
+            this.out.println("    public static void set(Storage " + storage + ", int " + row + ", " + parameters + ") {");
+            for (var field : this.fields) {
+                this.out.println("        " + storage + "." + field.name() + "[" + row + "] = " + field.name() + ";");
+            }
+            this.out.println("    }");
+            this.out.println();
+            this.out.println("    /// Sets the component of the entity without creating the record.");
+            this.out.println("    public static World.EntityHelper set(World.EntityHelper " + entity + ", int " + component + ", " + parameters + ") {");
+            this.out.println("        Storage " + storage + " = " + entity + ".writableColumn(" + component + ");");
+            this.out.println("        set(" + storage + ", " + entity + ".row(), " + this.join(Field::name) + ");");
+            this.out.println("        return " + entity + ";");
+            this.out.println("    }");
+            this.out.println();
+            this.out.println("    public static World.EntityHelper set(World.EntityHelper entity, int component, " + this.recordName + " value) {");
+            this.out.println("        Storage storage = entity.writableColumn(component);");
+            this.out.println("        set(storage, entity.row(), value);");
+            this.out.println("        return entity;");
+            this.out.println("    }");
+        }
+
+        /// Returns `name`, with underscores appended if a record component
+        /// has the same name.
+        private String parameterName(String name) {
+            while (this.hasField(name)) {
+                name += "_";
+            }
+            return name;
+        }
+
+        private boolean hasField(String name) {
+            for (var field : this.fields) {
+                if (field.name().equals(name)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private String join(Function<Field, String> mapper) {
+            var parts = new ArrayList<String>();
+            for (var field : this.fields) {
+                parts.add(mapper.apply(field));
+            }
+            return String.join(", ", parts);
+        }
+    }
+
+    private static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+}
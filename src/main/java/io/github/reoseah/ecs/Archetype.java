@@ -1,6 +1,8 @@
 package io.github.reoseah.ecs;
 
 import io.github.reoseah.ecs.bitmanipulation.BitSets;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.ints.IntComparator;
 
 import java.util.Arrays;
 
@@ -8,9 +10,20 @@ import java.util.Arrays;
 public class Archetype {
     private static final int DEFAULT_CAPACITY = 8;
 
+    final World world;
     public final int id;
+    /// ID of [#componentMask] in [World#masks].
+    final int maskId;
+    /// Canonical mask from [World#masks], with trailing zeros trimmed.
     final long[] componentMask;
+    /// Components stored in [#columns], parallel to them.
     final int[] components;
+    /// Components of [#componentMask] that are cold, their values are stored
+    /// in the [World] by entity ID, see [World#createColdComponent].
+    final int[] coldComponents;
+    /// Index in [#columns] for each component ID, `-1` for components that
+    /// are not in this archetype or are cold.
+    private final int[] columnByComponent;
     @SuppressWarnings("rawtypes")
     final ColumnType[] columnTypes;
 
@@ -35,20 +48,58 @@ public class Archetype {
     /// is expected to be parallel to [#entities] (and each other).
     final Object[] columns;
 
-    Archetype(World world, int id, long[] componentMask) {
+    /// Rows are tracked as changed for [WorldSnapshot#saveDelta] in chunks
+    /// of `1 << CHUNK_SHIFT` rows.
+    static final int CHUNK_SHIFT = 10;
+    /// Whether each chunk of rows changed since the last snapshot. Flags are
+    /// stored in a `boolean[]` rather than a bitset, so systems writing
+    /// different columns of the archetype in parallel can mark rows without
+    /// losing each other's updates.
+    boolean[] dirtyChunks = new boolean[chunkCount(DEFAULT_CAPACITY)];
+
+    /// Whether [#entities] or any of [#columns] are shared with a
+    /// [WorldFork] and have to be copied before being modified.
+    private boolean shared;
+    /// Whether each column is shared with a [WorldFork], only meaningful
+    /// when [#shared] is set. Columns are copied separately, so forking only
+    /// costs a copy of the columns that actually change afterward.
+    private final boolean[] sharedColumns;
+
+    /// Where the next [#sortIncrementally] call starts.
+    private int sortCursor;
+
+    Archetype(World world, int id, int maskId, long[] componentMask) {
+        this.world = world;
         this.id = id;
+        this.maskId = maskId;
         this.componentMask = componentMask;
 
-        int componentCount = BitSets.count(componentMask);
+        int coldCount = 0;
+        for (int component = BitSets.nextSetBit(componentMask, 0); component != -1; component = BitSets.nextSetBit(componentMask, component + 1)) {
+            if (world.isCold(component)) {
+                coldCount++;
+            }
+        }
+        int componentCount = BitSets.count(componentMask) - coldCount;
         this.components = new int[componentCount];
+        this.coldComponents = new int[coldCount];
         this.columns = new Object[componentCount];
         this.columnTypes = new ColumnType[componentCount];
+        this.sharedColumns = new boolean[componentCount];
 
         this.entityCount = 0;
         this.entities = new int[DEFAULT_CAPACITY];
 
+        this.columnByComponent = new int[componentMask.length * Long.SIZE];
+        Arrays.fill(this.columnByComponent, -1);
         int i = 0;
+        int cold = 0;
         for (int component = BitSets.nextSetBit(componentMask, 0); component != -1; component = BitSets.nextSetBit(componentMask, component + 1)) {
+            if (world.isCold(component)) {
+                this.coldComponents[cold++] = component;
+                continue;
+            }
+            this.columnByComponent[component] = i;
             this.components[i] = component;
             this.columnTypes[i] = world.componentColumnType(component);
             this.columns[i] = this.columnTypes[i].createStorage(DEFAULT_CAPACITY);
@@ -63,29 +114,395 @@ public class Archetype {
 
     /// Returns storage used to store `component`.
     public Object getColumn(int component) {
-        for (int i = 0; i < this.components.length; i++) {
-            if (this.components[i] == component) {
-                return this.columns[i];
+        return this.columns[this.columnIndex(component)];
+    }
+
+    /// Returns storage used to store `component` for modification, copying
+    /// it first if it's shared with a [WorldFork]. Systems in a schedule get
+    /// the columns they declare as written already copied, so this is only
+    /// needed when modifying columns outside of them.
+    public Object getWritableColumn(int component) {
+        int i = this.columnIndex(component);
+        if (this.shared) {
+            this.unshareColumn(i);
+        }
+        return this.columns[i];
+    }
+
+    int columnIndex(int component) {
+        if (component < 0 || component >= this.columnByComponent.length || this.columnByComponent[component] == -1) {
+            if (this.has(component)) {
+                throw new IllegalArgumentException("Component " + component + " is cold, its values are stored in World#getColdColumn");
             }
+            throw new IllegalArgumentException("Component " + component + " is not present in this archetype.");
+        }
+        return this.columnByComponent[component];
+    }
+
+    /// Returns whether entities in this archetype have the component.
+    public boolean has(int component) {
+        return component >= 0 && component < this.componentMask.length * Long.SIZE && BitSets.contains(this.componentMask, component);
+    }
+
+    /// Returns the value of an [ColumnType.IntArray] component at the row.
+    public int getInt(int component, int row) {
+        return ((int[]) this.columns[this.columnIndex(component)])[row];
+    }
+
+    /// Sets the value of an [ColumnType.IntArray] component at the row,
+    /// marking it as changed and updating the [ValueIndex] if there is one.
+    public void setInt(int component, int row, int value) {
+        ((int[]) this.getWritableColumn(component))[row] = value;
+        this.markDirty(row);
+        var index = this.world.getIndex(component);
+        if (index != null) {
+            index.set(this.entities[row], value);
+        }
+    }
+
+    /// Returns the value of an [ColumnType.LongArray] component at the row.
+    public long getLong(int component, int row) {
+        return ((long[]) this.columns[this.columnIndex(component)])[row];
+    }
+
+    /// Sets the value of an [ColumnType.LongArray] component at the row.
+    ///
+    /// @see #setInt
+    public void setLong(int component, int row, long value) {
+        ((long[]) this.getWritableColumn(component))[row] = value;
+        this.markDirty(row);
+        var index = this.world.getIndex(component);
+        if (index != null) {
+            index.set(this.entities[row], value);
+        }
+    }
+
+    /// Returns the value of an [ColumnType.ObjectArray] component at the
+    /// row.
+    public <T> T getObject(int component, int row) {
+        return ((T[]) this.columns[this.columnIndex(component)])[row];
+    }
+
+    public <T> void setObject(int component, int row, T value) {
+        ((T[]) this.getWritableColumn(component))[row] = value;
+        this.markDirty(row);
+    }
+
+    /// Returns the value of an [ColumnType.BitSet] component at the row.
+    public boolean getBit(int component, int row) {
+        return BitSets.contains((long[]) this.columns[this.columnIndex(component)], row);
+    }
+
+    public void setBit(int component, int row, boolean value) {
+        BitSets.set((long[]) this.getWritableColumn(component), row, value);
+        this.markDirty(row);
+    }
+
+    /// Returns the value of an [ColumnType.ByteArray] component at the row.
+    public byte getByte(int component, int row) {
+        return ((byte[]) this.columns[this.columnIndex(component)])[row];
+    }
+
+    public void setByte(int component, int row, byte value) {
+        ((byte[]) this.getWritableColumn(component))[row] = value;
+        this.markDirty(row);
+    }
+
+    /// Returns the value of an [ColumnType.ShortArray] component at the row.
+    public short getShort(int component, int row) {
+        return ((short[]) this.columns[this.columnIndex(component)])[row];
+    }
+
+    public void setShort(int component, int row, short value) {
+        ((short[]) this.getWritableColumn(component))[row] = value;
+        this.markDirty(row);
+    }
+
+    /// Returns the value of an [ColumnType.CharArray] component at the row.
+    public char getChar(int component, int row) {
+        return ((char[]) this.columns[this.columnIndex(component)])[row];
+    }
+
+    public void setChar(int component, int row, char value) {
+        ((char[]) this.getWritableColumn(component))[row] = value;
+        this.markDirty(row);
+    }
+
+    /// Returns the value of an [ColumnType.FloatArray] component at the row.
+    public float getFloat(int component, int row) {
+        return ((float[]) this.columns[this.columnIndex(component)])[row];
+    }
+
+    public void setFloat(int component, int row, float value) {
+        ((float[]) this.getWritableColumn(component))[row] = value;
+        this.markDirty(row);
+    }
+
+    /// Returns the value of an [ColumnType.DoubleArray] component at the row.
+    public double getDouble(int component, int row) {
+        return ((double[]) this.columns[this.columnIndex(component)])[row];
+    }
+
+    public void setDouble(int component, int row, double value) {
+        ((double[]) this.getWritableColumn(component))[row] = value;
+        this.markDirty(row);
+    }
+
+    /// Returns the value of an [ColumnType.HalfFloatArray] component at the
+    /// row, converted to `float`.
+    public float getHalf(int component, int row) {
+        return ColumnType.HalfFloatArray.get((short[]) this.columns[this.columnIndex(component)], row);
+    }
+
+    /// Sets the value of an [ColumnType.HalfFloatArray] component at the
+    /// row, rounding it to the nearest half-precision value.
+    public void setHalf(int component, int row, float value) {
+        ColumnType.HalfFloatArray.set((short[]) this.getWritableColumn(component), row, value);
+        this.markDirty(row);
+    }
+
+    /// Returns the value of an [ColumnType.FixedPointColumn] component at
+    /// the row, converted to `double`.
+    public double getFixed(int component, int row) {
+        int i = this.columnIndex(component);
+        return ((ColumnType.FixedPointColumn) this.columnTypes[i]).toDouble(((int[]) this.columns[i])[row]);
+    }
+
+    /// Sets the value of an [ColumnType.FixedPointColumn] component at the
+    /// row, rounding it to the column's precision.
+    public void setFixed(int component, int row, double value) {
+        int i = this.columnIndex(component);
+        var type = (ColumnType.FixedPointColumn) this.columnTypes[i];
+        ((int[]) this.getWritableColumn(component))[row] = type.fromDouble(value);
+        this.markDirty(row);
+    }
+
+    /// Returns a lane of a [ColumnType.FloatVectorColumn] component at the
+    /// row.
+    ///
+    /// @throws IllegalArgumentException if the component is not a
+    ///                                  `FloatVectorColumn` or doesn't have
+    ///                                  the lane
+    public float getVector(int component, int row, int lane) {
+        int i = this.columnIndex(component);
+        int lanes = this.vectorLanes(i, component);
+        checkLane(component, lane, lanes);
+        return ((float[]) this.columns[i])[row * lanes + lane];
+    }
+
+    public void setVector(int component, int row, int lane, float value) {
+        int i = this.columnIndex(component);
+        int lanes = this.vectorLanes(i, component);
+        checkLane(component, lane, lanes);
+        ((float[]) this.getWritableColumn(component))[row * lanes + lane] = value;
+        this.markDirty(row);
+    }
+
+    /// Sets both lanes of a two-lane [ColumnType.FloatVectorColumn]
+    /// component at the row.
+    ///
+    /// @throws IllegalArgumentException if the component is not a
+    ///                                  `FloatVectorColumn` with two lanes
+    public void setVector(int component, int row, float x, float y) {
+        this.checkLanes(component, 2);
+        var column = (float[]) this.getWritableColumn(component);
+        column[row * 2] = x;
+        column[row * 2 + 1] = y;
+        this.markDirty(row);
+    }
+
+    /// Sets all lanes of a three-lane [ColumnType.FloatVectorColumn]
+    /// component at the row.
+    ///
+    /// @throws IllegalArgumentException if the component is not a
+    ///                                  `FloatVectorColumn` with three lanes
+    public void setVector(int component, int row, float x, float y, float z) {
+        this.checkLanes(component, 3);
+        var column = (float[]) this.getWritableColumn(component);
+        column[row * 3] = x;
+        column[row * 3 + 1] = y;
+        column[row * 3 + 2] = z;
+        this.markDirty(row);
+    }
+
+    private int vectorLanes(int i, int component) {
+        if (!(this.columnTypes[i] instanceof ColumnType.FloatVectorColumn column)) {
+            throw new IllegalArgumentException("Component " + component + " is not a FloatVectorColumn");
+        }
+        return column.lanes;
+    }
+
+    private void checkLanes(int component, int expected) {
+        int lanes = this.vectorLanes(this.columnIndex(component), component);
+        if (lanes != expected) {
+            throw new IllegalArgumentException("Component " + component + " has " + lanes + " lanes, not " + expected);
+        }
+    }
+
+    private static void checkLane(int component, int lane, int lanes) {
+        if (lane < 0 || lane >= lanes) {
+            throw new IllegalArgumentException("Lane " + lane + " is out of bounds for component " + component + " with " + lanes + " lanes");
+        }
+    }
+
+    /// Marks the row as changed since the last snapshot. Structural changes,
+    /// [World.EntityHelper] setters and schedules do it automatically, but
+    /// code outside a schedule that writes to columns directly should call
+    /// this or [#markDirty(int, int)] for its changes to be included in delta
+    /// snapshots.
+    public void markDirty(int row) {
+        this.dirtyChunks[row >>> CHUNK_SHIFT] = true;
+    }
+
+    /// Marks rows from `fromRow` (inclusive) to `toRow` (exclusive) as
+    /// changed since the last snapshot.
+    public void markDirty(int fromRow, int toRow) {
+        if (fromRow < toRow) {
+            Arrays.fill(this.dirtyChunks, fromRow >>> CHUNK_SHIFT, ((toRow - 1) >>> CHUNK_SHIFT) + 1, true);
         }
-        throw new IllegalArgumentException("Component " + component + " is not present in this archetype.");
     }
 
     int add(int entity) {
+        this.unshare();
         if (this.entityCount == this.entities.length) {
-            int newCapacity = this.entities.length * 2;
-
-            this.entities = Arrays.copyOf(this.entities, newCapacity);
-            for (int i = 0; i < this.components.length; i++) {
-                this.columns[i] = this.columnTypes[i].growStorage(this.columns[i], newCapacity);
-            }
+            this.grow(this.entities.length * 2);
         }
         int row = this.entityCount;
         this.entities[row] = entity;
         this.entityCount++;
+        this.markDirty(row);
         return row;
     }
 
+    /// Reserves `count` rows at the end, growing the storage at most once,
+    /// and returns the first of them. The caller is expected to fill
+    /// [#entities] for the new rows.
+    int addRows(int count) {
+        this.unshare();
+        int required = this.entityCount + count;
+        if (required > this.entities.length) {
+            int newCapacity = this.entities.length * 2;
+            while (newCapacity < required) {
+                newCapacity *= 2;
+            }
+            this.grow(newCapacity);
+        }
+        int row = this.entityCount;
+        this.entityCount = required;
+        this.markDirty(row, required);
+        return row;
+    }
+
+    /// Adds or removes rows at the end so that the archetype has `count`
+    /// rows. Removed rows are cleared like in [#remove].
+    void resize(int count) {
+        this.unshare();
+        if (count > this.entityCount) {
+            this.addRows(count - this.entityCount);
+            return;
+        }
+        while (this.entityCount > count) {
+            int popped = --this.entityCount;
+            for (int i = 0; i < this.components.length; i++) {
+                this.columnTypes[i].remove(this.columns[i], popped);
+            }
+        }
+    }
+
+    /// Marks entities and all columns as shared with a fork.
+    void share() {
+        this.shared = true;
+        Arrays.fill(this.sharedColumns, true);
+    }
+
+    /// Prepares the archetype for a system writing the components in the
+    /// mask: copies the columns shared with a fork and, since the system can
+    /// change any row without calling [#markDirty], marks all rows having
+    /// any of the components as changed.
+    void prepareWrites(long[] mask) {
+        if (BitSets.isDisjoint(this.componentMask, mask)) {
+            return;
+        }
+        this.unshareColumns(mask);
+        int count = this.entityCount();
+        this.markDirty(0, count);
+        for (int component : this.coldComponents) {
+            if (component / Long.SIZE < mask.length && BitSets.contains(mask, component)) {
+                for (int row = 0; row < count; row++) {
+                    this.world.markEntityDirty(this.entities[row]);
+                }
+                break;
+            }
+        }
+    }
+
+    /// Copies columns in the mask that are shared with a fork, so they can
+    /// be modified in parallel with other columns of this archetype.
+    void unshareColumns(long[] mask) {
+        if (!this.shared) {
+            return;
+        }
+        for (int i = 0; i < this.components.length; i++) {
+            int component = this.components[i];
+            if (component / Long.SIZE < mask.length && BitSets.contains(mask, component)) {
+                this.unshareColumn(i);
+            }
+        }
+    }
+
+    private void unshareColumn(int i) {
+        if (this.sharedColumns[i]) {
+            this.columns[i] = this.columnTypes[i].growStorage(this.columns[i], this.entities.length);
+            this.sharedColumns[i] = false;
+        }
+    }
+
+    /// Copies entities and all columns shared with a fork before a
+    /// structural change.
+    private void unshare() {
+        if (!this.shared) {
+            return;
+        }
+        this.entities = this.entities.clone();
+        for (int i = 0; i < this.components.length; i++) {
+            this.unshareColumn(i);
+        }
+        this.shared = false;
+    }
+
+    /// Replaces the contents with the state captured by a fork, which stays
+    /// shared with it.
+    void restore(int[] entities, int entityCount, Object[] columns) {
+        this.entities = entities;
+        this.entityCount = entityCount;
+        System.arraycopy(columns, 0, this.columns, 0, columns.length);
+        this.share();
+        this.dirtyChunks = new boolean[chunkCount(entities.length)];
+        Arrays.fill(this.dirtyChunks, true);
+    }
+
+    /// Removes all rows, replacing the storage instead of clearing it in
+    /// case it's shared with a fork.
+    void reset() {
+        this.entities = new int[DEFAULT_CAPACITY];
+        this.entityCount = 0;
+        for (int i = 0; i < this.components.length; i++) {
+            this.columns[i] = this.columnTypes[i].createStorage(DEFAULT_CAPACITY);
+        }
+        this.shared = false;
+        Arrays.fill(this.sharedColumns, false);
+        this.dirtyChunks = new boolean[chunkCount(DEFAULT_CAPACITY)];
+        Arrays.fill(this.dirtyChunks, true);
+    }
+
+    private void grow(int newCapacity) {
+        this.entities = Arrays.copyOf(this.entities, newCapacity);
+        this.dirtyChunks = Arrays.copyOf(this.dirtyChunks, chunkCount(newCapacity));
+        for (int i = 0; i < this.components.length; i++) {
+            this.columns[i] = this.columnTypes[i].growStorage(this.columns[i], newCapacity);
+        }
+    }
+
     /// Removes the passed entity and position from this archetype and returns
     /// data to update the entity map maintained globally in [World]:
     /// - `-1` indicated entity was "popped" from the end of this archetype
@@ -94,6 +511,8 @@ public class Archetype {
     ///
     /// @see World#removeEntity
     int remove(int entity, int row) {
+        this.unshare();
+        this.markDirty(row);
         int popped = --this.entityCount;
         if (this.entities[popped] == entity) {
             // clear values because they can be objects and we don't want them to stay strongly referenced
@@ -110,4 +529,135 @@ public class Archetype {
             return this.entities[row];
         }
     }
+
+    /// Reorders rows by the key computed from a column, e.g. a Morton code
+    /// of the position, so that entities close by the key are also close in
+    /// memory. Removing entities moves the last row into the gap, so without
+    /// sorting the order drifts over time.
+    ///
+    /// Keys are computed once per row, then all columns and [#entities] are
+    /// permuted column by column, moving every row once, and entity
+    /// locations in the [World] are updated.
+    public <S> void sortBy(int component, SortKey<S> key) {
+        this.sortBy(component, key, 0, this.entityCount);
+    }
+
+    /// Reorders rows using a comparator of their indices.
+    ///
+    /// @see #sortBy(int, SortKey)
+    public void sortBy(IntComparator rowComparator) {
+        int[] order = new int[this.entityCount];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        IntArrays.quickSort(order, rowComparator);
+        this.permute(order, 0);
+    }
+
+    /// Sorts up to `maxRows` rows per call, so the cost of keeping the
+    /// archetype ordered can be spread over ticks.
+    ///
+    /// Each call sorts a window of rows starting where the previous one
+    /// ended, and consecutive windows overlap by half, so rows can move
+    /// past window boundaries. Repeated calls converge to the order of
+    /// [#sortBy(int, SortKey)], and since removals only displace a few rows
+    /// at a time, a small window per tick is usually enough to keep up.
+    public <S> void sortIncrementally(int component, SortKey<S> key, int maxRows) {
+        if (maxRows < 2) {
+            throw new IllegalArgumentException("maxRows should be at least 2, got " + maxRows);
+        }
+        if (this.entityCount <= maxRows) {
+            this.sortBy(component, key, 0, this.entityCount);
+            return;
+        }
+        if (this.sortCursor + maxRows > this.entityCount) {
+            this.sortCursor = this.entityCount - maxRows;
+        }
+        this.sortBy(component, key, this.sortCursor, this.sortCursor + maxRows);
+        this.sortCursor = this.sortCursor + maxRows == this.entityCount ? 0 : this.sortCursor + maxRows / 2;
+    }
+
+    private <S> void sortBy(int component, SortKey<S> key, int from, int to) {
+        var column = (S) this.columns[this.columnIndex(component)];
+        long[] keys = new long[to - from];
+        int[] order = new int[to - from];
+        for (int i = 0; i < order.length; i++) {
+            keys[i] = key.key(column, from + i);
+            order[i] = i;
+        }
+        IntArrays.quickSort(order, (a, b) -> Long.compare(keys[a], keys[b]));
+        for (int i = 0; i < order.length; i++) {
+            order[i] += from;
+        }
+        this.permute(order, from);
+    }
+
+    /// Moves row `order[i]` to row `from + i` in every column, following
+    /// the cycles of the permutation with the first unused row as
+    /// temporary storage.
+    private void permute(int[] order, int from) {
+        boolean changed = false;
+        for (int i = 0; i < order.length; i++) {
+            if (order[i] != from + i) {
+                changed = true;
+                break;
+            }
+        }
+        if (!changed) {
+            return;
+        }
+        this.unshare();
+        if (this.entityCount == this.entities.length) {
+            this.grow(this.entities.length * 2);
+        }
+        int scratch = this.entityCount;
+
+        long[] visited = new long[(order.length + Long.SIZE - 1) / Long.SIZE];
+        for (int i = 0; i < this.components.length; i++) {
+            ColumnType<Object> columnType = this.columnTypes[i];
+            var column = this.columns[i];
+            Arrays.fill(visited, 0);
+            for (int start = 0; start < order.length; start++) {
+                if (BitSets.contains(visited, start) || order[start] == from + start) {
+                    continue;
+                }
+                columnType.replace(column, from + start, scratch);
+                int target = start;
+                while (true) {
+                    BitSets.add(visited, target);
+                    int source = order[target];
+                    if (source == from + start) {
+                        columnType.replace(column, scratch, from + target);
+                        break;
+                    }
+                    columnType.replace(column, source, from + target);
+                    target = source - from;
+                }
+            }
+            columnType.remove(column, scratch);
+        }
+
+        int[] sorted = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            sorted[i] = this.entities[order[i]];
+        }
+        System.arraycopy(sorted, 0, this.entities, from, sorted.length);
+        for (int i = 0; i < sorted.length; i++) {
+            this.world.setLocation(sorted[i], ((long) this.id << 32) | (from + i));
+        }
+        this.markDirty(from, from + order.length);
+    }
+
+    static int chunkCount(int rows) {
+        return (rows + (1 << CHUNK_SHIFT) - 1) >>> CHUNK_SHIFT;
+    }
+
+    /// Computes the key to sort rows of an archetype by.
+    ///
+    /// @param <S> type of the column storage
+    /// @see #sortBy(int, SortKey)
+    @FunctionalInterface
+    public interface SortKey<S> {
+        long key(S column, int row);
+    }
 }
@@ -2,6 +2,7 @@ package io.github.reoseah.ecs;
 
 import io.github.reoseah.ecs.bitmanipulation.BitSets;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.function.IntFunction;
 
@@ -9,6 +10,9 @@ import java.util.function.IntFunction;
 public interface ColumnType<S> {
     S createStorage(int capacity);
 
+    /// Returns a new storage with the contents of `current` and at least
+    /// `newCapacity` capacity. It should never return `current` itself, as
+    /// [World#fork] relies on this to copy columns shared with a fork.
     S growStorage(S current, int newCapacity);
 
     void remove(S storage, int index);
@@ -22,6 +26,52 @@ public interface ColumnType<S> {
     /// clean up inside this method.
     void transfer(S storage, int index, S destination, int destinationIndex);
 
+    /// Copies `count` rows starting at `index` to `destination` starting at
+    /// `destinationIndex`, like [#transfer] for each row. Array-backed
+    /// column types override it with a single [System#arraycopy].
+    default void transferRange(S storage, int index, S destination, int destinationIndex, int count) {
+        for (int i = 0; i < count; i++) {
+            this.transfer(storage, index + i, destination, destinationIndex + i);
+        }
+    }
+
+    /// Copies row `index` to `count` rows of `destination` starting at
+    /// `destinationIndex`, e.g. to spawn copies of a [Prefab]. Array-backed
+    /// column types override it with [Arrays#fill] or block copies.
+    default void fillRange(S storage, int index, S destination, int destinationIndex, int count) {
+        for (int i = 0; i < count; i++) {
+            this.transfer(storage, index, destination, destinationIndex + i);
+        }
+    }
+
+    /// Clears rows from `from` (inclusive) to `to` (exclusive), like
+    /// [#remove] for each row.
+    default void removeRange(S storage, int from, int to) {
+        for (int i = from; i < to; i++) {
+            this.remove(storage, i);
+        }
+    }
+
+    /// Returns the number of bytes [#write] produces for `count` rows
+    /// starting at `start`, or `-1` if the column can't be saved in a
+    /// [WorldSnapshot].
+    default long serializedSize(S storage, int start, int count) {
+        return -1;
+    }
+
+    /// Writes `count` rows of the storage starting at `start` to the
+    /// little-endian buffer for a [WorldSnapshot], advancing its position by
+    /// exactly [#serializedSize] bytes.
+    default void write(S storage, int start, int count, ByteBuffer buffer) {
+        throw new UnsupportedOperationException(this + " doesn't support snapshots");
+    }
+
+    /// Reads `count` rows written by [#write] into the storage starting at
+    /// `start`, the storage has at least `start + count` capacity.
+    default void read(S storage, int start, int count, ByteBuffer buffer) {
+        throw new UnsupportedOperationException(this + " doesn't support snapshots");
+    }
+
     enum IntArray implements ColumnType<int[]> {
         INSTANCE;
 
@@ -50,6 +100,38 @@ public interface ColumnType<S> {
         public void transfer(int[] storage, int index, int[] destination, int destinationIndex) {
             destination[destinationIndex] = storage[index];
         }
+
+        @Override
+        public void transferRange(int[] storage, int index, int[] destination, int destinationIndex, int count) {
+            System.arraycopy(storage, index, destination, destinationIndex, count);
+        }
+
+        @Override
+        public void removeRange(int[] storage, int from, int to) {
+            Arrays.fill(storage, from, to, 0);
+        }
+
+        @Override
+        public void fillRange(int[] storage, int index, int[] destination, int destinationIndex, int count) {
+            Arrays.fill(destination, destinationIndex, destinationIndex + count, storage[index]);
+        }
+
+        @Override
+        public long serializedSize(int[] storage, int start, int count) {
+            return (long) count * Integer.BYTES;
+        }
+
+        @Override
+        public void write(int[] storage, int start, int count, ByteBuffer buffer) {
+            buffer.asIntBuffer().put(storage, start, count);
+            buffer.position(buffer.position() + count * Integer.BYTES);
+        }
+
+        @Override
+        public void read(int[] storage, int start, int count, ByteBuffer buffer) {
+            buffer.asIntBuffer().get(storage, start, count);
+            buffer.position(buffer.position() + count * Integer.BYTES);
+        }
     }
 
     enum LongArray implements ColumnType<long[]> {
@@ -80,6 +162,533 @@ public interface ColumnType<S> {
         public void transfer(long[] storage, int index, long[] destination, int destinationIndex) {
             destination[destinationIndex] = storage[index];
         }
+
+        @Override
+        public void transferRange(long[] storage, int index, long[] destination, int destinationIndex, int count) {
+            System.arraycopy(storage, index, destination, destinationIndex, count);
+        }
+
+        @Override
+        public void removeRange(long[] storage, int from, int to) {
+            Arrays.fill(storage, from, to, 0);
+        }
+
+        @Override
+        public void fillRange(long[] storage, int index, long[] destination, int destinationIndex, int count) {
+            Arrays.fill(destination, destinationIndex, destinationIndex + count, storage[index]);
+        }
+
+        @Override
+        public long serializedSize(long[] storage, int start, int count) {
+            return (long) count * Long.BYTES;
+        }
+
+        @Override
+        public void write(long[] storage, int start, int count, ByteBuffer buffer) {
+            buffer.asLongBuffer().put(storage, start, count);
+            buffer.position(buffer.position() + count * Long.BYTES);
+        }
+
+        @Override
+        public void read(long[] storage, int start, int count, ByteBuffer buffer) {
+            buffer.asLongBuffer().get(storage, start, count);
+            buffer.position(buffer.position() + count * Long.BYTES);
+        }
+    }
+
+    /// Column of `byte`s, for small counters, enum ordinals and similar
+    /// values that fit in 8 bits.
+    enum ByteArray implements ColumnType<byte[]> {
+        INSTANCE;
+
+        @Override
+        public byte[] createStorage(int capacity) {
+            return new byte[capacity];
+        }
+
+        @Override
+        public byte[] growStorage(byte[] current, int newCapacity) {
+            return Arrays.copyOf(current, newCapacity);
+        }
+
+        @Override
+        public void remove(byte[] storage, int index) {
+            storage[index] = 0;
+        }
+
+        @Override
+        public void replace(byte[] storage, int from, int to) {
+            storage[to] = storage[from];
+            storage[from] = 0;
+        }
+
+        @Override
+        public void transfer(byte[] storage, int index, byte[] destination, int destinationIndex) {
+            destination[destinationIndex] = storage[index];
+        }
+
+        @Override
+        public void transferRange(byte[] storage, int index, byte[] destination, int destinationIndex, int count) {
+            System.arraycopy(storage, index, destination, destinationIndex, count);
+        }
+
+        @Override
+        public void removeRange(byte[] storage, int from, int to) {
+            Arrays.fill(storage, from, to, (byte) 0);
+        }
+
+        @Override
+        public void fillRange(byte[] storage, int index, byte[] destination, int destinationIndex, int count) {
+            Arrays.fill(destination, destinationIndex, destinationIndex + count, storage[index]);
+        }
+
+        @Override
+        public long serializedSize(byte[] storage, int start, int count) {
+            return (long) count * Byte.BYTES;
+        }
+
+        @Override
+        public void write(byte[] storage, int start, int count, ByteBuffer buffer) {
+            buffer.put(storage, start, count);
+        }
+
+        @Override
+        public void read(byte[] storage, int start, int count, ByteBuffer buffer) {
+            buffer.get(storage, start, count);
+        }
+    }
+
+    enum ShortArray implements ColumnType<short[]> {
+        INSTANCE;
+
+        @Override
+        public short[] createStorage(int capacity) {
+            return new short[capacity];
+        }
+
+        @Override
+        public short[] growStorage(short[] current, int newCapacity) {
+            return Arrays.copyOf(current, newCapacity);
+        }
+
+        @Override
+        public void remove(short[] storage, int index) {
+            storage[index] = 0;
+        }
+
+        @Override
+        public void replace(short[] storage, int from, int to) {
+            storage[to] = storage[from];
+            storage[from] = 0;
+        }
+
+        @Override
+        public void transfer(short[] storage, int index, short[] destination, int destinationIndex) {
+            destination[destinationIndex] = storage[index];
+        }
+
+        @Override
+        public void transferRange(short[] storage, int index, short[] destination, int destinationIndex, int count) {
+            System.arraycopy(storage, index, destination, destinationIndex, count);
+        }
+
+        @Override
+        public void removeRange(short[] storage, int from, int to) {
+            Arrays.fill(storage, from, to, (short) 0);
+        }
+
+        @Override
+        public void fillRange(short[] storage, int index, short[] destination, int destinationIndex, int count) {
+            Arrays.fill(destination, destinationIndex, destinationIndex + count, storage[index]);
+        }
+
+        @Override
+        public long serializedSize(short[] storage, int start, int count) {
+            return (long) count * Short.BYTES;
+        }
+
+        @Override
+        public void write(short[] storage, int start, int count, ByteBuffer buffer) {
+            buffer.asShortBuffer().put(storage, start, count);
+            buffer.position(buffer.position() + count * Short.BYTES);
+        }
+
+        @Override
+        public void read(short[] storage, int start, int count, ByteBuffer buffer) {
+            buffer.asShortBuffer().get(storage, start, count);
+            buffer.position(buffer.position() + count * Short.BYTES);
+        }
+    }
+
+    enum CharArray implements ColumnType<char[]> {
+        INSTANCE;
+
+        @Override
+        public char[] createStorage(int capacity) {
+            return new char[capacity];
+        }
+
+        @Override
+        public char[] growStorage(char[] current, int newCapacity) {
+            return Arrays.copyOf(current, newCapacity);
+        }
+
+        @Override
+        public void remove(char[] storage, int index) {
+            storage[index] = '\0';
+        }
+
+        @Override
+        public void replace(char[] storage, int from, int to) {
+            storage[to] = storage[from];
+            storage[from] = '\0';
+        }
+
+        @Override
+        public void transfer(char[] storage, int index, char[] destination, int destinationIndex) {
+            destination[destinationIndex] = storage[index];
+        }
+
+        @Override
+        public void transferRange(char[] storage, int index, char[] destination, int destinationIndex, int count) {
+            System.arraycopy(storage, index, destination, destinationIndex, count);
+        }
+
+        @Override
+        public void removeRange(char[] storage, int from, int to) {
+            Arrays.fill(storage, from, to, '\0');
+        }
+
+        @Override
+        public void fillRange(char[] storage, int index, char[] destination, int destinationIndex, int count) {
+            Arrays.fill(destination, destinationIndex, destinationIndex + count, storage[index]);
+        }
+
+        @Override
+        public long serializedSize(char[] storage, int start, int count) {
+            return (long) count * Character.BYTES;
+        }
+
+        @Override
+        public void write(char[] storage, int start, int count, ByteBuffer buffer) {
+            buffer.asCharBuffer().put(storage, start, count);
+            buffer.position(buffer.position() + count * Character.BYTES);
+        }
+
+        @Override
+        public void read(char[] storage, int start, int count, ByteBuffer buffer) {
+            buffer.asCharBuffer().get(storage, start, count);
+            buffer.position(buffer.position() + count * Character.BYTES);
+        }
+    }
+
+    enum FloatArray implements ColumnType<float[]> {
+        INSTANCE;
+
+        @Override
+        public float[] createStorage(int capacity) {
+            return new float[capacity];
+        }
+
+        @Override
+        public float[] growStorage(float[] current, int newCapacity) {
+            return Arrays.copyOf(current, newCapacity);
+        }
+
+        @Override
+        public void remove(float[] storage, int index) {
+            storage[index] = 0;
+        }
+
+        @Override
+        public void replace(float[] storage, int from, int to) {
+            storage[to] = storage[from];
+            storage[from] = 0;
+        }
+
+        @Override
+        public void transfer(float[] storage, int index, float[] destination, int destinationIndex) {
+            destination[destinationIndex] = storage[index];
+        }
+
+        @Override
+        public void transferRange(float[] storage, int index, float[] destination, int destinationIndex, int count) {
+            System.arraycopy(storage, index, destination, destinationIndex, count);
+        }
+
+        @Override
+        public void removeRange(float[] storage, int from, int to) {
+            Arrays.fill(storage, from, to, 0);
+        }
+
+        @Override
+        public void fillRange(float[] storage, int index, float[] destination, int destinationIndex, int count) {
+            Arrays.fill(destination, destinationIndex, destinationIndex + count, storage[index]);
+        }
+
+        @Override
+        public long serializedSize(float[] storage, int start, int count) {
+            return (long) count * Float.BYTES;
+        }
+
+        @Override
+        public void write(float[] storage, int start, int count, ByteBuffer buffer) {
+            buffer.asFloatBuffer().put(storage, start, count);
+            buffer.position(buffer.position() + count * Float.BYTES);
+        }
+
+        @Override
+        public void read(float[] storage, int start, int count, ByteBuffer buffer) {
+            buffer.asFloatBuffer().get(storage, start, count);
+            buffer.position(buffer.position() + count * Float.BYTES);
+        }
+    }
+
+    enum DoubleArray implements ColumnType<double[]> {
+        INSTANCE;
+
+        @Override
+        public double[] createStorage(int capacity) {
+            return new double[capacity];
+        }
+
+        @Override
+        public double[] growStorage(double[] current, int newCapacity) {
+            return Arrays.copyOf(current, newCapacity);
+        }
+
+        @Override
+        public void remove(double[] storage, int index) {
+            storage[index] = 0;
+        }
+
+        @Override
+        public void replace(double[] storage, int from, int to) {
+            storage[to] = storage[from];
+            storage[from] = 0;
+        }
+
+        @Override
+        public void transfer(double[] storage, int index, double[] destination, int destinationIndex) {
+            destination[destinationIndex] = storage[index];
+        }
+
+        @Override
+        public void transferRange(double[] storage, int index, double[] destination, int destinationIndex, int count) {
+            System.arraycopy(storage, index, destination, destinationIndex, count);
+        }
+
+        @Override
+        public void removeRange(double[] storage, int from, int to) {
+            Arrays.fill(storage, from, to, 0);
+        }
+
+        @Override
+        public void fillRange(double[] storage, int index, double[] destination, int destinationIndex, int count) {
+            Arrays.fill(destination, destinationIndex, destinationIndex + count, storage[index]);
+        }
+
+        @Override
+        public long serializedSize(double[] storage, int start, int count) {
+            return (long) count * Double.BYTES;
+        }
+
+        @Override
+        public void write(double[] storage, int start, int count, ByteBuffer buffer) {
+            buffer.asDoubleBuffer().put(storage, start, count);
+            buffer.position(buffer.position() + count * Double.BYTES);
+        }
+
+        @Override
+        public void read(double[] storage, int start, int count, ByteBuffer buffer) {
+            buffer.asDoubleBuffer().get(storage, start, count);
+            buffer.position(buffer.position() + count * Double.BYTES);
+        }
+    }
+
+    /// Stores `float`s as IEEE 754 half-precision values in a `short[]`,
+    /// halving the memory bandwidth of values that don't need more than
+    /// about three significant digits, like normalized directions or colors.
+    enum HalfFloatArray implements ColumnType<short[]> {
+        INSTANCE;
+
+        @Override
+        public short[] createStorage(int capacity) {
+            return new short[capacity];
+        }
+
+        @Override
+        public short[] growStorage(short[] current, int newCapacity) {
+            return Arrays.copyOf(current, newCapacity);
+        }
+
+        @Override
+        public void remove(short[] storage, int index) {
+            storage[index] = 0;
+        }
+
+        @Override
+        public void replace(short[] storage, int from, int to) {
+            storage[to] = storage[from];
+            storage[from] = 0;
+        }
+
+        @Override
+        public void transfer(short[] storage, int index, short[] destination, int destinationIndex) {
+            destination[destinationIndex] = storage[index];
+        }
+
+        @Override
+        public void transferRange(short[] storage, int index, short[] destination, int destinationIndex, int count) {
+            System.arraycopy(storage, index, destination, destinationIndex, count);
+        }
+
+        @Override
+        public void removeRange(short[] storage, int from, int to) {
+            Arrays.fill(storage, from, to, (short) 0);
+        }
+
+        @Override
+        public void fillRange(short[] storage, int index, short[] destination, int destinationIndex, int count) {
+            Arrays.fill(destination, destinationIndex, destinationIndex + count, storage[index]);
+        }
+
+        @Override
+        public long serializedSize(short[] storage, int start, int count) {
+            return (long) count * Short.BYTES;
+        }
+
+        @Override
+        public void write(short[] storage, int start, int count, ByteBuffer buffer) {
+            buffer.asShortBuffer().put(storage, start, count);
+            buffer.position(buffer.position() + count * Short.BYTES);
+        }
+
+        @Override
+        public void read(short[] storage, int start, int count, ByteBuffer buffer) {
+            buffer.asShortBuffer().get(storage, start, count);
+            buffer.position(buffer.position() + count * Short.BYTES);
+        }
+
+        public static float get(short[] storage, int row) {
+            return Float.float16ToFloat(storage[row]);
+        }
+
+        public static void set(short[] storage, int row, float value) {
+            storage[row] = Float.floatToFloat16(value);
+        }
+
+        /// Converts `count` rows starting at `start` to `float`s.
+        public static void decode(short[] storage, int start, float[] destination, int destinationStart, int count) {
+            for (int i = 0; i < count; i++) {
+                destination[destinationStart + i] = Float.float16ToFloat(storage[start + i]);
+            }
+        }
+
+        /// Converts `count` `float`s to rows starting at `start`.
+        public static void encode(float[] source, int sourceStart, short[] storage, int start, int count) {
+            for (int i = 0; i < count; i++) {
+                storage[start + i] = Float.floatToFloat16(source[sourceStart + i]);
+            }
+        }
+    }
+
+    /// Stores real numbers as fixed-point values in an `int[]`, with the
+    /// lowest [#fractionBits] bits for the fraction. Unlike floats, the
+    /// precision is the same across the whole range, e.g. 16 fraction bits
+    /// give a step of about 0.000015 for values up to ±32768.
+    final class FixedPointColumn implements ColumnType<int[]> {
+        public final int fractionBits;
+        private final double scale;
+
+        public FixedPointColumn(int fractionBits) {
+            if (fractionBits < 0 || fractionBits > 30) {
+                throw new IllegalArgumentException("Number of fraction bits should be from 0 to 30, got " + fractionBits);
+            }
+            this.fractionBits = fractionBits;
+            this.scale = 1 << fractionBits;
+        }
+
+        /// Converts a stored value to a real number.
+        public double toDouble(int value) {
+            return value / this.scale;
+        }
+
+        /// Converts a real number to the nearest stored value, saturating at
+        /// the ends of the range.
+        public int fromDouble(double value) {
+            long rounded = Math.round(value * this.scale);
+            return Math.clamp(rounded, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        }
+
+        /// Converts `count` rows starting at `start` to real numbers.
+        public void decode(int[] storage, int start, double[] destination, int destinationStart, int count) {
+            for (int i = 0; i < count; i++) {
+                destination[destinationStart + i] = storage[start + i] / this.scale;
+            }
+        }
+
+        /// Converts `count` real numbers to rows starting at `start`.
+        public void encode(double[] source, int sourceStart, int[] storage, int start, int count) {
+            for (int i = 0; i < count; i++) {
+                storage[start + i] = this.fromDouble(source[sourceStart + i]);
+            }
+        }
+
+        @Override
+        public int[] createStorage(int capacity) {
+            return IntArray.INSTANCE.createStorage(capacity);
+        }
+
+        @Override
+        public int[] growStorage(int[] current, int newCapacity) {
+            return IntArray.INSTANCE.growStorage(current, newCapacity);
+        }
+
+        @Override
+        public void remove(int[] storage, int index) {
+            IntArray.INSTANCE.remove(storage, index);
+        }
+
+        @Override
+        public void replace(int[] storage, int from, int to) {
+            IntArray.INSTANCE.replace(storage, from, to);
+        }
+
+        @Override
+        public void transfer(int[] storage, int index, int[] destination, int destinationIndex) {
+            IntArray.INSTANCE.transfer(storage, index, destination, destinationIndex);
+        }
+
+        @Override
+        public void transferRange(int[] storage, int index, int[] destination, int destinationIndex, int count) {
+            IntArray.INSTANCE.transferRange(storage, index, destination, destinationIndex, count);
+        }
+
+        @Override
+        public void removeRange(int[] storage, int from, int to) {
+            IntArray.INSTANCE.removeRange(storage, from, to);
+        }
+
+        @Override
+        public void fillRange(int[] storage, int index, int[] destination, int destinationIndex, int count) {
+            IntArray.INSTANCE.fillRange(storage, index, destination, destinationIndex, count);
+        }
+
+        @Override
+        public long serializedSize(int[] storage, int start, int count) {
+            return IntArray.INSTANCE.serializedSize(storage, start, count);
+        }
+
+        @Override
+        public void write(int[] storage, int start, int count, ByteBuffer buffer) {
+            IntArray.INSTANCE.write(storage, start, count, buffer);
+        }
+
+        @Override
+        public void read(int[] storage, int start, int count, ByteBuffer buffer) {
+            IntArray.INSTANCE.read(storage, start, count, buffer);
+        }
     }
 
     enum ObjectArray implements ColumnType<Object[]> {
@@ -110,6 +719,21 @@ public interface ColumnType<S> {
         public void transfer(Object[] storage, int index, Object[] destination, int destinationIndex) {
             destination[destinationIndex] = storage[index];
         }
+
+        @Override
+        public void transferRange(Object[] storage, int index, Object[] destination, int destinationIndex, int count) {
+            System.arraycopy(storage, index, destination, destinationIndex, count);
+        }
+
+        @Override
+        public void removeRange(Object[] storage, int from, int to) {
+            Arrays.fill(storage, from, to, null);
+        }
+
+        @Override
+        public void fillRange(Object[] storage, int index, Object[] destination, int destinationIndex, int count) {
+            Arrays.fill(destination, destinationIndex, destinationIndex + count, storage[index]);
+        }
     }
 
     /// Creates a column backed by a Java array, similar to [ObjectArray], but
@@ -175,6 +799,103 @@ public interface ColumnType<S> {
         public void transfer(T[] storage, int index, T[] destination, int destinationIndex) {
             destination[destinationIndex] = storage[index];
         }
+
+        @Override
+        public void transferRange(T[] storage, int index, T[] destination, int destinationIndex, int count) {
+            System.arraycopy(storage, index, destination, destinationIndex, count);
+        }
+
+        @Override
+        public void removeRange(T[] storage, int from, int to) {
+            Arrays.fill(storage, from, to, null);
+        }
+
+        @Override
+        public void fillRange(T[] storage, int index, T[] destination, int destinationIndex, int count) {
+            Arrays.fill(destination, destinationIndex, destinationIndex + count, storage[index]);
+        }
+    }
+
+    /// Stores a fixed number of `float` lanes per row in one `float[]`, e.g.
+    /// `x, y` or `x, y, z` of a position, with lanes of a row next to each
+    /// other: lane `l` of row `r` is at `r * lanes + l`.
+    final class FloatVectorColumn implements ColumnType<float[]> {
+        public final int lanes;
+
+        public FloatVectorColumn(int lanes) {
+            if (lanes <= 0) {
+                throw new IllegalArgumentException("Number of lanes should be positive, got " + lanes);
+            }
+            this.lanes = lanes;
+        }
+
+        @Override
+        public float[] createStorage(int capacity) {
+            return new float[capacity * this.lanes];
+        }
+
+        @Override
+        public float[] growStorage(float[] current, int newCapacity) {
+            return Arrays.copyOf(current, newCapacity * this.lanes);
+        }
+
+        @Override
+        public void remove(float[] storage, int index) {
+            Arrays.fill(storage, index * this.lanes, (index + 1) * this.lanes, 0);
+        }
+
+        @Override
+        public void replace(float[] storage, int from, int to) {
+            System.arraycopy(storage, from * this.lanes, storage, to * this.lanes, this.lanes);
+            Arrays.fill(storage, from * this.lanes, (from + 1) * this.lanes, 0);
+        }
+
+        @Override
+        public void transfer(float[] storage, int index, float[] destination, int destinationIndex) {
+            System.arraycopy(storage, index * this.lanes, destination, destinationIndex * this.lanes, this.lanes);
+        }
+
+        @Override
+        public void transferRange(float[] storage, int index, float[] destination, int destinationIndex, int count) {
+            System.arraycopy(storage, index * this.lanes, destination, destinationIndex * this.lanes, count * this.lanes);
+        }
+
+        @Override
+        public void removeRange(float[] storage, int from, int to) {
+            Arrays.fill(storage, from * this.lanes, to * this.lanes, 0);
+        }
+
+        /// Copies the row once, then doubles the copied block until the
+        /// range is filled.
+        @Override
+        public void fillRange(float[] storage, int index, float[] destination, int destinationIndex, int count) {
+            if (count == 0) {
+                return;
+            }
+            int start = destinationIndex * this.lanes;
+            int length = count * this.lanes;
+            System.arraycopy(storage, index * this.lanes, destination, start, this.lanes);
+            for (int filled = this.lanes; filled < length; filled *= 2) {
+                System.arraycopy(destination, start, destination, start + filled, Math.min(filled, length - filled));
+            }
+        }
+
+        @Override
+        public long serializedSize(float[] storage, int start, int count) {
+            return (long) count * this.lanes * Float.BYTES;
+        }
+
+        @Override
+        public void write(float[] storage, int start, int count, ByteBuffer buffer) {
+            buffer.asFloatBuffer().put(storage, start * this.lanes, count * this.lanes);
+            buffer.position(buffer.position() + count * this.lanes * Float.BYTES);
+        }
+
+        @Override
+        public void read(float[] storage, int start, int count, ByteBuffer buffer) {
+            buffer.asFloatBuffer().get(storage, start * this.lanes, count * this.lanes);
+            buffer.position(buffer.position() + count * this.lanes * Float.BYTES);
+        }
     }
 
     enum BitSet implements ColumnType<long[]> {
@@ -198,12 +919,63 @@ public interface ColumnType<S> {
         @Override
         public void replace(long[] storage, int from, int to) {
             BitSets.set(storage, to, BitSets.contains(storage, from));
-            BitSets.remove(storage, to);
+            BitSets.remove(storage, from);
         }
 
         @Override
         public void transfer(long[] storage, int index, long[] destination, int destinationIndex) {
             BitSets.set(destination, destinationIndex, BitSets.contains(storage, index));
         }
+
+        @Override
+        public void fillRange(long[] storage, int index, long[] destination, int destinationIndex, int count) {
+            BitSets.set(destination, destinationIndex, destinationIndex + count, BitSets.contains(storage, index));
+        }
+
+        @Override
+        public long serializedSize(long[] storage, int start, int count) {
+            return (long) wordCount(count) * Long.BYTES;
+        }
+
+        @Override
+        public void write(long[] storage, int start, int count, ByteBuffer buffer) {
+            int words = wordCount(count);
+            if (start % Long.SIZE == 0) {
+                buffer.asLongBuffer().put(storage, start / Long.SIZE, words);
+                buffer.position(buffer.position() + words * Long.BYTES);
+                return;
+            }
+            for (int i = 0; i < words; i++) {
+                long word = 0;
+                int bits = Math.min(Long.SIZE, count - i * Long.SIZE);
+                for (int bit = 0; bit < bits; bit++) {
+                    if (BitSets.contains(storage, start + i * Long.SIZE + bit)) {
+                        word |= 1L << bit;
+                    }
+                }
+                buffer.putLong(word);
+            }
+        }
+
+        @Override
+        public void read(long[] storage, int start, int count, ByteBuffer buffer) {
+            int words = wordCount(count);
+            if (start % Long.SIZE == 0 && count % Long.SIZE == 0) {
+                buffer.asLongBuffer().get(storage, start / Long.SIZE, words);
+                buffer.position(buffer.position() + words * Long.BYTES);
+                return;
+            }
+            for (int i = 0; i < words; i++) {
+                long word = buffer.getLong();
+                int bits = Math.min(Long.SIZE, count - i * Long.SIZE);
+                for (int bit = 0; bit < bits; bit++) {
+                    BitSets.set(storage, start + i * Long.SIZE + bit, (word & (1L << bit)) != 0);
+                }
+            }
+        }
+
+        private static int wordCount(int bits) {
+            return (bits + Long.SIZE - 1) / Long.SIZE;
+        }
     }
 }
@@ -0,0 +1,26 @@
+package io.github.reoseah.ecs;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/// Marks a record as a component, for the annotation processor in the
+/// `processor` project to generate a [ColumnType] storing it as a
+/// structure of arrays, one array per record component.
+///
+/// For `record Velocity(float x, float y)` it generates `VelocityColumn` in
+/// the same package, with `VelocityColumn.Storage` holding `float[] x` and
+/// `float[] y`, typed accessors and setters for [World.EntityHelper]:
+///
+/// ```java
+/// int velocity = world.createComponent(VelocityColumn.INSTANCE);
+/// var entity = world.spawn(BitSets.of(velocity));
+/// VelocityColumn.set(entity, velocity, 1, 0);
+///```
+///
+/// Generic records are not supported.
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface Component {
+}
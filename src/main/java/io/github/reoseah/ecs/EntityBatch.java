@@ -0,0 +1,235 @@
+package io.github.reoseah.ecs;
+
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.ints.IntComparator;
+
+import java.util.Arrays;
+
+/// Random access to a list of entities, like targets or collision pairs,
+/// created with [World#createBatch].
+///
+/// [#resolve] looks up the locations of the entities and sorts them by
+/// archetype and row, then gather methods copy component values into dense
+/// arrays and scatter methods write them back. Both go archetype by
+/// archetype, reading each column mostly sequentially instead of jumping
+/// between archetypes for every entity. Arrays passed to gathers and
+/// scatters are parallel to the entities passed to [#resolve], with `lanes`
+/// values per entity for [ColumnType.FloatVectorColumn] components.
+///
+/// ```java
+/// var batch = world.createBatch();
+/// batch.resolve(targets);
+/// batch.gatherInt(health, values);
+/// for (int i = 0; i < targets.length; i++) {
+///     values[i] -= damage[i];
+///}
+/// batch.scatterInt(health, values);
+///```
+///
+/// Removed entities are skipped, leaving their values in the arrays as is.
+/// Locations stay valid until the next structural change, after which the
+/// batch has to be resolved again. Arrays are reused between calls, so a
+/// batch can be kept for the lifetime of a system, but is not thread-safe.
+public final class EntityBatch {
+    private final World world;
+
+    /// Location of each resolved entity, see [World#locate].
+    private long[] locations = new long[0];
+    /// Indices of live entities in the input, sorted by their locations.
+    private int[] order = new int[0];
+    private final IntComparator byLocation = (a, b) -> Long.compare(this.locations[a], this.locations[b]);
+    /// Number of live entities in [#order].
+    private int count;
+
+    /// Archetypes of the groups of consecutive entries in [#order].
+    private Archetype[] groupArchetypes = new Archetype[0];
+    /// Start of each group in [#order], with the end of the last one
+    /// appended.
+    private int[] groupStarts = new int[1];
+    private int groupCount;
+
+    EntityBatch(World world) {
+        this.world = world;
+    }
+
+    public void resolve(int[] entities) {
+        this.resolve(entities, entities.length);
+    }
+
+    /// Resolves the locations of the first `length` entities of the array.
+    public void resolve(int[] entities, int length) {
+        if (this.locations.length < length) {
+            this.locations = new long[length];
+            this.order = new int[length];
+        }
+        this.count = 0;
+        for (int i = 0; i < length; i++) {
+            long location = this.world.locate(entities[i]);
+            this.locations[i] = location;
+            if (location != -1) {
+                this.order[this.count++] = i;
+            }
+        }
+        IntArrays.quickSort(this.order, 0, this.count, this.byLocation);
+
+        this.groupCount = 0;
+        for (int i = 0; i < this.count; i++) {
+            var archetype = this.world.archetypeAt(this.locations[this.order[i]]);
+            if (this.groupCount == 0 || this.groupArchetypes[this.groupCount - 1] != archetype) {
+                if (this.groupCount == this.groupArchetypes.length) {
+                    this.groupArchetypes = Arrays.copyOf(this.groupArchetypes, Math.max(4, this.groupCount * 2));
+                    this.groupStarts = Arrays.copyOf(this.groupStarts, this.groupArchetypes.length + 1);
+                }
+                this.groupArchetypes[this.groupCount] = archetype;
+                this.groupStarts[this.groupCount] = i;
+                this.groupCount++;
+            }
+        }
+        this.groupStarts[this.groupCount] = this.count;
+    }
+
+    /// Returns the number of live entities resolved.
+    public int count() {
+        return this.count;
+    }
+
+    /// Returns the number of archetypes the entities are in.
+    public int archetypeCount() {
+        return this.groupCount;
+    }
+
+    private int row(int i) {
+        return (int) this.locations[this.order[i]];
+    }
+
+    /// Copies values of an [ColumnType.IntArray] component of the entities
+    /// to `destination`.
+    public void gatherInt(int component, int[] destination) {
+        for (int g = 0; g < this.groupCount; g++) {
+            var column = (int[]) this.groupArchetypes[g].getColumn(component);
+            for (int i = this.groupStarts[g], end = this.groupStarts[g + 1]; i < end; i++) {
+                destination[this.order[i]] = column[this.row(i)];
+            }
+        }
+    }
+
+    /// Writes values of an [ColumnType.IntArray] component of the entities
+    /// from `source`, marking them as changed and updating the [ValueIndex]
+    /// if there is one. If an entity is passed more than once, which of its
+    /// values ends up written is unspecified.
+    public void scatterInt(int component, int[] source) {
+        var index = this.world.getIndex(component);
+        for (int g = 0; g < this.groupCount; g++) {
+            var archetype = this.groupArchetypes[g];
+            var column = (int[]) archetype.getWritableColumn(component);
+            for (int i = this.groupStarts[g], end = this.groupStarts[g + 1]; i < end; i++) {
+                int row = this.row(i);
+                int value = source[this.order[i]];
+                column[row] = value;
+                archetype.markDirty(row);
+                if (index != null) {
+                    index.set(archetype.entities[row], value);
+                }
+            }
+        }
+    }
+
+    public void gatherLong(int component, long[] destination) {
+        for (int g = 0; g < this.groupCount; g++) {
+            var column = (long[]) this.groupArchetypes[g].getColumn(component);
+            for (int i = this.groupStarts[g], end = this.groupStarts[g + 1]; i < end; i++) {
+                destination[this.order[i]] = column[this.row(i)];
+            }
+        }
+    }
+
+    /// @see #scatterInt
+    public void scatterLong(int component, long[] source) {
+        var index = this.world.getIndex(component);
+        for (int g = 0; g < this.groupCount; g++) {
+            var archetype = this.groupArchetypes[g];
+            var column = (long[]) archetype.getWritableColumn(component);
+            for (int i = this.groupStarts[g], end = this.groupStarts[g + 1]; i < end; i++) {
+                int row = this.row(i);
+                long value = source[this.order[i]];
+                column[row] = value;
+                archetype.markDirty(row);
+                if (index != null) {
+                    index.set(archetype.entities[row], value);
+                }
+            }
+        }
+    }
+
+    public void gatherFloat(int component, float[] destination) {
+        for (int g = 0; g < this.groupCount; g++) {
+            var column = (float[]) this.groupArchetypes[g].getColumn(component);
+            for (int i = this.groupStarts[g], end = this.groupStarts[g + 1]; i < end; i++) {
+                destination[this.order[i]] = column[this.row(i)];
+            }
+        }
+    }
+
+    public void scatterFloat(int component, float[] source) {
+        for (int g = 0; g < this.groupCount; g++) {
+            var archetype = this.groupArchetypes[g];
+            var column = (float[]) archetype.getWritableColumn(component);
+            for (int i = this.groupStarts[g], end = this.groupStarts[g + 1]; i < end; i++) {
+                int row = this.row(i);
+                column[row] = source[this.order[i]];
+                archetype.markDirty(row);
+            }
+        }
+    }
+
+    public void gatherDouble(int component, double[] destination) {
+        for (int g = 0; g < this.groupCount; g++) {
+            var column = (double[]) this.groupArchetypes[g].getColumn(component);
+            for (int i = this.groupStarts[g], end = this.groupStarts[g + 1]; i < end; i++) {
+                destination[this.order[i]] = column[this.row(i)];
+            }
+        }
+    }
+
+    public void scatterDouble(int component, double[] source) {
+        for (int g = 0; g < this.groupCount; g++) {
+            var archetype = this.groupArchetypes[g];
+            var column = (double[]) archetype.getWritableColumn(component);
+            for (int i = this.groupStarts[g], end = this.groupStarts[g + 1]; i < end; i++) {
+                int row = this.row(i);
+                column[row] = source[this.order[i]];
+                archetype.markDirty(row);
+            }
+        }
+    }
+
+    /// Copies all lanes of a [ColumnType.FloatVectorColumn] component of the
+    /// entities to `destination`, `lanes` values per entity.
+    public void gatherVector(int component, float[] destination) {
+        int lanes = this.vectorLanes(component);
+        for (int g = 0; g < this.groupCount; g++) {
+            var column = (float[]) this.groupArchetypes[g].getColumn(component);
+            for (int i = this.groupStarts[g], end = this.groupStarts[g + 1]; i < end; i++) {
+                System.arraycopy(column, this.row(i) * lanes, destination, this.order[i] * lanes, lanes);
+            }
+        }
+    }
+
+    public void scatterVector(int component, float[] source) {
+        int lanes = this.vectorLanes(component);
+        for (int g = 0; g < this.groupCount; g++) {
+            var archetype = this.groupArchetypes[g];
+            var column = (float[]) archetype.getWritableColumn(component);
+            for (int i = this.groupStarts[g], end = this.groupStarts[g + 1]; i < end; i++) {
+                int row = this.row(i);
+                System.arraycopy(source, this.order[i] * lanes, column, row * lanes, lanes);
+                archetype.markDirty(row);
+            }
+        }
+    }
+
+    private int vectorLanes(int component) {
+        ColumnType<?> columnType = this.world.componentColumnType(component);
+        return ((ColumnType.FloatVectorColumn) columnType).lanes;
+    }
+}
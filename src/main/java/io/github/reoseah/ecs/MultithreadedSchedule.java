@@ -1,9 +1,11 @@
 package io.github.reoseah.ecs;
 
 import io.github.reoseah.ecs.bitmanipulation.BitSets;
+import io.github.reoseah.ecs.graphs.IncrementalTopologicalOrder;
 import io.github.reoseah.ecs.graphs.TarjanScc;
-import it.unimi.dsi.fastutil.ints.IntArrayList;
-import it.unimi.dsi.fastutil.ints.IntList;
+import io.github.reoseah.ecs.graphs.TransitiveReduction;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.ints.IntConsumer;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.Arrays;
@@ -23,32 +25,77 @@ public class MultithreadedSchedule extends Schedule {
     private final ReentrantLock lock = new ReentrantLock();
     private final Condition systemCompleted = lock.newCondition();
 
-    /// Array parallel to [Schedule#systems] where values contain the number of
-    /// dependencies a particular system has.
+    /// Topological order of [Schedule#systems], where dependencies come
+    /// before dependents.
     ///
-    /// This is rebuilt if [Schedule#systemsChanged] is true. At the beginning
-    /// of [#run], it's copied to [#remainingDependenciesCount].
-    private int[] dependenciesCount = new int[8];
+    /// This is updated incrementally if [Schedule#systemsChanged] is true.
+    private IncrementalTopologicalOrder order = new IncrementalTopologicalOrder();
 
-    /// Array parallel to [Schedule#systems] where values contain IDs of systems
-    /// that require that system to run first, may be `null` if there's none.
+    /// Transitive reduction of [Schedule#dependencies] with edges going from
+    /// systems to the systems that require them to run first.
     ///
-    /// This is rebuilt if [Schedule#systemsChanged] is true. When a system
-    /// completes, values in [#remainingDependenciesCount] of the systems
-    /// depending on it are decremented using this state.
-    private @Nullable IntList[] dependents = new IntList[8];
+    /// This is updated incrementally if [Schedule#systemsChanged] is true.
+    /// When a system completes, values in [#remainingDependenciesCount] of its
+    /// successors are decremented. Redundant edges are not stored, so only
+    /// systems that don't wait for anything else in between are signaled.
+    private TransitiveReduction dependencyGraph = new TransitiveReduction();
+
+    /// Array parallel to [Schedule#systems] with the number of entries in
+    /// [Schedule#dependencies] that were already added to [#order] and
+    /// [#dependencyGraph].
+    private int[] processedDependencies = new int[8];
 
     /// Array parallel to [Schedule#system] with numbers of dependencies
     /// remaining to run a system.
     ///
-    /// It's copied at the start of [#run] from [#dependenciesCount], and the
+    /// It's reset at the start of [#run] from [#dependencyGraph], and the
     /// values are decremented when a dependency system completes. When a value
     /// reaches zero, the corresponding system is added to [#readySystems].
     private int[] remainingDependenciesCount = new int[8];
 
+    /// Bitset of the systems marked in [Schedule#removedSystems] that were
+    /// already dropped from [#order], [#dependencyGraph] and
+    /// [Schedule#dependencies].
+    private long[] detachedSystems = new long[1];
+
     /// Bitset of component IDs that are used by the currently running systems.
     /// A system can be run if its "writes" set and this do not intersect.
     private long[] totalReadsAndWrites = new long[8];
+    /// Number of currently running systems using each component ID, a bit in
+    /// [#totalReadsAndWrites] is set while the value here is positive. This
+    /// allows to update the conflict state when a system starts or completes
+    /// without going through all running systems.
+    private int[] accessCounts = new int[8 * Long.SIZE];
+    /// Bitset of component IDs written by the currently running systems. A
+    /// system can be run if its "reads and writes" set and this do not
+    /// intersect either, so readers don't overlap with writers.
+    private long[] totalWrites = new long[8];
+    /// Number of currently running systems writing each component ID, like
+    /// [#accessCounts] for [#totalWrites].
+    private int[] writeCounts = new int[8 * Long.SIZE];
+    /// Callbacks for [BitSets#forEachSetBit] updating [#accessCounts] and
+    /// [#writeCounts], kept in fields so starting and completing systems
+    /// doesn't allocate them.
+    private final IntConsumer acquireComponent = component -> {
+        if (this.accessCounts[component]++ == 0) {
+            BitSets.add(this.totalReadsAndWrites, component);
+        }
+    };
+    private final IntConsumer releaseComponent = component -> {
+        if (--this.accessCounts[component] == 0) {
+            BitSets.remove(this.totalReadsAndWrites, component);
+        }
+    };
+    private final IntConsumer acquireWrite = component -> {
+        if (this.writeCounts[component]++ == 0) {
+            BitSets.add(this.totalWrites, component);
+        }
+    };
+    private final IntConsumer releaseWrite = component -> {
+        if (--this.writeCounts[component] == 0) {
+            BitSets.remove(this.totalWrites, component);
+        }
+    };
 
     /// Bitset with IDs of systems that are ready to be run.
     private long[] readySystems = new long[8];
@@ -56,6 +103,60 @@ public class MultithreadedSchedule extends Schedule {
     private long[] runningSystems = new long[8];
     /// Bitset with IDs of systems that have finished.
     private long[] completedSystems = new long[8];
+    /// Bitset with IDs of ready systems whose run condition returned `false`
+    /// on the current run. Conditions are evaluated once, when a system
+    /// becomes ready, so a system waiting for a conflicting one doesn't
+    /// evaluate it again on every scheduling pass.
+    private long[] conditionFailedSystems = new long[8];
+
+    /// Array parallel to [Schedule#systems] with exponential moving average
+    /// of the execution time of each system in nanoseconds, zero if a system
+    /// didn't run yet.
+    private long[] averageCost = new long[8];
+    /// Array parallel to [Schedule#systems] with values of [#averageCost]
+    /// that were used to compute [#upwardRank] last time, used to detect
+    /// when the priorities drifted away from the measurements.
+    private long[] rankedCost = new long[8];
+    /// Array parallel to [Schedule#systems] with the "upward rank" of each
+    /// system, i.e. the cost of the longest path from it to the end of the
+    /// schedule through its dependents, like in HEFT list scheduling.
+    private long[] upwardRank = new long[8];
+    /// System IDs sorted by decreasing [#upwardRank], systems on the critical
+    /// path are started first when multiple systems are ready.
+    private int[] priorityOrder = new int[8];
+
+    /// Weight of a new measurement in [#averageCost] as a power of two, e.g.
+    /// `3` means each new sample contributes `1/8` of the average.
+    private static final int COST_SMOOTHING_SHIFT = 3;
+    /// Relative change of a system cost as a power of two after which
+    /// priorities are recomputed, e.g. `2` means by a quarter.
+    private static final int COST_DRIFT_SHIFT = 2;
+
+    /// Array parallel to [Schedule#systems] with the system that is run right
+    /// after this one in the same task, or `-1`. Chains of cheap systems,
+    /// each waiting only for the previous one, are fused this way to avoid
+    /// paying for task submission and locking per system.
+    ///
+    /// This is rebuilt together with [#priorityOrder].
+    private int[] fusedNext = new int[8];
+    /// Bitset with IDs of systems that are run by the task of the previous
+    /// system in their chain, see [#fusedNext].
+    private long[] fusedSystems = new long[1];
+    /// Arrays parallel to [Schedule#systems] with components written and
+    /// accessed by the task starting with that system, i.e. union over the
+    /// rest of its chain. Held for the whole task, so fusion never allows
+    /// conflicting systems to overlap.
+    private long[][] taskWrites = new long[8][];
+    private long[][] taskReadsAndWrites = new long[8][];
+    /// Array parallel to [Schedule#systems] with the execution time of each
+    /// system in the current task, written by the worker and read under
+    /// [#lock] when the task completes, or `-1` if the system was skipped.
+    private long[] lastElapsed = new long[8];
+
+    /// Systems with [#averageCost] above this, in nanoseconds, are not fused.
+    private static final long FUSION_COST_THRESHOLD = 50_000;
+    /// Chains are not extended above this total cost, in nanoseconds.
+    private static final long MAX_FUSED_TASK_COST = 200_000;
 
     public MultithreadedSchedule(World world, ExecutorService threadPool) {
         super(world);
@@ -69,17 +170,26 @@ public class MultithreadedSchedule extends Schedule {
             if (this.systemsChanged) {
                 this.processDependencyGraph();
                 this.resizePerRunState();
+                this.computePriorities();
+                this.fuseSystems();
                 this.systemsChanged = false;
             }
 
             this.resetPerRunState();
 
             while (BitSets.count(this.completedSystems) < this.systems.size()) {
-                var systemsRemain = tryScheduleSystems();
-                if (systemsRemain) {
+                var shouldWait = tryScheduleSystems();
+                if (shouldWait) {
                     this.systemCompleted.await();
                 }
             }
+
+            this.tick++;
+
+            if (this.costsDrifted()) {
+                this.computePriorities();
+                this.fuseSystems();
+            }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         } finally {
@@ -87,52 +197,97 @@ public class MultithreadedSchedule extends Schedule {
         }
     }
 
+    /// Adds systems and dependencies registered since the last call to
+    /// [#order] and [#dependencyGraph] without revisiting the rest of the graph.
     private void processDependencyGraph() {
-        if (this.dependenciesCount.length < this.systems.size()) {
-            int newLength = this.dependenciesCount.length * 2;
-            while (newLength < this.systems.size()) {
-                newLength *= 2;
-            }
-            this.dependenciesCount = new int[newLength];
-            this.dependents = new IntList[newLength];
-        } else {
-            Arrays.fill(this.dependenciesCount, 0);
-            for (var dependent : this.dependents) {
-                if (dependent != null) {
-                    dependent.clear();
-                }
-            }
-        }
-
-        var sccList = TarjanScc.getStronglyConnectedComponents(this.systems.size(), Arrays.asList(this.dependencies));
-
-        checkForCycles(sccList);
-
-        for (var scc : sccList) {
-            int system = scc[0];
+        int size = this.systems.size();
+        for (int system = this.order.size(); system < size; system++) {
+            this.order.addNode();
+            this.dependencyGraph.addNode();
 
             var systemState = this.systems.get(system);
             if (systemState.readsAndWrites != null && systemState.readsAndWrites.length > this.totalReadsAndWrites.length) {
                 this.totalReadsAndWrites = new long[systemState.readsAndWrites.length];
+                this.accessCounts = new int[systemState.readsAndWrites.length * Long.SIZE];
+                this.totalWrites = new long[systemState.readsAndWrites.length];
+                this.writeCounts = new int[systemState.readsAndWrites.length * Long.SIZE];
             }
+        }
+        if (this.processedDependencies.length < size) {
+            this.processedDependencies = Arrays.copyOf(this.processedDependencies, Math.max(size, this.processedDependencies.length * 2));
+        }
+
+        for (int system = BitSets.nextSetBit(this.removedSystems, 0); system != -1 && system < size; system = BitSets.nextSetBit(this.removedSystems, system + 1)) {
+            if (system >= this.detachedSystems.length * Long.SIZE || !BitSets.contains(this.detachedSystems, system)) {
+                this.detachSystem(system);
+            }
+        }
 
+        for (int system = 0; system < Math.min(size, this.dependencies.length); system++) {
             var dependencies = this.dependencies[system];
             if (dependencies == null) {
                 continue;
             }
-            for (int i = 0; i < dependencies.size(); i++) {
-                var dependency = dependencies.getInt(i);
-
-                this.dependenciesCount[system]++;
+            int i = this.processedDependencies[system];
+            for (; i < dependencies.size(); i++) {
+                int dependency = dependencies.getInt(i);
+                if (dependency >= size) {
+                    // not registered yet, the edge will be added with it
+                    break;
+                }
+                if (this.isRemoved(dependency)) {
+                    // added after the removal, ordering through it is dropped
+                    dependencies.removeInt(i--);
+                    continue;
+                }
+                if (!this.order.addEdge(dependency, system)) {
+                    this.reportCycles();
+                }
+                this.dependencyGraph.addEdge(dependency, system);
+            }
+            this.processedDependencies[system] = i;
+        }
+    }
 
-                var dependentEntry = this.dependents[dependency];
-                if (dependentEntry == null) {
-                    dependentEntry = new IntArrayList();
-                    this.dependents[dependency] = dependentEntry;
+    /// Drops a removed system from [Schedule#dependencies] and from the derived
+    /// graphs. Dependency lists of all systems are scanned for it, while the
+    /// graphs only visit the systems connected to it.
+    private void detachSystem(int system) {
+        if (system < this.dependencies.length) {
+            this.dependencies[system] = null;
+        }
+        this.processedDependencies[system] = 0;
+        for (int other = 0; other < Math.min(this.systems.size(), this.dependencies.length); other++) {
+            var dependencies = this.dependencies[other];
+            if (dependencies == null) {
+                continue;
+            }
+            for (int i = dependencies.size() - 1; i >= 0; i--) {
+                if (dependencies.getInt(i) == system) {
+                    dependencies.removeInt(i);
+                    if (i < this.processedDependencies[other]) {
+                        this.processedDependencies[other]--;
+                    }
                 }
-                dependentEntry.add(system);
             }
         }
+
+        this.order.removeEdges(system);
+        this.dependencyGraph.removeNode(system);
+        this.detachedSystems = BitSets.growAndAdd(this.detachedSystems, system);
+    }
+
+    /// Throws an exception listing dependency cycles. The derived state is
+    /// discarded, so it's built from scratch on the next run.
+    private void reportCycles() {
+        this.order = new IncrementalTopologicalOrder();
+        this.dependencyGraph = new TransitiveReduction();
+        Arrays.fill(this.processedDependencies, 0);
+        Arrays.fill(this.detachedSystems, 0);
+
+        var sccList = TarjanScc.getStronglyConnectedComponents(this.systems.size(), Arrays.asList(this.dependencies));
+        checkForCycles(sccList);
+        throw new IllegalStateException("Found dependency cycle between systems.");
     }
 
     private void resizePerRunState() {
@@ -141,93 +296,329 @@ public class MultithreadedSchedule extends Schedule {
             this.readySystems = new long[requiredLength];
             this.runningSystems = new long[requiredLength];
             this.completedSystems = new long[requiredLength];
+            this.conditionFailedSystems = new long[requiredLength];
+        }
+
+        if (this.remainingDependenciesCount.length < this.systems.size()) {
+            int newLength = this.remainingDependenciesCount.length * 2;
+            while (newLength < this.systems.size()) {
+                newLength *= 2;
+            }
+            this.remainingDependenciesCount = new int[newLength];
+            this.averageCost = Arrays.copyOf(this.averageCost, newLength);
+            this.rankedCost = new long[newLength];
+            this.upwardRank = new long[newLength];
+            this.priorityOrder = new int[newLength];
+            this.fusedNext = new int[newLength];
+            this.taskWrites = new long[newLength][];
+            this.taskReadsAndWrites = new long[newLength][];
+            this.lastElapsed = new long[newLength];
+        }
+        if (BitSets.getRequiredLength(this.systems.size()) > this.fusedSystems.length) {
+            this.fusedSystems = new long[BitSets.getRequiredLength(this.systems.size())];
+        }
+    }
+
+    /// Recomputes [#upwardRank] from [#averageCost] and sorts [#priorityOrder]
+    /// by it. Systems that haven't been measured yet keep registration order.
+    private void computePriorities() {
+        int size = this.systems.size();
+
+        // dependents come later in topological order, so going backwards
+        // their ranks are known when a system is processed
+        for (int i = size - 1; i >= 0; i--) {
+            int system = this.order.nodeAt(i);
+
+            long longestDependent = 0;
+            var dependents = this.dependencyGraph.successors(system);
+            for (int j = 0; j < dependents.size(); j++) {
+                longestDependent = Math.max(longestDependent, this.upwardRank[dependents.getInt(j)]);
+            }
+            this.upwardRank[system] = this.averageCost[system] + longestDependent;
+            this.rankedCost[system] = this.averageCost[system];
         }
 
-        if (this.remainingDependenciesCount.length < this.dependenciesCount.length) {
-            this.remainingDependenciesCount = new int[this.dependenciesCount.length];
+        for (int i = 0; i < size; i++) {
+            this.priorityOrder[i] = i;
         }
+        // stable sort, so systems with equal rank are started in order of their IDs
+        IntArrays.mergeSort(this.priorityOrder, 0, size, (a, b) -> Long.compare(this.upwardRank[b], this.upwardRank[a]));
+    }
+
+    /// Rebuilds [#fusedNext] from the measured costs. Going in topological
+    /// order, a chain is extended from a cheap system to its only dependent
+    /// as long as that dependent waits for nothing else, is cheap, has no
+    /// run condition and works on the same archetypes.
+    private void fuseSystems() {
+        int size = this.systems.size();
+        Arrays.fill(this.fusedNext, 0, size, -1);
+        Arrays.fill(this.fusedSystems, 0);
+        for (int system = 0; system < size; system++) {
+            var systemState = this.systems.get(system);
+            this.taskWrites[system] = systemState.writes;
+            this.taskReadsAndWrites[system] = systemState.readsAndWrites;
+        }
+
+        for (int i = 0; i < size; i++) {
+            int head = this.order.nodeAt(i);
+            if (BitSets.contains(this.fusedSystems, head) || !this.isCheap(head)) {
+                continue;
+            }
+
+            long chainCost = this.averageCost[head];
+            long[] writes = this.taskWrites[head];
+            long[] readsAndWrites = this.taskReadsAndWrites[head];
+            int last = head;
+            while (true) {
+                var dependents = this.dependencyGraph.successors(last);
+                if (dependents.size() != 1) {
+                    break;
+                }
+                int next = dependents.getInt(0);
+                var nextState = this.systems.get(next);
+                if (this.dependencyGraph.predecessorCount(next) != 1
+                        || nextState.condition != null
+                        || !this.isCheap(next)
+                        || chainCost + this.averageCost[next] > MAX_FUSED_TASK_COST
+                        || !sharesArchetypes(this.systems.get(last), nextState)) {
+                    break;
+                }
+                this.fusedNext[last] = next;
+                BitSets.add(this.fusedSystems, next);
+                chainCost += this.averageCost[next];
+                writes = union(writes, nextState.writes);
+                readsAndWrites = union(readsAndWrites, nextState.readsAndWrites);
+                last = next;
+            }
+
+            // every system of the chain can start a task if the previous
+            // ones were skipped, so they all get the conservative masks
+            for (int system = head; system != -1; system = this.fusedNext[system]) {
+                this.taskWrites[system] = writes;
+                this.taskReadsAndWrites[system] = readsAndWrites;
+            }
+        }
+    }
+
+    private boolean isCheap(int system) {
+        long cost = this.averageCost[system];
+        return cost > 0 && cost <= FUSION_COST_THRESHOLD;
+    }
+
+    private static boolean sharesArchetypes(ScheduleSystem a, ScheduleSystem b) {
+        if (a.archetypes == b.archetypes) {
+            return true;
+        }
+        for (int i = 0; i < a.archetypes.size(); i++) {
+            var archetype = a.archetypes.get(i);
+            for (int j = 0; j < b.archetypes.size(); j++) {
+                if (b.archetypes.get(j) == archetype) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static long @Nullable [] union(long @Nullable [] left, long @Nullable [] right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        return BitSets.union(left, right);
+    }
+
+    /// Returns the next system run in the same task after this one, or `-1`.
+    int fusedNext(int system) {
+        return this.fusedNext[system];
+    }
+
+    /// Returns whether any system's [#averageCost] moved away from the value
+    /// used in the last [#computePriorities] far enough to recompute them.
+    private boolean costsDrifted() {
+        for (int i = 0; i < this.systems.size(); i++) {
+            long ranked = this.rankedCost[i];
+            if (Math.abs(this.averageCost[i] - ranked) > (ranked >> COST_DRIFT_SHIFT)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void recordCost(int system, long nanos) {
+        long average = this.averageCost[system];
+        if (average == 0) {
+            this.averageCost[system] = Math.max(nanos, 1);
+        } else {
+            this.averageCost[system] = average + ((nanos - average) >> COST_SMOOTHING_SHIFT);
+        }
+    }
+
+    /// Returns the exponential moving average of the system's execution time
+    /// in nanoseconds, or zero if it didn't run yet.
+    long averageCost(int system) {
+        return this.averageCost[system];
     }
 
     private void resetPerRunState() {
         Arrays.fill(this.readySystems, 0);
         Arrays.fill(this.runningSystems, 0);
         Arrays.fill(this.completedSystems, 0);
-        System.arraycopy(this.dependenciesCount, 0, this.remainingDependenciesCount, 0, this.dependenciesCount.length);
-
+        Arrays.fill(this.conditionFailedSystems, 0);
         for (int i = 0; i < this.systems.size(); i++) {
+            this.remainingDependenciesCount[i] = this.dependencyGraph.predecessorCount(i);
             if (this.remainingDependenciesCount[i] == 0) {
-                BitSets.add(this.readySystems, i);
+                this.markReady(i);
             }
         }
     }
 
+    /// Starts systems that are ready and don't conflict with the running ones.
+    /// Returns whether the caller should wait for a running system to
+    /// complete before trying again.
     private boolean tryScheduleSystems() {
         boolean systemsRemain = false;
-        for (var system = BitSets.nextSetBit(this.readySystems, 0); system != -1; system = BitSets.nextSetBit(this.readySystems, system + 1)) {
+        boolean completedInline = false;
+        for (int i = 0; i < this.systems.size(); i++) {
+            int system = this.priorityOrder[i];
+            if (!BitSets.contains(this.readySystems, system)) {
+                continue;
+            }
             if (BitSets.contains(this.completedSystems, system) ||
                     BitSets.contains(this.runningSystems, system)) {
                 systemsRemain = true;
                 continue;
             }
 
-            var systemState = this.systems.get(system);
+            if (this.isSkipped(system) || BitSets.contains(this.conditionFailedSystems, system)) {
+                // no need to submit a task, but dependents that become ready
+                // might have been passed already, so the caller should retry
+                this.markCompleted(system);
+                completedInline = true;
+                continue;
+            }
 
-            this.rebuildComponentReadsAndWrites();
-            if (!this.canRun(systemState)) {
+            if (!this.canRun(system)) {
                 systemsRemain = true;
                 continue;
             }
 
             BitSets.add(this.runningSystems, system);
-            this.threadPool.submit(() -> {
-                // TODO: possibly implement Runnable on SystemState, pass it instead of
-                //    creating these small arrow functions?
+            this.acquireComponents(this.taskReadsAndWrites[system], this.taskWrites[system]);
+            this.threadPool.submit(() -> this.runTask(system));
+        }
+        return systemsRemain && !completedInline;
+    }
+
+    /// Runs the system and the rest of its fused chain, then marks them
+    /// completed with a single lock acquisition. The chain is marked
+    /// completed even if a system throws an [Error], so [#run] doesn't wait
+    /// for it forever.
+    private void runTask(int first) {
+        // TODO: possibly implement Runnable on SystemState, pass it instead of
+        //    creating these small arrow functions?
+        for (int system = first; system != -1; system = this.fusedNext[system]) {
+            this.lastElapsed[system] = -1;
+        }
+        try {
+            for (int system = first; system != -1; system = this.fusedNext[system]) {
+                var systemState = this.systems.get(system);
+                if (system != first && this.isSkipped(system)) {
+                    continue;
+                }
+
+                long start = System.nanoTime();
                 try {
+                    if (systemState.writes != null) {
+                        for (int i = 0; i < systemState.archetypes.size(); i++) {
+                            systemState.archetypes.get(i).prepareWrites(systemState.writes);
+                        }
+                    }
                     systemState.runnable.run(systemState.archetypes, this.world);
                 } catch (Exception e) {
                     LOGGER.log(Level.SEVERE, "Exception while running system " + systemState.id + " (" + systemState.runnable + ")" + ": ", e);
                 } finally {
-                    this.lock.lock();
-                    try {
-                        BitSets.add(this.completedSystems, systemState.id);
-                        BitSets.remove(this.runningSystems, systemState.id);
-                        var dependents = this.dependents[systemState.id];
-                        if (dependents != null) {
-                            for (var dependent : dependents) {
-                                this.remainingDependenciesCount[dependent]--;
-                                if (this.remainingDependenciesCount[dependent] == 0) {
-                                    BitSets.add(this.readySystems, dependent);
-                                }
-                            }
-                        }
-
-                        this.systemCompleted.signalAll();
-                    } catch (Exception e) {
-                        LOGGER.log(Level.SEVERE, "Exception while signaling completion of system " + systemState.id + " (" + systemState.runnable + ")" + ": ", e);
-                    } finally {
-                        this.lock.unlock();
+                    this.lastElapsed[system] = System.nanoTime() - start;
+                }
+            }
+        } finally {
+            this.lock.lock();
+            try {
+                for (int system = first; system != -1; system = this.fusedNext[system]) {
+                    if (this.lastElapsed[system] >= 0) {
+                        this.recordCost(system, this.lastElapsed[system]);
                     }
+                    this.markCompleted(system);
                 }
-            });
+                this.releaseComponents(this.taskReadsAndWrites[first], this.taskWrites[first]);
+
+                this.systemCompleted.signalAll();
+            } catch (Exception e) {
+                LOGGER.log(Level.SEVERE, "Exception while signaling completion of system " + first + ": ", e);
+            } finally {
+                this.lock.unlock();
+            }
         }
-        return systemsRemain;
     }
 
-    private void rebuildComponentReadsAndWrites() {
-        Arrays.fill(this.totalReadsAndWrites, 0);
-
-        for (int i = BitSets.nextSetBit(this.runningSystems, 0); i != -1; i = BitSets.nextSetBit(this.runningSystems, i + 1)) {
-            var systemState = this.systems.get(i);
-            if (systemState.readsAndWrites != null) {
-                for (var i2 = 0; i2 < systemState.readsAndWrites.length; i2++) {
-                    this.totalReadsAndWrites[i2] |= systemState.readsAndWrites[i2];
-                }
+    /// Marks the system as completed and its dependents as ready if they
+    /// don't wait for anything else. Should be called while holding [#lock].
+    private void markCompleted(int system) {
+        BitSets.add(this.completedSystems, system);
+        BitSets.remove(this.runningSystems, system);
+        var dependents = this.dependencyGraph.successors(system);
+        for (int i = 0; i < dependents.size(); i++) {
+            int dependent = dependents.getInt(i);
+            this.remainingDependenciesCount[dependent]--;
+            if (this.remainingDependenciesCount[dependent] == 0) {
+                this.markReady(dependent);
             }
         }
     }
 
-    private boolean canRun(ScheduleSystem system) {
-        // assumes that this.readsAndWrites is up to date, i.e., this.rebuildComponentReadsAndWrites was called and no changes happened since
-        return BitSets.isDisjoint(system.writes, this.totalReadsAndWrites);
+    /// Marks the system as ready and evaluates its run condition. Should be
+    /// called while holding [#lock].
+    private void markReady(int system) {
+        BitSets.add(this.readySystems, system);
+        if (!this.isSkipped(system) && !this.shouldRun(this.systems.get(system))) {
+            BitSets.add(this.conditionFailedSystems, system);
+        }
+    }
+
+    private void acquireComponents(long @Nullable [] readsAndWrites, long @Nullable [] writes) {
+        if (readsAndWrites != null) {
+            BitSets.forEachSetBit(readsAndWrites, this.acquireComponent);
+        }
+        if (writes != null) {
+            BitSets.forEachSetBit(writes, this.acquireWrite);
+        }
+    }
+
+    private void releaseComponents(long @Nullable [] readsAndWrites, long @Nullable [] writes) {
+        if (readsAndWrites != null) {
+            BitSets.forEachSetBit(readsAndWrites, this.releaseComponent);
+        }
+        if (writes != null) {
+            BitSets.forEachSetBit(writes, this.releaseWrite);
+        }
+    }
+
+    private boolean shouldRun(ScheduleSystem system) {
+        if (system.condition == null) {
+            return true;
+        }
+        try {
+            return system.condition.test(this.world, this.tick);
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Exception while evaluating run condition of system " + system.id + " (" + system.runnable + ")" + ": ", e);
+            return false;
+        }
+    }
+
+    private boolean canRun(int system) {
+        return BitSets.isDisjoint(this.taskWrites[system], this.totalReadsAndWrites)
+                && BitSets.isDisjoint(this.taskReadsAndWrites[system], this.totalWrites);
     }
 }
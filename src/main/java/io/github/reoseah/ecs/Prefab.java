@@ -0,0 +1,134 @@
+package io.github.reoseah.ecs;
+
+import io.github.reoseah.ecs.bitmanipulation.BitSets;
+
+/// Template of an entity - a component mask with initial values - created
+/// with [World#createPrefab] and spawned in bulk with [World#instantiate].
+///
+/// Values are stored in single-row columns of each component's
+/// [ColumnType], so spawning copies them with [ColumnType#fillRange], i.e.
+/// one [java.util.Arrays#fill] per column rather than a write per entity.
+///
+/// ```java
+/// var goblin = world.createPrefab(BitSets.of(health, position))
+///         .setInt(health, 10)
+///         .setVector(position, 0, 0);
+/// int[] wave = world.instantiate(goblin, 1000);
+///```
+@SuppressWarnings("unchecked")
+public final class Prefab {
+    final long[] componentMask;
+    /// Components of the prefab, including cold ones, parallel to
+    /// [#columns].
+    final int[] components;
+    @SuppressWarnings("rawtypes")
+    final ColumnType[] columnTypes;
+    final Object[] columns;
+
+    @SuppressWarnings("rawtypes")
+    Prefab(World world, long[] componentMask) {
+        this.componentMask = componentMask;
+        int count = BitSets.count(componentMask);
+        this.components = new int[count];
+        this.columnTypes = new ColumnType[count];
+        this.columns = new Object[count];
+        int i = 0;
+        for (int component = BitSets.nextSetBit(componentMask, 0); component != -1; component = BitSets.nextSetBit(componentMask, component + 1)) {
+            if (component >= world.componentsAndResources.size() || !world.isComponent(component)) {
+                throw new IllegalArgumentException("Prefab uses " + component + " which is not a component");
+            }
+            this.components[i] = component;
+            this.columnTypes[i] = world.componentColumnType(component);
+            this.columns[i] = this.columnTypes[i].createStorage(1);
+            i++;
+        }
+    }
+
+    public long[] componentMask() {
+        return this.componentMask;
+    }
+
+    /// Returns the single-row storage of the component, for column types
+    /// without a setter here.
+    public <S> S column(int component) {
+        return (S) this.columns[this.indexOf(component)];
+    }
+
+    private int indexOf(int component) {
+        for (int i = 0; i < this.components.length; i++) {
+            if (this.components[i] == component) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Component " + component + " is not present in this prefab.");
+    }
+
+    public Prefab setInt(int component, int value) {
+        this.<int[]>column(component)[0] = value;
+        return this;
+    }
+
+    public Prefab setLong(int component, long value) {
+        this.<long[]>column(component)[0] = value;
+        return this;
+    }
+
+    public Prefab setByte(int component, byte value) {
+        this.<byte[]>column(component)[0] = value;
+        return this;
+    }
+
+    public Prefab setShort(int component, short value) {
+        this.<short[]>column(component)[0] = value;
+        return this;
+    }
+
+    public Prefab setChar(int component, char value) {
+        this.<char[]>column(component)[0] = value;
+        return this;
+    }
+
+    public Prefab setFloat(int component, float value) {
+        this.<float[]>column(component)[0] = value;
+        return this;
+    }
+
+    public Prefab setDouble(int component, double value) {
+        this.<double[]>column(component)[0] = value;
+        return this;
+    }
+
+    /// Sets the value of an [ColumnType.HalfFloatArray] component, rounded to
+    /// the nearest half-precision value.
+    public Prefab setHalf(int component, float value) {
+        ColumnType.HalfFloatArray.set(this.<short[]>column(component), 0, value);
+        return this;
+    }
+
+    /// Sets the value of an [ColumnType.FixedPointColumn] component,
+    /// converted with [ColumnType.FixedPointColumn#fromDouble].
+    public Prefab setFixed(int component, double value) {
+        int i = this.indexOf(component);
+        var type = (ColumnType.FixedPointColumn) this.columnTypes[i];
+        ((int[]) this.columns[i])[0] = type.fromDouble(value);
+        return this;
+    }
+
+    public <T> Prefab setObject(int component, T value) {
+        this.<T[]>column(component)[0] = value;
+        return this;
+    }
+
+    public Prefab setBit(int component, boolean value) {
+        BitSets.set(this.<long[]>column(component), 0, value);
+        return this;
+    }
+
+    /// Sets lanes of a [ColumnType.FloatVectorColumn] component, starting
+    /// from the first one.
+    public Prefab setVector(int component, float... lanes) {
+        float[] column = this.column(component);
+        System.arraycopy(lanes, 0, column, 0, lanes.length);
+        return this;
+    }
+}
@@ -0,0 +1,132 @@
+package io.github.reoseah.ecs;
+
+import io.github.reoseah.ecs.bitmanipulation.BitSets;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/// Typed view of the archetypes matching a set of components, created with
+/// [World#query]. See [Query1], [Query2] and [Query3].
+///
+/// For each matched archetype, the query remembers where the columns of its
+/// components are in [Archetype#columns], so iterating doesn't search for
+/// them. Only the positions are cached rather than the arrays themselves,
+/// since the arrays are replaced when an archetype grows. The cache is
+/// extended when new matching archetypes are created.
+///
+/// Columns are passed to consumers as they are, like [Archetype#getColumn].
+/// Systems writing to them outside a schedule are responsible for
+/// [Archetype#getWritableColumn] and [Archetype#markDirty] as usual.
+///
+/// A query is not thread-safe, each system should use its own.
+public abstract class Query {
+    final List<Archetype> archetypes;
+    final int[] components;
+    /// Indices of the columns in each matched archetype, archetype by
+    /// archetype, `components.length` per archetype.
+    int[] columnIndices = new int[0];
+    /// Number of archetypes in [#archetypes] with cached column indices.
+    int cachedArchetypes;
+
+    Query(World world, int... components) {
+        this.components = components;
+        this.archetypes = world.getQueryArchetypes(BitSets.of(components));
+    }
+
+    /// Returns the number of archetypes matching the query.
+    public int archetypeCount() {
+        return this.archetypes.size();
+    }
+
+    /// Returns the number of entities matching the query.
+    public int entityCount() {
+        int count = 0;
+        for (int i = 0; i < this.archetypes.size(); i++) {
+            count += this.archetypes.get(i).entityCount();
+        }
+        return count;
+    }
+
+    /// Returns a spliterator over IDs of the entities matching the query, see
+    /// [#entities].
+    public Spliterator.OfInt spliterator() {
+        var archetypes = this.nonEmptyArchetypes();
+        int[] offsets = offsets(archetypes);
+        return new QuerySpliterator.Entities(archetypes, offsets, 0, offsets[archetypes.length], 0);
+    }
+
+    /// Returns a spliterator over locations of the entities matching the
+    /// query, see [#locations].
+    public Spliterator.OfLong locationSpliterator() {
+        var archetypes = this.nonEmptyArchetypes();
+        int[] offsets = offsets(archetypes);
+        return new QuerySpliterator.Locations(archetypes, offsets, 0, offsets[archetypes.length], 0);
+    }
+
+    private Archetype[] nonEmptyArchetypes() {
+        var archetypes = new ArrayList<Archetype>(this.archetypes.size());
+        for (int i = 0; i < this.archetypes.size(); i++) {
+            if (this.archetypes.get(i).entityCount() != 0) {
+                archetypes.add(this.archetypes.get(i));
+            }
+        }
+        return archetypes.toArray(new Archetype[0]);
+    }
+
+    private static int[] offsets(Archetype[] archetypes) {
+        int[] offsets = new int[archetypes.length + 1];
+        for (int i = 0; i < archetypes.length; i++) {
+            offsets[i + 1] = offsets[i] + archetypes[i].entityCount();
+        }
+        return offsets;
+    }
+
+    /// Returns a stream of IDs of the entities matching the query, in the
+    /// order of archetypes and rows. A parallel stream is split across
+    /// archetypes first and then by row ranges within large ones, see
+    /// [QuerySpliterator].
+    ///
+    /// To read or write columns of the entities, use [#locations] instead,
+    /// which doesn't need to look each entity up.
+    ///
+    /// Entities are not supposed to be spawned, removed or moved between
+    /// archetypes until the stream is consumed.
+    public IntStream entities() {
+        return StreamSupport.intStream(this.spliterator(), false);
+    }
+
+    /// Returns a stream of locations of the entities matching the query,
+    /// i.e. archetype ID and row packed like in [World#locate], in the same
+    /// order and with the same splitting as [#entities].
+    ///
+    /// ```java
+    /// long total = world.query(gold).locations().parallel()
+    ///         .map(location -> world.archetypeAt(location).getLong(gold, (int) location))
+    ///         .sum();
+    ///```
+    public LongStream locations() {
+        return StreamSupport.longStream(this.locationSpliterator(), false);
+    }
+
+    /// Caches column indices of archetypes created since the last call.
+    final void refresh() {
+        int count = this.archetypes.size();
+        if (count == this.cachedArchetypes) {
+            return;
+        }
+        int stride = this.components.length;
+        this.columnIndices = Arrays.copyOf(this.columnIndices, count * stride);
+        for (int i = this.cachedArchetypes; i < count; i++) {
+            var archetype = this.archetypes.get(i);
+            for (int j = 0; j < stride; j++) {
+                this.columnIndices[i * stride + j] = archetype.columnIndex(this.components[j]);
+            }
+        }
+        this.cachedArchetypes = count;
+    }
+}
@@ -0,0 +1,54 @@
+package io.github.reoseah.ecs;
+
+/// Query over a single component, with column storage of type `A`.
+///
+/// ```java
+/// var ages = world.<int[]>query(age);
+/// ages.forEachArchetype((column, count, archetype) -> {
+///     for (int row = 0; row < count; row++) {
+///         column[row]++;
+///     }
+///});
+///```
+@SuppressWarnings("unchecked")
+public final class Query1<A> extends Query {
+    Query1(World world, int component) {
+        super(world, component);
+    }
+
+    /// Calls the consumer with the column of every matched archetype that
+    /// has entities.
+    public void forEachArchetype(ColumnsConsumer<A> consumer) {
+        this.refresh();
+        for (int i = 0; i < this.cachedArchetypes; i++) {
+            var archetype = this.archetypes.get(i);
+            int count = archetype.entityCount();
+            if (count != 0) {
+                consumer.accept((A) archetype.columns[this.columnIndices[i]], count, archetype);
+            }
+        }
+    }
+
+    /// Calls the consumer for every row of every matched archetype.
+    public void forEachRow(RowConsumer<A> consumer) {
+        this.refresh();
+        for (int i = 0; i < this.cachedArchetypes; i++) {
+            var archetype = this.archetypes.get(i);
+            var a = (A) archetype.columns[this.columnIndices[i]];
+            int[] entities = archetype.entities;
+            for (int row = 0, count = archetype.entityCount(); row < count; row++) {
+                consumer.accept(entities[row], a, row);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface ColumnsConsumer<A> {
+        void accept(A a, int count, Archetype archetype);
+    }
+
+    @FunctionalInterface
+    public interface RowConsumer<A> {
+        void accept(int entity, A a, int row);
+    }
+}
@@ -0,0 +1,57 @@
+package io.github.reoseah.ecs;
+
+/// Query over two components, with column storages of types `A` and `B`.
+///
+/// ```java
+/// var movement = world.<float[], float[]>query(position, velocity);
+/// movement.forEachArchetype((positions, velocities, count, archetype) -> {
+///     for (int i = 0; i < count * 2; i++) {
+///         positions[i] += velocities[i];
+///     }
+///});
+///```
+@SuppressWarnings("unchecked")
+public final class Query2<A, B> extends Query {
+    Query2(World world, int componentA, int componentB) {
+        super(world, componentA, componentB);
+    }
+
+    /// Calls the consumer with the columns of every matched archetype that
+    /// has entities.
+    public void forEachArchetype(ColumnsConsumer<A, B> consumer) {
+        this.refresh();
+        for (int i = 0; i < this.cachedArchetypes; i++) {
+            var archetype = this.archetypes.get(i);
+            int count = archetype.entityCount();
+            if (count != 0) {
+                var columns = archetype.columns;
+                consumer.accept((A) columns[this.columnIndices[i * 2]], (B) columns[this.columnIndices[i * 2 + 1]], count, archetype);
+            }
+        }
+    }
+
+    /// Calls the consumer for every row of every matched archetype.
+    public void forEachRow(RowConsumer<A, B> consumer) {
+        this.refresh();
+        for (int i = 0; i < this.cachedArchetypes; i++) {
+            var archetype = this.archetypes.get(i);
+            var columns = archetype.columns;
+            var a = (A) columns[this.columnIndices[i * 2]];
+            var b = (B) columns[this.columnIndices[i * 2 + 1]];
+            int[] entities = archetype.entities;
+            for (int row = 0, count = archetype.entityCount(); row < count; row++) {
+                consumer.accept(entities[row], a, b, row);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface ColumnsConsumer<A, B> {
+        void accept(A a, B b, int count, Archetype archetype);
+    }
+
+    @FunctionalInterface
+    public interface RowConsumer<A, B> {
+        void accept(int entity, A a, B b, int row);
+    }
+}
@@ -0,0 +1,52 @@
+package io.github.reoseah.ecs;
+
+/// Query over three components, with column storages of types `A`, `B` and
+/// `C`.
+///
+/// @see Query2
+@SuppressWarnings("unchecked")
+public final class Query3<A, B, C> extends Query {
+    Query3(World world, int componentA, int componentB, int componentC) {
+        super(world, componentA, componentB, componentC);
+    }
+
+    /// Calls the consumer with the columns of every matched archetype that
+    /// has entities.
+    public void forEachArchetype(ColumnsConsumer<A, B, C> consumer) {
+        this.refresh();
+        for (int i = 0; i < this.cachedArchetypes; i++) {
+            var archetype = this.archetypes.get(i);
+            int count = archetype.entityCount();
+            if (count != 0) {
+                var columns = archetype.columns;
+                consumer.accept((A) columns[this.columnIndices[i * 3]], (B) columns[this.columnIndices[i * 3 + 1]], (C) columns[this.columnIndices[i * 3 + 2]], count, archetype);
+            }
+        }
+    }
+
+    /// Calls the consumer for every row of every matched archetype.
+    public void forEachRow(RowConsumer<A, B, C> consumer) {
+        this.refresh();
+        for (int i = 0; i < this.cachedArchetypes; i++) {
+            var archetype = this.archetypes.get(i);
+            var columns = archetype.columns;
+            var a = (A) columns[this.columnIndices[i * 3]];
+            var b = (B) columns[this.columnIndices[i * 3 + 1]];
+            var c = (C) columns[this.columnIndices[i * 3 + 2]];
+            int[] entities = archetype.entities;
+            for (int row = 0, count = archetype.entityCount(); row < count; row++) {
+                consumer.accept(entities[row], a, b, c, row);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface ColumnsConsumer<A, B, C> {
+        void accept(A a, B b, C c, int count, Archetype archetype);
+    }
+
+    @FunctionalInterface
+    public interface RowConsumer<A, B, C> {
+        void accept(int entity, A a, B b, C c, int row);
+    }
+}
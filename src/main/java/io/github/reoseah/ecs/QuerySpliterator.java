@@ -0,0 +1,172 @@
+package io.github.reoseah.ecs;
+
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+
+/// Spliterator over rows of archetypes matched by a [Query], created with
+/// [Query#spliterator] for entity IDs or [Query#locationSpliterator] for
+/// their locations.
+///
+/// Rows of all archetypes are treated as one range, with each archetype
+/// starting at its offset in it. Splitting halves the range at the
+/// archetype boundary closest to the middle while the range spans several
+/// archetypes, and then by rows within a single archetype, down to
+/// [#MIN_SPLIT_ROWS]. Since the sizes of all parts are known exactly, it's
+/// both `SIZED` and `SUBSIZED`.
+///
+/// The entity counts are captured on creation, so the archetypes shouldn't
+/// be structurally changed until the traversal is done.
+abstract sealed class QuerySpliterator {
+    /// Archetypes are not split into parts smaller than this, so tasks of
+    /// parallel streams are not dominated by their overhead.
+    static final int MIN_SPLIT_ROWS = 512;
+
+    final Archetype[] archetypes;
+    /// Offset of each archetype in the range, with the total size appended.
+    final int[] offsets;
+    /// Current position in the range.
+    int index;
+    final int end;
+    /// Archetype containing [#index], if it's before [#end].
+    int archetype;
+
+    QuerySpliterator(Archetype[] archetypes, int[] offsets, int index, int end, int archetype) {
+        this.archetypes = archetypes;
+        this.offsets = offsets;
+        this.index = index;
+        this.end = end;
+        this.archetype = archetype;
+    }
+
+    /// Moves [#archetype] to the one containing [#index].
+    final void seekArchetype() {
+        while (this.offsets[this.archetype + 1] <= this.index) {
+            this.archetype++;
+        }
+    }
+
+    /// Returns the end of the prefix to split off, or `-1` if the range is
+    /// too small to split.
+    final int splitPoint() {
+        if (this.index >= this.end) {
+            return -1;
+        }
+        this.seekArchetype();
+        int middle = this.index + (this.end - this.index) / 2;
+        if (this.offsets[this.archetype + 1] < this.end) {
+            // the first boundary after the middle, or the one before it if
+            // that's closer
+            int boundary = this.archetype + 1;
+            while (this.offsets[boundary] < middle && this.offsets[boundary + 1] < this.end) {
+                boundary++;
+            }
+            int split = this.offsets[boundary];
+            if (boundary > this.archetype + 1 && middle - this.offsets[boundary - 1] < split - middle) {
+                split = this.offsets[boundary - 1];
+            }
+            return split;
+        } else if (this.end - this.index >= 2 * MIN_SPLIT_ROWS) {
+            return middle;
+        }
+        return -1;
+    }
+
+    public long estimateSize() {
+        return Math.max(this.end - this.index, 0);
+    }
+
+    public int characteristics() {
+        return Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.NONNULL;
+    }
+
+    /// Spliterator over entity IDs.
+    static final class Entities extends QuerySpliterator implements Spliterator.OfInt {
+        Entities(Archetype[] archetypes, int[] offsets, int index, int end, int archetype) {
+            super(archetypes, offsets, index, end, archetype);
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            if (this.index >= this.end) {
+                return false;
+            }
+            this.seekArchetype();
+            var archetype = this.archetypes[this.archetype];
+            action.accept(archetype.entities[this.index - this.offsets[this.archetype]]);
+            this.index++;
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(IntConsumer action) {
+            while (this.index < this.end) {
+                this.seekArchetype();
+                int offset = this.offsets[this.archetype];
+                int[] entities = this.archetypes[this.archetype].entities;
+                int to = Math.min(this.end, this.offsets[this.archetype + 1]);
+                for (int i = this.index; i < to; i++) {
+                    action.accept(entities[i - offset]);
+                }
+                this.index = to;
+            }
+        }
+
+        @Override
+        public OfInt trySplit() {
+            int split = this.splitPoint();
+            if (split == -1) {
+                return null;
+            }
+            var prefix = new Entities(this.archetypes, this.offsets, this.index, split, this.archetype);
+            this.index = split;
+            return prefix;
+        }
+    }
+
+    /// Spliterator over locations of entities in the format of
+    /// [World#locate], i.e. archetype ID and row, so consumers can read
+    /// columns without looking entities up.
+    static final class Locations extends QuerySpliterator implements Spliterator.OfLong {
+        Locations(Archetype[] archetypes, int[] offsets, int index, int end, int archetype) {
+            super(archetypes, offsets, index, end, archetype);
+        }
+
+        @Override
+        public boolean tryAdvance(LongConsumer action) {
+            if (this.index >= this.end) {
+                return false;
+            }
+            this.seekArchetype();
+            long archetypeId = (long) this.archetypes[this.archetype].id << 32;
+            action.accept(archetypeId | (this.index - this.offsets[this.archetype]));
+            this.index++;
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(LongConsumer action) {
+            while (this.index < this.end) {
+                this.seekArchetype();
+                int offset = this.offsets[this.archetype];
+                long archetypeId = (long) this.archetypes[this.archetype].id << 32;
+                int to = Math.min(this.end, this.offsets[this.archetype + 1]);
+                for (int i = this.index; i < to; i++) {
+                    action.accept(archetypeId | (i - offset));
+                }
+                this.index = to;
+            }
+        }
+
+        @Override
+        public OfLong trySplit() {
+            int split = this.splitPoint();
+            if (split == -1) {
+                return null;
+            }
+            var prefix = new Locations(this.archetypes, this.offsets, this.index, split, this.archetype);
+            this.index = split;
+            return prefix;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package io.github.reoseah.ecs;
+
+import java.util.List;
+
+/// Predicate deciding whether a system should run on the current tick. It's
+/// evaluated by the schedule when the system's dependencies complete, and if
+/// it returns `false`, the system is treated as completed without
+/// submitting it to the thread pool.
+///
+/// Conditions are evaluated while holding the schedule's lock, so they should
+/// be cheap and not block.
+///
+/// ## Example
+/// ```java
+/// schedule.configure(MySystems::spawnWaves)
+///         .writes(position, health)
+///         .runIf(RunCondition.everyNTicks(20, 5))
+///         .apply();
+///```
+@FunctionalInterface
+public interface RunCondition {
+    /// Returns whether the system should run, `tick` is the number of
+    /// completed runs of the schedule.
+    boolean test(World world, long tick);
+
+    default RunCondition and(RunCondition other) {
+        return (world, tick) -> this.test(world, tick) && other.test(world, tick);
+    }
+
+    default RunCondition or(RunCondition other) {
+        return (world, tick) -> this.test(world, tick) || other.test(world, tick);
+    }
+
+    default RunCondition negate() {
+        return (world, tick) -> !this.test(world, tick);
+    }
+
+    /// Returns a condition that is true once every `period` ticks. Systems
+    /// with the same period can use different `offset`s, so they don't all
+    /// run on the same tick.
+    static RunCondition everyNTicks(int period, int offset) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("Period should be positive: " + period);
+        }
+        return (world, tick) -> Math.floorMod(tick - offset, period) == 0;
+    }
+
+    /// Returns a condition that is true if there is at least one entity
+    /// matching the query.
+    static RunCondition hasEntities(long[] query) {
+        return new HasEntities(query);
+    }
+
+    final class HasEntities implements RunCondition {
+        private final long[] query;
+        private World world;
+        private List<Archetype> archetypes;
+
+        private HasEntities(long[] query) {
+            this.query = query;
+        }
+
+        @Override
+        public boolean test(World world, long tick) {
+            if (this.world != world) {
+                // the list is 'live', so it only needs to be looked up once
+                this.archetypes = world.getQueryArchetypes(this.query);
+                this.world = world;
+            }
+            for (int i = 0; i < this.archetypes.size(); i++) {
+                if (this.archetypes.get(i).entityCount() > 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -16,7 +16,8 @@ public abstract class Schedule {
     /// Systems inside this schedule with their state.
     ///
     /// ### API notes:
-    /// - only adding values is correctly handled
+    /// - values are only added, removed systems stay here to keep the IDs
+    ///   stable and are marked in [#removedSystems] instead
     /// - [ScheduleSystem#id] should match position here and in all parallel lists
     /// - when modified, [#systemsChanged] should be set true
     protected final List<ScheduleSystem> systems = new ArrayList<>();
@@ -24,8 +25,20 @@ public abstract class Schedule {
     /// should run before and can be `null` for systems without dependencies.
     protected @Nullable IntList[] dependencies = new IntList[8];
     /// True if [#systems] or [#dependencies] were modified and derived data
-    /// needs to be rebuilt.
+    /// needs to be updated.
     protected boolean systemsChanged;
+    /// Bitset with IDs of systems that were removed with [#remove].
+    ///
+    /// When modified, [#systemsChanged] should be set true, implementations
+    /// then drop the removed systems from [#dependencies] and derived data.
+    protected long[] removedSystems = new long[1];
+    /// Bitset with IDs of systems that were disabled with [#setEnabled].
+    ///
+    /// Unlike removal, this doesn't change [#systemsChanged], disabled systems
+    /// are simply treated as completed once their dependencies are done.
+    protected long[] disabledSystems = new long[1];
+    /// Number of completed runs of this schedule, passed to [RunCondition]s.
+    protected long tick;
 
     public Schedule(World world) {
         this.world = world;
@@ -33,6 +46,43 @@ public abstract class Schedule {
 
     public abstract void run();
 
+    /// Removes the system from this schedule. Its ID is not reused, and the
+    /// systems that were ordered relative to it are no longer ordered
+    /// through it.
+    ///
+    /// Should not be called while the schedule is running.
+    public void remove(int system) {
+        this.removedSystems = BitSets.growAndAdd(this.removedSystems, system);
+        this.systemsChanged = true;
+    }
+
+    /// Enables or disables the system. A disabled system is not run, but
+    /// ordering is preserved, i.e. systems that run after it still wait for
+    /// its dependencies. This is cheap and doesn't update any derived data.
+    ///
+    /// Should not be called while the schedule is running.
+    public void setEnabled(int system, boolean enabled) {
+        if (enabled) {
+            if (system < this.disabledSystems.length * Long.SIZE) {
+                BitSets.remove(this.disabledSystems, system);
+            }
+        } else {
+            this.disabledSystems = BitSets.growAndAdd(this.disabledSystems, system);
+        }
+    }
+
+    /// Returns whether the system was removed with [#remove].
+    public boolean isRemoved(int system) {
+        return system < this.removedSystems.length * Long.SIZE && BitSets.contains(this.removedSystems, system);
+    }
+
+    /// Returns whether the system should not be run because it was removed
+    /// or disabled.
+    protected boolean isSkipped(int system) {
+        return this.isRemoved(system)
+                || system < this.disabledSystems.length * Long.SIZE && BitSets.contains(this.disabledSystems, system);
+    }
+
     /// Returns a helper object to configure and add a system to the schedule.
     public ScheduleSystemBuilder configure(SystemRunnable runnable) {
         return new ScheduleSystemBuilder(this).runnable(runnable);
@@ -44,13 +94,15 @@ public abstract class Schedule {
         public final List<Archetype> archetypes;
         public final long @Nullable [] writes;
         public final long @Nullable [] readsAndWrites;
+        public final @Nullable RunCondition condition;
 
-        public ScheduleSystem(int id, SystemRunnable runnable, List<Archetype> archetypes, long[] writes, long[] readsAndWrites) {
+        public ScheduleSystem(int id, SystemRunnable runnable, List<Archetype> archetypes, long[] writes, long[] readsAndWrites, @Nullable RunCondition condition) {
             this.id = id;
             this.runnable = runnable;
             this.archetypes = archetypes;
             this.writes = writes;
             this.readsAndWrites = readsAndWrites;
+            this.condition = condition;
         }
     }
 
@@ -61,6 +113,10 @@ public abstract class Schedule {
         private @Nullable IntSet dependents;
         private long @Nullable [] writes;
         private long @Nullable [] readsAndWrites;
+        /// Components accessed by the system, used to find the archetypes.
+        /// Unlike [#readsAndWrites], doesn't include resources.
+        private long @Nullable [] query;
+        private @Nullable RunCondition condition;
 
         public ScheduleSystemBuilder(Schedule schedule) {
             this.schedule = schedule;
@@ -80,23 +136,44 @@ public abstract class Schedule {
 
         public ScheduleSystemBuilder reads(int... components) {
             this.readsAndWrites = BitSets.addAll(this.readsAndWrites, components);
+            this.query = BitSets.addAll(this.query, components);
             return this;
         }
 
         public ScheduleSystemBuilder reads(long[] componentMask) {
-            this.readsAndWrites = BitSets.unionInPlace(this.readsAndWrites, componentMask);
+            this.readsAndWrites = BitSets.unionInPlace(this.readsAndWrites, componentMask.clone());
+            this.query = BitSets.unionInPlace(this.query, componentMask.clone());
             return this;
         }
 
         public ScheduleSystemBuilder writes(int... components) {
             this.writes = BitSets.addAll(this.writes, components);
             this.readsAndWrites = BitSets.addAll(this.readsAndWrites, components);
+            this.query = BitSets.addAll(this.query, components);
             return this;
         }
 
         public ScheduleSystemBuilder writes(long[] componentMask) {
-            this.writes = BitSets.unionInPlace(this.writes, componentMask);
-            this.readsAndWrites = BitSets.unionInPlace(this.readsAndWrites, componentMask);
+            this.writes = BitSets.unionInPlace(this.writes, componentMask.clone());
+            this.readsAndWrites = BitSets.unionInPlace(this.readsAndWrites, componentMask.clone());
+            this.query = BitSets.unionInPlace(this.query, componentMask.clone());
+            return this;
+        }
+
+        /// Declares that the system reads the resources, so it won't run in
+        /// parallel with systems writing them. Unlike [#reads], doesn't
+        /// affect which archetypes the system gets.
+        public ScheduleSystemBuilder readsResources(int... resources) {
+            this.readsAndWrites = BitSets.addAll(this.readsAndWrites, resources);
+            return this;
+        }
+
+        /// Declares that the system writes the resources, so it won't run in
+        /// parallel with other systems using them. Unlike [#writes],
+        /// doesn't affect which archetypes the system gets.
+        public ScheduleSystemBuilder writesResources(int... resources) {
+            this.writes = BitSets.addAll(this.writes, resources);
+            this.readsAndWrites = BitSets.addAll(this.readsAndWrites, resources);
             return this;
         }
 
@@ -111,24 +188,31 @@ public abstract class Schedule {
         }
 
 
+        /// Adds a condition that should be true for the system to run. If
+        /// called multiple times, all conditions should be true.
+        public ScheduleSystemBuilder runIf(RunCondition condition) {
+            this.condition = this.condition == null ? condition : this.condition.and(condition);
+            return this;
+        }
+
         /// Registers the current system and returns its numeric ID.
         public int apply() {
             int id = this.schedule.systems.size();
 
-            var archetypes = this.schedule.world.getQueryArchetypes(this.readsAndWrites);
+            var archetypes = this.schedule.world.getQueryArchetypes(this.query != null ? this.query : BitSets.EMPTY);
 
-            var state = new ScheduleSystem(id, this.runnable, archetypes, this.writes, this.readsAndWrites);
+            var state = new ScheduleSystem(id, this.runnable, archetypes, this.writes, this.readsAndWrites, this.condition);
             this.schedule.systemsChanged = true;
             this.schedule.systems.add(state);
 
             if (this.dependencies != null) {
-                this.schedule.dependencies = MultithreadedSchedule.ensureCapacity(this.schedule.dependencies, id);
+                this.schedule.dependencies = MultithreadedSchedule.ensureCapacity(this.schedule.dependencies, id + 1);
                 this.schedule.dependencies[id] = new IntArrayList(this.dependencies);
             }
 
             if (this.dependents != null) {
                 for (int dependent : this.dependents) {
-                    this.schedule.dependencies = MultithreadedSchedule.ensureCapacity(this.schedule.dependencies, dependent);
+                    this.schedule.dependencies = MultithreadedSchedule.ensureCapacity(this.schedule.dependencies, dependent + 1);
                     var dependentDependencies = this.schedule.dependencies[dependent];
                     if (dependentDependencies == null) {
                         dependentDependencies = new IntArrayList();
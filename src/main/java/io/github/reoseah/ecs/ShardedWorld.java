@@ -0,0 +1,236 @@
+package io.github.reoseah.ecs;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/// Runs several [World]s in parallel, e.g. spatial shards of one large zone,
+/// so a zone can use more cores than a single schedule keeps busy.
+///
+/// Each shard has its own [MultithreadedSchedule], all of them submitting
+/// systems to the same thread pool. [#run] runs every schedule once and then
+/// reaches a sync point where no shard is running, which is when entities
+/// can move between shards, either requested from systems with
+/// [#requestMigration] or moved in bulk with [#migrate].
+///
+/// Shards have to register the same components in the same order, so rows
+/// can be copied between them column by column. Entity IDs are local to each
+/// world, so migrated entities get new IDs, reported to the
+/// [MigrationListener] or returned by [#migrate].
+public final class ShardedWorld {
+    private final ExecutorService threadPool;
+    private final List<World> shards = new ArrayList<>();
+    private final List<Schedule> schedules = new ArrayList<>();
+    /// Pending migrations out of each shard as pairs of entity and target
+    /// shard, guarded by the list itself.
+    private final List<IntArrayList> migrations = new ArrayList<>();
+    private @Nullable MigrationListener listener;
+
+    public ShardedWorld(ExecutorService threadPool) {
+        this.threadPool = threadPool;
+    }
+
+    /// Adds a world as a new shard and returns its index.
+    ///
+    /// @throws IllegalArgumentException if the components of the world
+    ///                                  don't match the other shards
+    public int addShard(World world) {
+        if (!this.shards.isEmpty()) {
+            checkSameComponents(this.shards.getFirst(), world);
+        }
+        this.shards.add(world);
+        this.schedules.add(world.createSchedule(this.threadPool));
+        this.migrations.add(new IntArrayList());
+        return this.shards.size() - 1;
+    }
+
+    public int shardCount() {
+        return this.shards.size();
+    }
+
+    public World world(int shard) {
+        return this.shards.get(shard);
+    }
+
+    /// Returns the schedule of the shard to add systems to.
+    public Schedule schedule(int shard) {
+        return this.schedules.get(shard);
+    }
+
+    public void setMigrationListener(@Nullable MigrationListener listener) {
+        this.listener = listener;
+    }
+
+    /// Requests the entity to be moved to another shard at the end of the
+    /// current [#run]. Can be called from systems running in parallel.
+    public void requestMigration(int shard, int entity, int targetShard) {
+        var pending = this.migrations.get(shard);
+        synchronized (pending) {
+            pending.add(entity);
+            pending.add(targetShard);
+        }
+    }
+
+    /// Runs the schedules of all shards in parallel, then applies the
+    /// migrations requested meanwhile.
+    public void run() {
+        var threads = new Thread[this.schedules.size() - 1];
+        for (int i = 0; i < threads.length; i++) {
+            // schedules mostly wait for their systems, which run on the shared
+            // pool, so virtual threads are enough to drive them
+            threads[i] = Thread.startVirtualThread(this.schedules.get(i + 1)::run);
+        }
+        if (!this.schedules.isEmpty()) {
+            this.schedules.getFirst().run();
+        }
+        boolean interrupted = false;
+        for (var thread : threads) {
+            while (true) {
+                try {
+                    thread.join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        this.applyMigrations();
+    }
+
+    private void applyMigrations() {
+        var entities = new IntArrayList();
+        for (int shard = 0; shard < this.shards.size(); shard++) {
+            var pending = this.migrations.get(shard);
+            if (pending.isEmpty()) {
+                continue;
+            }
+            for (int target = 0; target < this.shards.size(); target++) {
+                entities.clear();
+                for (int i = 0; i < pending.size(); i += 2) {
+                    if (pending.getInt(i + 1) == target) {
+                        entities.add(pending.getInt(i));
+                    }
+                }
+                if (!entities.isEmpty()) {
+                    this.migrate(shard, entities.toIntArray(), target);
+                }
+            }
+            pending.clear();
+        }
+    }
+
+    /// Moves the entities with all their components to another shard and
+    /// returns their new IDs, in the same order. Removed entities and
+    /// repeated IDs are skipped, getting `-1`.
+    ///
+    /// Rows are moved in groups per archetype: the target archetype grows
+    /// once per group, and each column is copied in one pass.
+    ///
+    /// Should only be called when the shards are not running.
+    public int[] migrate(int shard, int[] entities, int targetShard) {
+        var source = this.shards.get(shard);
+        var target = this.shards.get(targetShard);
+        int[] newIds = new int[entities.length];
+        if (source == target) {
+            System.arraycopy(entities, 0, newIds, 0, entities.length);
+            return newIds;
+        }
+
+        // indices of the entities sorted by archetype, so rows of each
+        // archetype are moved together
+        int[] order = new int[entities.length];
+        int count = 0;
+        long[] seen = new long[source.entities.length / Long.SIZE + 1];
+        for (int i = 0; i < entities.length; i++) {
+            int entity = entities[i];
+            newIds[i] = -1;
+            if ((source.entities[entity] & World.REMOVED_ENTITY_FLAG) != 0 || (seen[entity / Long.SIZE] & (1L << entity)) != 0) {
+                continue;
+            }
+            seen[entity / Long.SIZE] |= 1L << entity;
+            order[count++] = i;
+        }
+        IntArrays.quickSort(order, 0, count, (a, b) -> Long.compare(source.entities[entities[a]] >> 32, source.entities[entities[b]] >> 32));
+
+        int[] rows = new int[count];
+        for (int start = 0; start < count; ) {
+            var sourceArchetype = source.archetypes.get((int) (source.entities[entities[order[start]]] >> 32));
+            int end = start + 1;
+            while (end < count && source.entities[entities[order[end]]] >> 32 == sourceArchetype.id) {
+                end++;
+            }
+            int groupSize = end - start;
+
+            var targetArchetype = target.getOrCreateArchetype(sourceArchetype.componentMask);
+            int firstRow = targetArchetype.addRows(groupSize);
+            for (int k = 0; k < groupSize; k++) {
+                rows[k] = (int) source.entities[entities[order[start + k]]];
+            }
+            // both archetypes have the same mask, so columns are in the same order
+            for (int i = 0; i < sourceArchetype.components.length; i++) {
+                @SuppressWarnings("unchecked")
+                ColumnType<Object> columnType = sourceArchetype.columnTypes[i];
+                var sourceColumn = sourceArchetype.columns[i];
+                var targetColumn = targetArchetype.columns[i];
+                for (int k = 0; k < groupSize; k++) {
+                    columnType.transfer(sourceColumn, rows[k], targetColumn, firstRow + k);
+                }
+            }
+            // placed after copying the columns, so value indexes see the data
+            for (int k = 0; k < groupSize; k++) {
+                int newId = target.allocateEntity();
+                targetArchetype.entities[firstRow + k] = newId;
+                target.placeEntity(newId, targetArchetype, firstRow + k);
+                newIds[order[start + k]] = newId;
+            }
+            for (int component : sourceArchetype.coldComponents) {
+                ColumnType<Object> columnType = source.componentColumnType(component);
+                Object sourceColumn = source.getColdColumn(component);
+                Object targetColumn = target.getWritableColdColumn(component);
+                for (int k = start; k < end; k++) {
+                    int newId = newIds[order[k]];
+                    columnType.transfer(sourceColumn, entities[order[k]], targetColumn, newId);
+                    target.markEntityDirty(newId);
+                }
+            }
+            for (int k = start; k < end; k++) {
+                source.removeEntity(entities[order[k]]);
+            }
+            start = end;
+        }
+
+        if (this.listener != null) {
+            for (int i = 0; i < entities.length; i++) {
+                if (newIds[i] != -1) {
+                    this.listener.migrated(shard, entities[i], targetShard, newIds[i]);
+                }
+            }
+        }
+        return newIds;
+    }
+
+    private static void checkSameComponents(World expected, World actual) {
+        int size = Math.max(expected.componentsAndResources.size(), actual.componentsAndResources.size());
+        for (int id = 0; id < size; id++) {
+            boolean expectedComponent = id < expected.componentsAndResources.size() && expected.isComponent(id);
+            boolean actualComponent = id < actual.componentsAndResources.size() && actual.isComponent(id);
+            if (expectedComponent != actualComponent || expectedComponent && (expected.componentColumnType(id) != actual.componentColumnType(id) || expected.isCold(id) != actual.isCold(id))) {
+                throw new IllegalArgumentException("Component " + id + " doesn't match the other shards");
+            }
+        }
+    }
+
+    /// Receives new IDs of entities moved between shards.
+    @FunctionalInterface
+    public interface MigrationListener {
+        void migrated(int shard, int entity, int targetShard, int newEntity);
+    }
+}
@@ -0,0 +1,175 @@
+package io.github.reoseah.ecs;
+
+import io.github.reoseah.ecs.bitmanipulation.BitSets;
+import it.unimi.dsi.fastutil.ints.IntConsumer;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+
+import java.util.Arrays;
+
+/// Finds entities by the value of an [ColumnType.IntArray] or
+/// [ColumnType.LongArray] component, like a player or owner ID, without
+/// scanning all archetypes. Created with [World#createIndex].
+///
+/// Entities with the same value are linked into a list through arrays
+/// indexed by entity ID, so updating the index doesn't allocate and the
+/// lookups don't box:
+///
+/// ```java
+/// for (int entity = index.first(owner); entity != -1; entity = index.next(entity)) {
+///     // ...
+///}
+///```
+///
+/// The index is updated by [World.EntityHelper] setters and structural
+/// changes. Systems writing the column directly should call [#update] for
+/// the changed entities.
+public final class ValueIndex {
+    public final int component;
+    private final World world;
+
+    /// First entity of the list for each value.
+    private final Long2IntOpenHashMap heads = new Long2IntOpenHashMap();
+    /// Indexed value of each entity.
+    private long[] values = new long[0];
+    /// Links of the list of entities with the same value, `-1` at the ends.
+    private int[] next = new int[0];
+    private int[] previous = new int[0];
+    /// Whether each entity is in the index.
+    private long[] indexed = new long[0];
+
+    ValueIndex(World world, int component) {
+        this.world = world;
+        this.component = component;
+        this.heads.defaultReturnValue(-1);
+    }
+
+    /// Returns the first entity with the value, or `-1` if there's none.
+    public int first(long value) {
+        return this.heads.get(value);
+    }
+
+    /// Returns the next entity with the same value, or `-1` if it was the
+    /// last one.
+    public int next(int entity) {
+        return this.next[entity];
+    }
+
+    public boolean contains(long value) {
+        return this.heads.containsKey(value);
+    }
+
+    public void forEach(long value, IntConsumer consumer) {
+        for (int entity = this.heads.get(value); entity != -1; entity = this.next[entity]) {
+            consumer.accept(entity);
+        }
+    }
+
+    /// Returns all entities with the value.
+    public int[] lookup(long value) {
+        int count = 0;
+        for (int entity = this.heads.get(value); entity != -1; entity = this.next[entity]) {
+            count++;
+        }
+        int[] entities = new int[count];
+        int i = 0;
+        for (int entity = this.heads.get(value); entity != -1; entity = this.next[entity]) {
+            entities[i++] = entity;
+        }
+        return entities;
+    }
+
+    /// Re-reads the value of the entity from its column, after it was
+    /// written to directly.
+    public void update(int entity) {
+        long location = this.world.entities[entity];
+        if ((location & World.REMOVED_ENTITY_FLAG) != 0) {
+            this.remove(entity);
+            return;
+        }
+        this.update(entity, this.world.archetypes.get((int) (location >> 32)), (int) location);
+    }
+
+    /// Indexes the entity by its value at the row, or removes it from the
+    /// index if the archetype doesn't have the component.
+    void update(int entity, Archetype archetype, int row) {
+        if (this.isIndexed(archetype)) {
+            this.set(entity, this.read(archetype, row));
+        } else {
+            this.remove(entity);
+        }
+    }
+
+    void set(int entity, long value) {
+        if (entity < this.values.length && BitSets.contains(this.indexed, entity)) {
+            if (this.values[entity] == value) {
+                return;
+            }
+            this.unlink(entity);
+        } else {
+            this.ensureCapacity(entity + 1);
+            BitSets.add(this.indexed, entity);
+        }
+        this.values[entity] = value;
+        int head = this.heads.put(value, entity);
+        this.next[entity] = head;
+        this.previous[entity] = -1;
+        if (head != -1) {
+            this.previous[head] = entity;
+        }
+    }
+
+    void remove(int entity) {
+        if (entity < this.values.length && BitSets.contains(this.indexed, entity)) {
+            this.unlink(entity);
+            BitSets.remove(this.indexed, entity);
+        }
+    }
+
+    /// Indexes all entities from scratch, e.g. after the world was
+    /// restored from a fork or a snapshot.
+    void rebuild() {
+        this.heads.clear();
+        Arrays.fill(this.indexed, 0);
+        for (var archetype : this.world.archetypes) {
+            if (this.isIndexed(archetype)) {
+                for (int row = 0; row < archetype.entityCount(); row++) {
+                    this.set(archetype.entities[row], this.read(archetype, row));
+                }
+            }
+        }
+    }
+
+    private void unlink(int entity) {
+        int previous = this.previous[entity];
+        int next = this.next[entity];
+        if (previous != -1) {
+            this.next[previous] = next;
+        } else if (next != -1) {
+            this.heads.put(this.values[entity], next);
+        } else {
+            this.heads.remove(this.values[entity]);
+        }
+        if (next != -1) {
+            this.previous[next] = previous;
+        }
+    }
+
+    private boolean isIndexed(Archetype archetype) {
+        return this.component / Long.SIZE < archetype.componentMask.length && BitSets.contains(archetype.componentMask, this.component);
+    }
+
+    private long read(Archetype archetype, int row) {
+        var column = archetype.getColumn(this.component);
+        return column instanceof int[] ints ? ints[row] : ((long[]) column)[row];
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > this.values.length) {
+            int newCapacity = Math.max(capacity, Math.max(64, this.values.length * 2));
+            this.values = Arrays.copyOf(this.values, newCapacity);
+            this.next = Arrays.copyOf(this.next, newCapacity);
+            this.previous = Arrays.copyOf(this.previous, newCapacity);
+            this.indexed = Arrays.copyOf(this.indexed, (newCapacity + Long.SIZE - 1) / Long.SIZE);
+        }
+    }
+}
@@ -1,21 +1,24 @@
 package io.github.reoseah.ecs;
 
 import io.github.reoseah.ecs.bitmanipulation.BitSets;
-import io.github.reoseah.ecs.bitmanipulation.LongArrayHashStrategy;
-import it.unimi.dsi.fastutil.objects.Object2ObjectOpenCustomHashMap;
+import io.github.reoseah.ecs.bitmanipulation.MaskInterner;
+import io.github.reoseah.ecs.events.EventChannel;
+import io.github.reoseah.ecs.journal.JournalWriter;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.ExecutorService;
 
 public final class World {
     /// List of all components and resources registered.
     ///
-    /// For resources, ECS doesn't care what the value here is. They are just
-    /// opaque `int` IDs used in [MultithreadedSchedule] to run systems in
-    /// parallel if their component/resource bitsets do not overlap.
+    /// For resources, the value here is `null`, their values are stored in
+    /// [#resources]. Components and resources share the ID space, so
+    /// [MultithreadedSchedule] runs systems in parallel if their
+    /// component/resource bitsets do not overlap, regardless of the kind.
     ///
     /// For components, the value is an instance of [ColumnType] that allows
     /// to create, resize, etc., a storage for the component, so component
@@ -23,10 +26,22 @@ public final class World {
     /// or other data structure that can implement [ColumnType] interface.
     /// The corresponding bit in [#components] bitset is set when registering a
     /// component.
-    // TODO: implement resources, currently this and #components bitset are not used
-    private final List<Object> componentsAndResources = new ArrayList<>();
+    final List<Object> componentsAndResources = new ArrayList<>();
     /// Bitset of all indices in [#componentsAndResources] that are components.
     private long[] components = new long[8];
+    /// Bitset of components created with [#createColdComponent].
+    private long[] coldComponents = new long[1];
+    /// Storage of cold components indexed by component ID, with values
+    /// indexed by entity ID. Entries for other IDs are `null`.
+    private Object[] coldColumns = new Object[0];
+    /// Whether each of [#coldColumns] is shared with a [WorldFork].
+    private boolean[] coldColumnsShared = new boolean[0];
+    /// Values of resources indexed by their IDs, parallel to
+    /// [#componentsAndResources]. Entries for components are always `null`.
+    private Object[] resources = new Object[8];
+    /// Event channels registered with [#createEvents], all of them are
+    /// updated in [#updateEvents].
+    private final List<EventChannel<?>> eventChannels = new ArrayList<>();
 
     /// Array of entity data indexed by entity IDs.
     ///
@@ -45,36 +60,208 @@ public final class World {
     /// For a more detailed explanation of this, see
     /// <a href="https://skypjack.github.io/2019-05-06-ecs-baf-part-3/">ECS
     /// back and forth, Part 3 - Why you don't need to store deleted entities</a>.
-    private long[] entities = new long[512];
+    long[] entities = new long[512];
+    /// Whether each chunk of [#entities] changed since the last snapshot,
+    /// chunks are the same size as [Archetype#dirtyChunks].
+    boolean[] dirtyEntityChunks = new boolean[Archetype.chunkCount(512)];
+    /// Whether [#entities] is shared with a [WorldFork] and has to be copied
+    /// before being modified.
+    private boolean entitiesShared;
 
-    private static final long REMOVED_ENTITY_FLAG = 1L << 63;
-    private static final long ENTITY_BITS = 0xFFFF_FFFFL;
+    static final long REMOVED_ENTITY_FLAG = 1L << 63;
+    static final long ENTITY_BITS = 0xFFFF_FFFFL;
 
     /// Number of live entities in this world.
-    private int entityCount = 0;
-    private int removedEntity = -1;
+    int entityCount = 0;
+    /// Top of the stack of removed entities, see [#entities].
+    int removedEntity = -1;
 
     /// List of all archetypes. Maps archetype ids to their instance.
-    private final List<Archetype> archetypes = new ArrayList<>();
+    final List<Archetype> archetypes = new ArrayList<>();
+
+    /// Component masks of archetypes and queries, both are looked up by the
+    /// ID of their mask.
+    final MaskInterner masks = new MaskInterner();
 
     // TODO: use adjacency graph
-    private final Map<long[], Archetype> archetypeMap = new Object2ObjectOpenCustomHashMap<>(LongArrayHashStrategy.INSTANCE);
+    /// Archetype for each mask ID, or `null` for masks of queries only.
+    private @Nullable Archetype[] archetypesByMask = new Archetype[16];
+
+    private final Int2ObjectOpenHashMap<List<Archetype>> queries = new Int2ObjectOpenHashMap<>();
+
+    /// Reused to compute masks of archetypes entities move to.
+    private long[] maskScratch = new long[2];
 
-    private final Map<long[], List<Archetype>> queries = new Object2ObjectOpenCustomHashMap<>(LongArrayHashStrategy.INSTANCE);
+    /// Journal recording structural changes, if any. When it's not set, the
+    /// only cost is a `null` check per structural change.
+    private @Nullable JournalWriter journal;
+
+    /// Value indexes by component ID, `null` for components without one.
+    private @Nullable ValueIndex[] indexes = new ValueIndex[0];
+    private int indexCount;
 
     public int createComponent(ColumnType<?> component) {
         int idx = this.componentsAndResources.size();
         this.componentsAndResources.add(component);
+        if (idx == this.resources.length) {
+            this.resources = Arrays.copyOf(this.resources, this.resources.length * 2);
+        }
         this.components = BitSets.growAndAdd(this.components, idx);
         return idx;
     }
 
+    /// Registers a cold component, which is stored in a side table indexed by
+    /// entity ID rather than in archetype columns, and returns its ID.
+    ///
+    /// Cold components suit data rarely used in hot loops, like names or
+    /// debug info. Since their values stay in place for the whole life of
+    /// the entity, swap-removes, archetype moves and sorting only touch hot
+    /// columns, while the value is cleared when the entity is removed or
+    /// loses the component. Cold components are matched by queries like any
+    /// other, but their values are accessed with [#getColdColumn] and
+    /// [#getWritableColdColumn] instead of [Archetype#getColumn].
+    public int createColdComponent(ColumnType<?> component) {
+        int idx = this.createComponent(component);
+        this.coldComponents = BitSets.growAndAdd(this.coldComponents, idx);
+        if (idx >= this.coldColumns.length) {
+            this.coldColumns = Arrays.copyOf(this.coldColumns, idx + 1);
+            this.coldColumnsShared = Arrays.copyOf(this.coldColumnsShared, idx + 1);
+        }
+        this.coldColumns[idx] = component.createStorage(this.entities.length);
+        return idx;
+    }
+
     public int createResource() {
+        return this.createResource(null);
+    }
+
+    /// Registers a resource - a single value shared by the whole world, like
+    /// a spatial grid or time of day - and returns its ID.
+    ///
+    /// Systems should declare access to resources with
+    /// [Schedule.ScheduleSystemBuilder#readsResources] and
+    /// [Schedule.ScheduleSystemBuilder#writesResources], so they can be run
+    /// in parallel with systems not using them.
+    public int createResource(@Nullable Object value) {
         int idx = this.componentsAndResources.size();
         this.componentsAndResources.add(null);
+        if (idx == this.resources.length) {
+            this.resources = Arrays.copyOf(this.resources, this.resources.length * 2);
+        }
+        this.resources[idx] = value;
         return idx;
     }
 
+    /// Registers an event channel as a resource and returns its ID. Systems
+    /// get the channel with [#getResource] and declare access to it like to
+    /// any other resource, see [EventChannel] for details.
+    public int createEvents(EventChannel<?> channel) {
+        this.eventChannels.add(channel);
+        return this.createResource(channel);
+    }
+
+    /// Makes events sent since the previous call readable in all channels
+    /// registered with [#createEvents]. Should be called once per tick while
+    /// no systems are running, e.g. before running the main schedule.
+    public void updateEvents() {
+        for (int i = 0; i < this.eventChannels.size(); i++) {
+            this.eventChannels.get(i).update();
+        }
+    }
+
+    /// Returns the current value of the resource.
+    ///
+    /// Resources are identified by plain IDs like components, so the type is
+    /// not checked here and a wrong one throws [ClassCastException] where
+    /// the value is used.
+    ///
+    /// @throws IllegalArgumentException if the ID is not a resource
+    @SuppressWarnings("unchecked")
+    public <T> T getResource(int resource) {
+        this.checkResource(resource);
+        return (T) this.resources[resource];
+    }
+
+    /// Replaces the value of the resource.
+    ///
+    /// @throws IllegalArgumentException if the ID is not a resource
+    public void setResource(int resource, @Nullable Object value) {
+        this.checkResource(resource);
+        this.resources[resource] = value;
+    }
+
+    private void checkResource(int id) {
+        if (id < 0 || id >= this.componentsAndResources.size() || this.isComponent(id)) {
+            throw new IllegalArgumentException("ID " + id + " is not a resource");
+        }
+    }
+
+    /// Returns whether the ID belongs to a component rather than a resource.
+    public boolean isComponent(int id) {
+        return id < this.components.length * Long.SIZE && BitSets.contains(this.components, id);
+    }
+
+    /// Returns whether the ID belongs to a component created with
+    /// [#createColdComponent].
+    public boolean isCold(int id) {
+        return id < this.coldComponents.length * Long.SIZE && BitSets.contains(this.coldComponents, id);
+    }
+
+    /// Returns the storage of a cold component, indexed by entity ID.
+    ///
+    /// @throws IllegalArgumentException if the component is not cold
+    @SuppressWarnings("unchecked")
+    public <S> S getColdColumn(int component) {
+        if (!this.isCold(component)) {
+            throw new IllegalArgumentException("Component " + component + " is not cold");
+        }
+        return (S) this.coldColumns[component];
+    }
+
+    /// Returns the storage of a cold component for modification, copying it
+    /// first if it's shared with a [WorldFork]. Changed entities should be
+    /// passed to [#markEntityDirty] to be included in delta snapshots.
+    ///
+    /// @throws IllegalArgumentException if the component is not cold
+    @SuppressWarnings("unchecked")
+    public <S> S getWritableColdColumn(int component) {
+        if (!this.isCold(component)) {
+            throw new IllegalArgumentException("Component " + component + " is not cold");
+        }
+        if (this.coldColumnsShared[component]) {
+            this.coldColumns[component] = this.componentColumnType(component).growStorage(this.coldColumns[component], this.entities.length);
+            this.coldColumnsShared[component] = false;
+        }
+        return (S) this.coldColumns[component];
+    }
+
+    /// Marks cold components of the entity as changed since the last
+    /// snapshot.
+    public void markEntityDirty(int entity) {
+        this.dirtyEntityChunks[entity >>> Archetype.CHUNK_SHIFT] = true;
+    }
+
+    /// Clears values of cold components the entity no longer has.
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void clearColdComponents(int entity, Archetype archetype, @Nullable Archetype newArchetype) {
+        for (int component : archetype.coldComponents) {
+            if (newArchetype == null || !newArchetype.has(component)) {
+                ColumnType type = this.componentColumnType(component);
+                type.remove(this.getWritableColdColumn(component), entity);
+            }
+        }
+    }
+
+    /// Grows cold columns along with [#entities].
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void growColdColumns(int capacity) {
+        for (int component = BitSets.nextSetBit(this.coldComponents, 0); component != -1; component = BitSets.nextSetBit(this.coldComponents, component + 1)) {
+            ColumnType type = this.componentColumnType(component);
+            this.coldColumns[component] = type.growStorage(this.coldColumns[component], capacity);
+            this.coldColumnsShared[component] = false;
+        }
+    }
+
     @SuppressWarnings("unchecked")
     public <T> ColumnType<T> componentColumnType(int id) {
         return (ColumnType<T>) this.componentsAndResources.get((id));
@@ -84,7 +271,168 @@ public final class World {
         return this.entityCount;
     }
 
+    /// Starts recording structural changes to the journal, or stops if it's
+    /// `null`. The journal is not closed when replaced.
+    public void setJournal(@Nullable JournalWriter journal) {
+        this.journal = journal;
+    }
+
+    /// Creates an index to look up entities by the value of an
+    /// [ColumnType.IntArray] or [ColumnType.LongArray] component, or returns
+    /// the existing one. Entities that already have the component are
+    /// indexed right away.
+    ///
+    /// Every structural change then also updates the indexes of affected
+    /// components, see [ValueIndex].
+    ///
+    /// @throws IllegalArgumentException if the component is not an
+    ///                                  `IntArray` or `LongArray`, or is cold
+    public ValueIndex createIndex(int component) {
+        ColumnType<?> columnType = this.isComponent(component) ? this.componentColumnType(component) : null;
+        if (columnType != ColumnType.IntArray.INSTANCE && columnType != ColumnType.LongArray.INSTANCE) {
+            throw new IllegalArgumentException("Only IntArray and LongArray components can be indexed, got " + component);
+        }
+        if (this.isCold(component)) {
+            throw new IllegalArgumentException("Cold components can't be indexed, got " + component);
+        }
+        if (component >= this.indexes.length) {
+            this.indexes = Arrays.copyOf(this.indexes, component + 1);
+        }
+        var index = this.indexes[component];
+        if (index == null) {
+            index = new ValueIndex(this, component);
+            index.rebuild();
+            this.indexes[component] = index;
+            this.indexCount++;
+        }
+        return index;
+    }
+
+    public @Nullable ValueIndex getIndex(int component) {
+        return component < this.indexes.length ? this.indexes[component] : null;
+    }
+
+    public void removeIndex(int component) {
+        if (component < this.indexes.length && this.indexes[component] != null) {
+            this.indexes[component] = null;
+            this.indexCount--;
+        }
+    }
+
+    /// Updates indexes after the entity was placed at the row of the
+    /// archetype.
+    private void updateIndexes(int entity, Archetype archetype, int row) {
+        if (this.indexCount == 0) {
+            return;
+        }
+        for (var index : this.indexes) {
+            if (index != null) {
+                index.update(entity, archetype, row);
+            }
+        }
+    }
+
+    /// Indexes all entities from scratch after columns were replaced
+    /// wholesale.
+    void rebuildIndexes() {
+        if (this.indexCount == 0) {
+            return;
+        }
+        for (var index : this.indexes) {
+            if (index != null) {
+                index.rebuild();
+            }
+        }
+    }
+
     public EntityHelper spawn(long[] componentMask) {
+        int entity = this.allocateEntity();
+        var archetype = this.getOrCreateArchetype(componentMask);
+        int row = archetype.add(entity);
+        this.placeEntity(entity, archetype, row);
+
+        return new EntityHelper(entity, archetype, row);
+    }
+
+    /// Creates a template of entities with the components, whose values are
+    /// then set on the prefab and copied to entities spawned with
+    /// [#instantiate].
+    ///
+    /// @throws IllegalArgumentException if the mask has IDs that are not
+    ///                                  components
+    public Prefab createPrefab(long[] componentMask) {
+        return new Prefab(this, this.masks.get(this.masks.intern(componentMask)));
+    }
+
+    /// Spawns `count` entities with the components and values of the prefab
+    /// and returns their IDs. The archetype grows at most once, and each
+    /// column is filled with a single [ColumnType#fillRange] call.
+    @SuppressWarnings("unchecked")
+    public int[] instantiate(Prefab prefab, int count) {
+        var archetype = this.getOrCreateArchetype(prefab.componentMask);
+        int firstRow = archetype.addRows(count);
+        for (int i = 0; i < prefab.components.length; i++) {
+            int component = prefab.components[i];
+            if (!this.isCold(component)) {
+                prefab.columnTypes[i].fillRange(prefab.columns[i], 0, archetype.columns[archetype.columnIndex(component)], firstRow, count);
+            }
+        }
+        int[] entities = this.placeRows(archetype, firstRow, count);
+        for (int i = 0; i < prefab.components.length; i++) {
+            int component = prefab.components[i];
+            if (this.isCold(component)) {
+                Object column = this.getWritableColdColumn(component);
+                for (int entity : entities) {
+                    prefab.columnTypes[i].transfer(prefab.columns[i], 0, column, entity);
+                }
+            }
+        }
+        return entities;
+    }
+
+    /// Spawns `count` copies of the entity with all its components and
+    /// returns their IDs, like [#instantiate] with the entity as the
+    /// prefab.
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public int[] cloneEntity(int entity, int count) {
+        long location = this.entities[entity];
+        if ((location & REMOVED_ENTITY_FLAG) != 0) {
+            throw new IllegalArgumentException("Entity " + entity + " was removed");
+        }
+        var archetype = this.archetypes.get((int) (location >> 32));
+        int row = (int) location;
+        int firstRow = archetype.addRows(count);
+        // columns are read after adding rows, which may replace them
+        for (int i = 0; i < archetype.components.length; i++) {
+            archetype.columnTypes[i].fillRange(archetype.columns[i], row, archetype.columns[i], firstRow, count);
+        }
+        int[] entities = this.placeRows(archetype, firstRow, count);
+        for (int component : archetype.coldComponents) {
+            ColumnType type = this.componentColumnType(component);
+            Object column = this.getWritableColdColumn(component);
+            for (int clone : entities) {
+                type.transfer(column, entity, column, clone);
+            }
+        }
+        return entities;
+    }
+
+    /// Allocates entities for rows reserved with [Archetype#addRows] after
+    /// their columns were filled, so value indexes see the data.
+    private int[] placeRows(Archetype archetype, int firstRow, int count) {
+        int[] entities = new int[count];
+        for (int i = 0; i < count; i++) {
+            int entity = this.allocateEntity();
+            archetype.entities[firstRow + i] = entity;
+            this.placeEntity(entity, archetype, firstRow + i);
+            entities[i] = entity;
+        }
+        return entities;
+    }
+
+    /// Takes an ID for a new entity, reusing removed ones first. The entity
+    /// should then be added to an archetype and passed to [#placeEntity].
+    int allocateEntity() {
         int entity;
         if (this.removedEntity != -1) {
             entity = this.removedEntity;
@@ -96,19 +444,47 @@ public final class World {
 
             if (entity == this.entities.length) {
                 this.entities = Arrays.copyOf(this.entities, this.entities.length * 2);
+                this.entitiesShared = false;
+                this.dirtyEntityChunks = Arrays.copyOf(this.dirtyEntityChunks, Archetype.chunkCount(this.entities.length));
+                this.growColdColumns(this.entities.length);
             }
         }
+        return entity;
+    }
 
-        var archetype = this.archetypeMap.get(componentMask);
-        if (archetype == null) {
-            archetype = createArchetype(componentMask);
+    /// Records a new entity from [#allocateEntity] as living at the row.
+    void placeEntity(int entity, Archetype archetype, int row) {
+        this.setLocation(entity, ((long) archetype.id << 32) | row);
+        this.entityCount++;
+        this.updateIndexes(entity, archetype, row);
+        if (this.journal != null) {
+            this.journal.spawn(entity, archetype.componentMask);
         }
+    }
 
-        int row = archetype.add(entity);
-        this.entities[entity] = ((long) archetype.id << 32) | row;
-        this.entityCount++;
+    /// Returns the location of the entity packed into a `long`, with the
+    /// archetype ID in the high 32 bits and the row in the low ones, or `-1`
+    /// if the entity was removed. The location stays valid until the next
+    /// structural change.
+    public long locate(int entity) {
+        long location = this.entities[entity];
+        return (location & REMOVED_ENTITY_FLAG) != 0 ? -1 : location;
+    }
 
-        return new EntityHelper(entity, archetype, row);
+    /// Returns the archetype of a location from [#locate].
+    public Archetype archetypeAt(long location) {
+        return this.archetypes.get((int) (location >> 32));
+    }
+
+    /// Creates a reusable accessor for random access to entities.
+    public EntityCursor cursor() {
+        return new EntityCursor(this);
+    }
+
+    /// Creates a reusable batch for gathering and scattering component
+    /// values of many entities at once.
+    public EntityBatch createBatch() {
+        return new EntityBatch(this);
     }
 
     /// Returns a helper object to set the state of the entity with chaining,
@@ -128,11 +504,21 @@ public final class World {
     }
 
     public void removeEntity(int entity) {
+        if (this.journal != null) {
+            this.journal.remove(entity);
+        }
         long location = this.entities[entity];
 
-        this.entities[entity] = this.removedEntity | REMOVED_ENTITY_FLAG;
+        this.setLocation(entity, this.removedEntity | REMOVED_ENTITY_FLAG);
         this.removedEntity = entity;
         this.entityCount--;
+        if (this.indexCount != 0) {
+            for (var index : this.indexes) {
+                if (index != null) {
+                    index.remove(entity);
+                }
+            }
+        }
 
         int archetypeId = (int) (location >> 32);
         int pos = (int) location;
@@ -140,64 +526,61 @@ public final class World {
         var archetype = this.archetypes.get(archetypeId);
         int swapped = archetype.remove(entity, pos);
         if (swapped != -1) {
-            this.entities[swapped] = location;
+            this.setLocation(swapped, location);
         }
+        this.clearColdComponents(entity, archetype, null);
     }
 
     public EntityHelper insertComponents(int entity, long[] componentMask) {
+        if (this.journal != null) {
+            this.journal.insertComponents(entity, componentMask);
+        }
         long location = this.entities[entity];
         int archetypeId = (int) (location >> 32);
         int pos = (int) location;
 
         var archetype = this.archetypes.get(archetypeId);
 
-        var newComponentMask = BitSets.union(archetype.componentMask, componentMask);
-
-        var newArchetype = this.archetypeMap.get(newComponentMask);
-        if (newArchetype == null) {
-            newArchetype = this.createArchetype(newComponentMask);
-        }
+        var newArchetype = this.getOrCreateArchetype(archetype.componentMask, componentMask, BitSets.EMPTY);
 
         int newPos = move(entity, pos, archetype, newArchetype);
-        this.entities[entity] = ((long) newArchetype.id << 32L) | newPos;
+        this.setLocation(entity, ((long) newArchetype.id << 32L) | newPos);
 
         return new EntityHelper(entity, newArchetype, newPos);
     }
 
     public EntityHelper removeComponents(int entity, long[] componentMask) {
+        if (this.journal != null) {
+            this.journal.removeComponents(entity, componentMask);
+        }
         long location = this.entities[entity];
         int archetypeId = (int) (location >> 32);
         int pos = (int) location;
 
         var archetype = this.archetypes.get(archetypeId);
 
-        var newComponentMask = BitSets.difference(archetype.componentMask, componentMask);
-        var newArchetype = this.archetypeMap.get(newComponentMask);
-        if (newArchetype == null) {
-            newArchetype = createArchetype(newComponentMask);
-        }
+        var newArchetype = this.getOrCreateArchetype(archetype.componentMask, BitSets.EMPTY, componentMask);
 
         int newPos = move(entity, pos, archetype, newArchetype);
-        this.entities[entity] = ((long) newArchetype.id << 32L) | newPos;
+        this.setLocation(entity, ((long) newArchetype.id << 32L) | newPos);
 
         return new EntityHelper(entity, newArchetype, newPos);
     }
 
     public EntityHelper modifyComponents(int entity, long[] maskToAdd, long[] maskToRemove) {
+        if (this.journal != null) {
+            this.journal.modifyComponents(entity, maskToAdd, maskToRemove);
+        }
         long location = this.entities[entity];
         int archetypeId = (int) (location >> 32);
         int pos = (int) location;
 
         var archetype = this.archetypes.get(archetypeId);
 
-        var newComponentMask = BitSets.unionAndDifference(archetype.componentMask, maskToAdd, maskToRemove);
-        var newArchetype = this.archetypeMap.get(newComponentMask);
-        if (newArchetype == null) {
-            newArchetype = createArchetype(newComponentMask);
-        }
+        var newArchetype = this.getOrCreateArchetype(archetype.componentMask, maskToAdd, maskToRemove);
 
         int newPos = move(entity, pos, archetype, newArchetype);
-        this.entities[entity] = ((long) newArchetype.id << 32L) | newPos;
+        this.setLocation(entity, ((long) newArchetype.id << 32L) | newPos);
 
         return new EntityHelper(entity, newArchetype, newPos);
     }
@@ -233,18 +616,91 @@ public final class World {
         // 3. delete entry in the old archetype
         int swapped = archetype.remove(entity, pos);
         if (swapped != -1) {
-            this.entities[swapped] = location;
+            this.setLocation(swapped, location);
         }
+        this.clearColdComponents(entity, archetype, newArchetype);
 
+        this.updateIndexes(entity, newArchetype, newPos);
         return newPos;
     }
 
+    void setLocation(int entity, long location) {
+        if (this.entitiesShared) {
+            this.entities = this.entities.clone();
+            this.entitiesShared = false;
+        }
+        this.entities[entity] = location;
+        this.dirtyEntityChunks[entity >>> Archetype.CHUNK_SHIFT] = true;
+    }
+
+    /// Captures the current entities and components, so they can be brought
+    /// back later with [#restore]. Nothing is copied until the world is
+    /// modified, see [WorldFork].
+    ///
+    /// Columns modified directly, rather than through [EntityHelper] or a
+    /// system declaring them as written, have to be obtained with
+    /// [Archetype#getWritableColumn], otherwise the fork sees the changes.
+    /// Resources and events are not part of the fork.
+    public WorldFork fork() {
+        this.entitiesShared = true;
+        Arrays.fill(this.coldColumnsShared, true);
+        int archetypeCount = this.archetypes.size();
+        var archetypeEntities = new int[archetypeCount][];
+        var archetypeEntityCounts = new int[archetypeCount];
+        var archetypeColumns = new Object[archetypeCount][];
+        for (int i = 0; i < archetypeCount; i++) {
+            var archetype = this.archetypes.get(i);
+            archetype.share();
+            archetypeEntities[i] = archetype.entities;
+            archetypeEntityCounts[i] = archetype.entityCount();
+            archetypeColumns[i] = archetype.columns.clone();
+        }
+        return new WorldFork(this, this.entities, this.entityCount, this.removedEntity, archetypeEntities, archetypeEntityCounts, archetypeColumns, this.coldColumns.clone());
+    }
+
+    /// Brings back entities and components captured by [#fork]. Archetypes
+    /// created after forking stay, but become empty.
+    ///
+    /// Restoring is not recorded by a [JournalWriter], so a journal doesn't
+    /// replay correctly past this point.
+    public void restore(WorldFork fork) {
+        if (fork.world != this) {
+            throw new IllegalArgumentException("Fork belongs to another world");
+        }
+        this.entities = fork.entities;
+        this.entitiesShared = true;
+        this.entityCount = fork.entityCount;
+        this.removedEntity = fork.removedEntity;
+        this.dirtyEntityChunks = new boolean[Archetype.chunkCount(this.entities.length)];
+        Arrays.fill(this.dirtyEntityChunks, true);
+
+        for (int component = BitSets.nextSetBit(this.coldComponents, 0); component != -1; component = BitSets.nextSetBit(this.coldComponents, component + 1)) {
+            if (component < fork.coldColumns.length) {
+                this.coldColumns[component] = fork.coldColumns[component];
+                this.coldColumnsShared[component] = true;
+            } else {
+                this.coldColumns[component] = this.componentColumnType(component).createStorage(this.entities.length);
+                this.coldColumnsShared[component] = false;
+            }
+        }
+        for (int i = 0; i < this.archetypes.size(); i++) {
+            var archetype = this.archetypes.get(i);
+            if (i < fork.archetypeEntities.length) {
+                archetype.restore(fork.archetypeEntities[i], fork.archetypeEntityCounts[i], fork.archetypeColumns[i]);
+            } else {
+                archetype.reset();
+            }
+        }
+        this.rebuildIndexes();
+    }
+
     public Schedule createSchedule(ExecutorService threadPool) {
         return new MultithreadedSchedule(this, threadPool);
     }
 
     public void runOnce(long[] query, SystemRunnable system) {
-        var list = this.queries.get(query);
+        int queryId = this.masks.find(query);
+        var list = queryId == -1 ? null : this.queries.get(queryId);
         if (list == null) {
             list = new ArrayList<>();
             for (var archetype : this.archetypes) {
@@ -253,17 +709,59 @@ public final class World {
                 }
             }
         }
+        for (int i = 0; i < list.size(); i++) {
+            list.get(i).prepareWrites(query);
+        }
 
         system.run(list, this);
     }
 
+    Archetype getOrCreateArchetype(long[] componentMask) {
+        return this.getOrCreateArchetype(this.masks.intern(componentMask));
+    }
+
+    /// Returns the archetype with components of `mask`, plus `maskToAdd`
+    /// and minus `maskToRemove`. The combined mask is computed as a single
+    /// `long` when all components fit in it, or in [#maskScratch]
+    /// otherwise, so nothing is allocated unless the archetype is new.
+    private Archetype getOrCreateArchetype(long[] mask, long[] maskToAdd, long[] maskToRemove) {
+        if (mask.length <= 1 && maskToAdd.length <= 1) {
+            long word = (BitSets.word(mask, 0) | BitSets.word(maskToAdd, 0)) & ~BitSets.word(maskToRemove, 0);
+            return this.getOrCreateArchetype(this.masks.intern(word));
+        }
+        int length = Math.max(mask.length, maskToAdd.length);
+        if (this.maskScratch.length < length) {
+            this.maskScratch = new long[length];
+        }
+        BitSets.unionAndDifferenceInto(mask, maskToAdd, maskToRemove, this.maskScratch);
+        return this.getOrCreateArchetype(this.masks.intern(this.maskScratch));
+    }
+
+    private Archetype getOrCreateArchetype(int maskId) {
+        if (maskId < this.archetypesByMask.length) {
+            var archetype = this.archetypesByMask[maskId];
+            if (archetype != null) {
+                return archetype;
+            }
+        }
+        return this.createArchetype(maskId);
+    }
+
     Archetype createArchetype(long[] componentMask) {
-        var archetype = new Archetype(this, this.archetypes.size(), componentMask);
+        return this.createArchetype(this.masks.intern(componentMask));
+    }
+
+    private Archetype createArchetype(int maskId) {
+        var componentMask = this.masks.get(maskId);
+        var archetype = new Archetype(this, this.archetypes.size(), maskId, componentMask);
         this.archetypes.add(archetype);
-        this.archetypeMap.put(componentMask, archetype);
+        if (maskId >= this.archetypesByMask.length) {
+            this.archetypesByMask = Arrays.copyOf(this.archetypesByMask, Math.max(maskId + 1, this.archetypesByMask.length * 2));
+        }
+        this.archetypesByMask[maskId] = archetype;
 
-        for (var entry : this.queries.entrySet()) {
-            var query = entry.getKey();
+        for (var entry : this.queries.int2ObjectEntrySet()) {
+            var query = this.masks.get(entry.getIntKey());
             if (BitSets.isSubset(componentMask, query)) {
                 entry.getValue().add(archetype);
             }
@@ -273,23 +771,47 @@ public final class World {
     }
 
     /// Returns a list of archetypes matching the query. The list is 'live' and
-    /// will be updated if matching archetypes are created.
-    List<Archetype> getQueryArchetypes(long[] query) {
-        var list = this.queries.get(query);
+    /// will be updated if matching archetypes are created, so it should not
+    /// be modified.
+    public List<Archetype> getQueryArchetypes(long[] query) {
+        int queryId = this.masks.intern(query);
+        var list = this.queries.get(queryId);
 
         if (list == null) {
             list = new ArrayList<>();
             for (var archetype : this.archetypes) {
-                if (BitSets.isSubset(query, archetype.componentMask)) {
+                if (BitSets.isSubset(archetype.componentMask, query)) {
                     list.add(archetype);
                 }
             }
-            this.queries.put(query, list);
+            this.queries.put(queryId, list);
         }
 
         return list;
     }
 
+    /// Creates a typed query over the component, where `A` is the type of
+    /// its column storage, e.g. `int[]` for [ColumnType.IntArray]. The type
+    /// is not checked, so a wrong one throws [ClassCastException] when
+    /// iterating.
+    public <A> Query1<A> query(int component) {
+        return new Query1<>(this, component);
+    }
+
+    /// Creates a typed query over two components.
+    ///
+    /// @see #query(int)
+    public <A, B> Query2<A, B> query(int componentA, int componentB) {
+        return new Query2<>(this, componentA, componentB);
+    }
+
+    /// Creates a typed query over three components.
+    ///
+    /// @see #query(int)
+    public <A, B, C> Query3<A, B, C> query(int componentA, int componentB, int componentC) {
+        return new Query3<>(this, componentA, componentB, componentC);
+    }
+
     /// Allows setting entity's components in a way that avoids boxing
     /// primitives to the extent possible. Also, it is returned from
     /// [World#spawn] where it contains id of the created entity.
@@ -321,48 +843,350 @@ public final class World {
             this.row = row;
         }
 
+        /// Returns the row of the entity in its archetype.
+        public int row() {
+            return this.row;
+        }
+
+        /// Returns the column of the component for modifying the entity's
+        /// [#row], and marks the row as changed. Used by setters of column
+        /// types generated for [Component] records.
+        @SuppressWarnings("unchecked")
+        public <S> S writableColumn(int component) {
+            var column = (S) this.archetype.getWritableColumn(component);
+            this.archetype.markDirty(this.row);
+            return column;
+        }
+
+        /// Returns the storage of a cold component for modifying the value at
+        /// [#entity], and marks it as changed.
+        ///
+        /// @see World#getWritableColdColumn
+        public <S> S coldColumn(int component) {
+            var world = this.archetype.world;
+            S column = world.getWritableColdColumn(component);
+            world.markEntityDirty(this.entity);
+            return column;
+        }
+
         /// Sets value for an [ColumnType.IntArray] component, otherwise
-        /// either throws [ClassCastException] or leaves the column in an
-        /// invalid state.
+        /// throws [ClassCastException].
         public EntityHelper setInt(int component, int value) {
-            assert this.archetype.columnTypes[component] == ColumnType.IntArray.INSTANCE;
-
-            ((int[]) this.archetype.getColumn(component))[this.row] = value;
+            this.archetype.setInt(component, this.row, value);
             return this;
         }
 
+        public int getInt(int component) {
+            return this.archetype.getInt(component, this.row);
+        }
+
         /// Sets value for an [ColumnType.LongArray] component, otherwise
-        /// either throws [ClassCastException] or leaves the column in an
-        /// invalid state.
+        /// throws [ClassCastException].
         public EntityHelper setLong(int component, long value) {
-            assert this.archetype.columnTypes[component] == ColumnType.LongArray.INSTANCE;
-
-            ((long[]) this.archetype.getColumn(component))[this.row] = value;
+            this.archetype.setLong(component, this.row, value);
             return this;
         }
 
+        public long getLong(int component) {
+            return this.archetype.getLong(component, this.row);
+        }
+
         /// Sets value for an [ColumnType.ObjectArray] component, otherwise
-        /// either throws [ClassCastException] or leaves the column in an
-        /// invalid state.
-        @SuppressWarnings("unchecked")
+        /// throws [ClassCastException].
         public <T> EntityHelper setObject(int component, T value) {
-            assert this.archetype.columnTypes[component] == ColumnType.ObjectArray.INSTANCE;
-
-            ((T[]) this.archetype.getColumn(component))[this.row] = value;
+            this.archetype.setObject(component, this.row, value);
             return this;
         }
 
-        /// Sets value for an [ColumnType.BitSet] component, otherwise either
-        /// throws [ClassCastException] or leaves the column in an invalid
-        /// state.
+        public <T> T getObject(int component) {
+            return this.archetype.getObject(component, this.row);
+        }
+
+        /// Sets value for an [ColumnType.BitSet] component, otherwise throws
+        /// [ClassCastException].
         public EntityHelper setBit(int component, boolean value) {
-            assert this.archetype.columnTypes[component] == ColumnType.BitSet.INSTANCE;
+            this.archetype.setBit(component, this.row, value);
+            return this;
+        }
+
+        public boolean getBit(int component) {
+            return this.archetype.getBit(component, this.row);
+        }
+
+        /// Sets value for an [ColumnType.ByteArray] component, otherwise
+        /// throws [ClassCastException].
+        public EntityHelper setByte(int component, byte value) {
+            this.archetype.setByte(component, this.row, value);
+            return this;
+        }
+
+        public byte getByte(int component) {
+            return this.archetype.getByte(component, this.row);
+        }
+
+        /// Sets value for an [ColumnType.ShortArray] component, otherwise
+        /// throws [ClassCastException].
+        public EntityHelper setShort(int component, short value) {
+            this.archetype.setShort(component, this.row, value);
+            return this;
+        }
+
+        public short getShort(int component) {
+            return this.archetype.getShort(component, this.row);
+        }
+
+        /// Sets value for an [ColumnType.CharArray] component, otherwise
+        /// throws [ClassCastException].
+        public EntityHelper setChar(int component, char value) {
+            this.archetype.setChar(component, this.row, value);
+            return this;
+        }
+
+        public char getChar(int component) {
+            return this.archetype.getChar(component, this.row);
+        }
+
+        /// Sets value for an [ColumnType.FloatArray] component, otherwise
+        /// throws [ClassCastException].
+        public EntityHelper setFloat(int component, float value) {
+            this.archetype.setFloat(component, this.row, value);
+            return this;
+        }
+
+        public float getFloat(int component) {
+            return this.archetype.getFloat(component, this.row);
+        }
+
+        /// Sets value for an [ColumnType.DoubleArray] component, otherwise
+        /// throws [ClassCastException].
+        public EntityHelper setDouble(int component, double value) {
+            this.archetype.setDouble(component, this.row, value);
+            return this;
+        }
+
+        public double getDouble(int component) {
+            return this.archetype.getDouble(component, this.row);
+        }
+
+        /// Sets value for an [ColumnType.HalfFloatArray] component, otherwise
+        /// throws [ClassCastException].
+        public EntityHelper setHalf(int component, float value) {
+            this.archetype.setHalf(component, this.row, value);
+            return this;
+        }
+
+        public float getHalf(int component) {
+            return this.archetype.getHalf(component, this.row);
+        }
+
+        /// Sets value for an [ColumnType.FixedPointColumn] component, otherwise
+        /// throws [ClassCastException].
+        public EntityHelper setFixed(int component, double value) {
+            this.archetype.setFixed(component, this.row, value);
+            return this;
+        }
+
+        public double getFixed(int component) {
+            return this.archetype.getFixed(component, this.row);
+        }
+
+        /// Sets lanes of a two-lane [ColumnType.FloatVectorColumn] component,
+        /// otherwise throws [IllegalArgumentException].
+        public EntityHelper setVector(int component, float x, float y) {
+            this.archetype.setVector(component, this.row, x, y);
+            return this;
+        }
 
-            var bitset = (long[]) this.archetype.getColumn(component);
-            BitSets.set(bitset, this.row, value);
+        /// Sets lanes of a three-lane [ColumnType.FloatVectorColumn]
+        /// component, otherwise throws [IllegalArgumentException].
+        public EntityHelper setVector(int component, float x, float y, float z) {
+            this.archetype.setVector(component, this.row, x, y, z);
             return this;
         }
 
-        // TODO: add other primitive specializations
+        public float getVector(int component, int lane) {
+            return this.archetype.getVector(component, this.row, lane);
+        }
+    }
+
+    /// Reusable accessor for random access to entities, which unlike
+    /// [EntityHelper] doesn't allocate per entity. Created with
+    /// [World#cursor] and pointed at entities with [#moveTo].
+    ///
+    /// The cursor stays at the entity's row, so it has to be moved again
+    /// after any structural change, even of other entities.
+    ///
+    /// ```java
+    /// var cursor = world.cursor();
+    /// for (int target : targets) {
+    ///     if (cursor.moveTo(target)) {
+    ///         cursor.setInt(health, cursor.getInt(health) - damage);
+    ///     }
+    ///}
+    ///```
+    public static final class EntityCursor {
+        private final World world;
+        private int entity = -1;
+        private @Nullable Archetype archetype;
+        private int row;
+
+        EntityCursor(World world) {
+            this.world = world;
+        }
+
+        /// Points the cursor at the entity and returns `true`, or returns
+        /// `false` if it was removed.
+        public boolean moveTo(int entity) {
+            long location = this.world.entities[entity];
+            if ((location & REMOVED_ENTITY_FLAG) != 0) {
+                this.entity = -1;
+                this.archetype = null;
+                return false;
+            }
+            this.entity = entity;
+            this.archetype = this.world.archetypes.get((int) (location >> 32));
+            this.row = (int) location;
+            return true;
+        }
+
+        /// Spawns an entity and points the cursor at it.
+        public EntityCursor spawn(long[] componentMask) {
+            int entity = this.world.allocateEntity();
+            var archetype = this.world.getOrCreateArchetype(componentMask);
+            int row = archetype.add(entity);
+            this.world.placeEntity(entity, archetype, row);
+            this.entity = entity;
+            this.archetype = archetype;
+            this.row = row;
+            return this;
+        }
+
+        /// Returns the entity the cursor is at, or `-1`.
+        public int entity() {
+            return this.entity;
+        }
+
+        public int row() {
+            return this.row;
+        }
+
+        public Archetype archetype() {
+            if (this.archetype == null) {
+                throw new IllegalStateException("Cursor is not at an entity");
+            }
+            return this.archetype;
+        }
+
+        public boolean has(int component) {
+            return this.archetype().has(component);
+        }
+
+        public int getInt(int component) {
+            return this.archetype().getInt(component, this.row);
+        }
+
+        public EntityCursor setInt(int component, int value) {
+            this.archetype().setInt(component, this.row, value);
+            return this;
+        }
+
+        public long getLong(int component) {
+            return this.archetype().getLong(component, this.row);
+        }
+
+        public EntityCursor setLong(int component, long value) {
+            this.archetype().setLong(component, this.row, value);
+            return this;
+        }
+
+        public <T> T getObject(int component) {
+            return this.archetype().getObject(component, this.row);
+        }
+
+        public <T> EntityCursor setObject(int component, T value) {
+            this.archetype().setObject(component, this.row, value);
+            return this;
+        }
+
+        public boolean getBit(int component) {
+            return this.archetype().getBit(component, this.row);
+        }
+
+        public EntityCursor setBit(int component, boolean value) {
+            this.archetype().setBit(component, this.row, value);
+            return this;
+        }
+
+        public byte getByte(int component) {
+            return this.archetype().getByte(component, this.row);
+        }
+
+        public EntityCursor setByte(int component, byte value) {
+            this.archetype().setByte(component, this.row, value);
+            return this;
+        }
+
+        public short getShort(int component) {
+            return this.archetype().getShort(component, this.row);
+        }
+
+        public EntityCursor setShort(int component, short value) {
+            this.archetype().setShort(component, this.row, value);
+            return this;
+        }
+
+        public char getChar(int component) {
+            return this.archetype().getChar(component, this.row);
+        }
+
+        public EntityCursor setChar(int component, char value) {
+            this.archetype().setChar(component, this.row, value);
+            return this;
+        }
+
+        public float getFloat(int component) {
+            return this.archetype().getFloat(component, this.row);
+        }
+
+        public EntityCursor setFloat(int component, float value) {
+            this.archetype().setFloat(component, this.row, value);
+            return this;
+        }
+
+        public double getDouble(int component) {
+            return this.archetype().getDouble(component, this.row);
+        }
+
+        public EntityCursor setDouble(int component, double value) {
+            this.archetype().setDouble(component, this.row, value);
+            return this;
+        }
+
+        public float getHalf(int component) {
+            return this.archetype().getHalf(component, this.row);
+        }
+
+        public EntityCursor setHalf(int component, float value) {
+            this.archetype().setHalf(component, this.row, value);
+            return this;
+        }
+
+        public double getFixed(int component) {
+            return this.archetype().getFixed(component, this.row);
+        }
+
+        public EntityCursor setFixed(int component, double value) {
+            this.archetype().setFixed(component, this.row, value);
+            return this;
+        }
+
+        public float getVector(int component, int lane) {
+            return this.archetype().getVector(component, this.row, lane);
+        }
+
+        public EntityCursor setVector(int component, int lane, float value) {
+            this.archetype().setVector(component, this.row, lane, value);
+            return this;
+        }
     }
 }
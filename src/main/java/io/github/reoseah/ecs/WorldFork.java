@@ -0,0 +1,39 @@
+package io.github.reoseah.ecs;
+
+/// State of a [World] captured by [World#fork], which can be brought back
+/// with [World#restore], e.g. to roll back a mispredicted tick.
+///
+/// A fork doesn't copy anything when created, it keeps references to the
+/// entity table and the columns of every archetype, and the world copies each
+/// of them right before it's modified for the first time afterward. Forking
+/// every tick therefore costs roughly a copy of the columns that change
+/// during the tick, and columns that don't change are shared by all forks.
+///
+/// Restoring doesn't copy either, the world starts sharing the fork's arrays
+/// again, so a fork can be restored any number of times.
+public final class WorldFork {
+    final World world;
+    final long[] entities;
+    final int entityCount;
+    final int removedEntity;
+    final int[][] archetypeEntities;
+    final int[] archetypeEntityCounts;
+    final Object[][] archetypeColumns;
+    final Object[] coldColumns;
+
+    WorldFork(World world, long[] entities, int entityCount, int removedEntity, int[][] archetypeEntities, int[] archetypeEntityCounts, Object[][] archetypeColumns, Object[] coldColumns) {
+        this.world = world;
+        this.entities = entities;
+        this.entityCount = entityCount;
+        this.removedEntity = removedEntity;
+        this.archetypeEntities = archetypeEntities;
+        this.archetypeEntityCounts = archetypeEntityCounts;
+        this.archetypeColumns = archetypeColumns;
+        this.coldColumns = coldColumns;
+    }
+
+    /// Returns the number of live entities at the moment of forking.
+    public int entityCount() {
+        return this.entityCount;
+    }
+}
@@ -0,0 +1,550 @@
+package io.github.reoseah.ecs;
+
+import io.github.reoseah.ecs.bitmanipulation.BitSets;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/// Saves entities and components of a [World] to a file and loads them back.
+///
+/// The file is a columnar image of the world rather than a list of entities:
+/// the entity location table followed by each archetype's component mask,
+/// entity IDs and columns, each stored as a contiguous little-endian block.
+/// Both saving and loading map the file into memory and move every block
+/// with a single bulk copy, so the cost is close to that of copying the
+/// arrays themselves. A single mapping can't exceed 2 GB, so larger files
+/// are mapped in consecutive windows, and ranges of rows are split so that
+/// no block crosses from one window to the next.
+///
+/// Besides full snapshots, [#saveDelta] writes only rows changed since the
+/// last snapshot, tracked in chunks by [Archetype#markDirty] and the entity
+/// location table. Spawned, removed and moved entities show up as changed
+/// locations and rows, so applying deltas in order on top of the full
+/// snapshot they follow with [#applyDelta] restores the latest state.
+///
+/// ```
+/// header:    magic, version, component count, entity count,
+///            removed entity, entity ID count, archetype count, flags,
+///            range count, cold component count
+///            for each range: start, length, locations (long x length)
+/// archetype: mask length, entity count, range count, padding,
+///            mask (long x mask length)
+///            for each range: start, length,
+///                            entity IDs (int x length), padding to 8
+///                            for each component: byte size (long), data,
+///                                                padding to 8
+/// cold:      for each range of the header:
+///                for each cold component: byte size (long), data,
+///                                         padding to 8
+/// ```
+///
+/// Cold components (see [World#createColdComponent]) are indexed by entity
+/// ID, so they are written for the same ranges as entity locations, after
+/// all archetypes.
+///
+/// A full snapshot has ranges covering everything, a single one unless it
+/// had to be split to fit in a mapping. Entity IDs and
+/// archetype IDs are preserved, so a world loaded from a snapshot behaves
+/// exactly like the one that was saved. Columns are written through
+/// [ColumnType#write], so custom column types have to implement it to be
+/// saved. Resources, events and schedules are not part of the snapshot.
+public final class WorldSnapshot {
+    private static final int MAGIC = 0x53434557; // "WECS" in little-endian
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 10 * Integer.BYTES;
+    private static final int SECTION_HEADER_SIZE = 4 * Integer.BYTES;
+    private static final int RANGE_HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int DELTA_FLAG = 1;
+
+    /// Maximum size of a single mapping, lowered in tests to exercise
+    /// splitting without multi-gigabyte files.
+    static int maxMappingSize = Integer.MAX_VALUE;
+
+    private WorldSnapshot() {
+    }
+
+    /// Writes the whole world to the file, replacing it if it exists.
+    ///
+    /// @throws IllegalArgumentException if a component column doesn't
+    ///                                  support snapshots
+    public static void save(World world, Path path) throws IOException {
+        write(world, path, false);
+    }
+
+    /// Writes rows and entity locations changed since the last snapshot
+    /// taken, loaded or applied to the world, replacing the file if it
+    /// exists.
+    ///
+    /// @throws IllegalArgumentException if a component column doesn't
+    ///                                  support snapshots
+    public static void saveDelta(World world, Path path) throws IOException {
+        write(world, path, true);
+    }
+
+    /// Reads a full snapshot into an empty world. The world should have the
+    /// same components created in the same order as the one that was saved.
+    ///
+    /// @throws IllegalStateException    if the world already has entities or
+    ///                                  archetypes
+    /// @throws IllegalArgumentException if the world's components don't
+    ///                                  match the snapshot
+    /// @throws IOException              if the file is not a full snapshot
+    ///                                  or can't be read
+    public static void load(World world, Path path) throws IOException {
+        if (world.entityCount != 0 || world.removedEntity != -1 || !world.archetypes.isEmpty()) {
+            throw new IllegalStateException("Snapshots can only be loaded into an empty world");
+        }
+        read(world, path, false);
+    }
+
+    /// Applies a delta on top of the world, which should be in the state of
+    /// the snapshot the delta was taken after, i.e. loaded from the previous
+    /// full snapshot with all deltas since then applied in order.
+    ///
+    /// @throws IllegalArgumentException if the world's components or
+    ///                                  archetypes don't match the delta
+    /// @throws IOException              if the file is not a snapshot or
+    ///                                  can't be read
+    public static void applyDelta(World world, Path path) throws IOException {
+        read(world, path, true);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void write(World world, Path path, boolean delta) throws IOException {
+        int idCount = countEntityIds(world);
+        int[] coldComponents = coldComponents(world);
+        var entityRanges = splitRanges(delta ? dirtyRanges(world.dirtyEntityChunks, idCount) : IntArrayList.of(0, idCount), (start, length) -> {
+            long largest = RANGE_HEADER_SIZE + (long) length * Long.BYTES;
+            for (int component : coldComponents) {
+                largest = Math.max(largest, Long.BYTES + align(columnSize(world.componentColumnType(component), world.getColdColumn(component), component, start, length)));
+            }
+            return largest;
+        });
+        long size = HEADER_SIZE;
+        for (int i = 0; i < entityRanges.size(); i += 2) {
+            size += RANGE_HEADER_SIZE + (long) entityRanges.getInt(i + 1) * Long.BYTES;
+        }
+
+        var archetypeRanges = new IntArrayList[world.archetypes.size()];
+        for (int i = 0; i < archetypeRanges.length; i++) {
+            var archetype = world.archetypes.get(i);
+            var ranges = delta ? dirtyRanges(archetype.dirtyChunks, archetype.entityCount()) : IntArrayList.of(0, archetype.entityCount());
+            archetypeRanges[i] = splitRanges(ranges, (start, length) -> largestArchetypeBlock(archetype, start, length));
+            size += archetypeSize(archetype, archetypeRanges[i]);
+        }
+        size += coldSize(world, coldComponents, entityRanges);
+
+        try (var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            var file = new MappedFile(channel, FileChannel.MapMode.READ_WRITE, size);
+            var header = file.reserve(HEADER_SIZE);
+            header.putInt(MAGIC);
+            header.putInt(VERSION);
+            header.putInt(world.componentsAndResources.size());
+            header.putInt(world.entityCount);
+            header.putInt(world.removedEntity);
+            header.putInt(idCount);
+            header.putInt(archetypeRanges.length);
+            header.putInt(delta ? DELTA_FLAG : 0);
+            header.putInt(entityRanges.size() / 2);
+            header.putInt(coldComponents.length);
+            for (int i = 0; i < entityRanges.size(); i += 2) {
+                int start = entityRanges.getInt(i);
+                int length = entityRanges.getInt(i + 1);
+                var buffer = file.reserve(RANGE_HEADER_SIZE + (long) length * Long.BYTES);
+                buffer.putInt(start);
+                buffer.putInt(length);
+                buffer.asLongBuffer().put(world.entities, start, length);
+                skip(buffer, length * Long.BYTES);
+            }
+
+            for (int i = 0; i < archetypeRanges.length; i++) {
+                writeArchetype(world.archetypes.get(i), archetypeRanges[i], file);
+            }
+            writeCold(world, coldComponents, entityRanges, file);
+            file.force();
+        }
+        clearDirty(world);
+    }
+
+    private static void read(World world, Path path, boolean delta) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("Not a world snapshot: " + path);
+            }
+            var file = new MappedFile(channel, FileChannel.MapMode.READ_ONLY, channel.size());
+            var header = file.reserve(HEADER_SIZE);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a world snapshot: " + path);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version);
+            }
+            int componentCount = header.getInt();
+            int entityCount = header.getInt();
+            int removedEntity = header.getInt();
+            int idCount = header.getInt();
+            int archetypeCount = header.getInt();
+            int flags = header.getInt();
+            if (!delta && (flags & DELTA_FLAG) != 0) {
+                throw new IOException("Delta snapshots should be loaded with applyDelta: " + path);
+            }
+            if (componentCount > world.componentsAndResources.size()) {
+                throw new IllegalArgumentException("Snapshot has " + componentCount + " components and resources, but the world only has " + world.componentsAndResources.size());
+            }
+            if (archetypeCount < world.archetypes.size()) {
+                throw new IllegalArgumentException("Snapshot has " + archetypeCount + " archetypes, but the world already has " + world.archetypes.size());
+            }
+            int entityRangeCount = header.getInt();
+            int[] coldComponents = coldComponents(world);
+            int coldCount = header.getInt();
+            if (coldCount != coldComponents.length) {
+                throw new IllegalArgumentException("Snapshot has " + coldCount + " cold components, but the world has " + coldComponents.length);
+            }
+
+            if (idCount > world.entities.length) {
+                int capacity = world.entities.length;
+                while (capacity < idCount) {
+                    capacity *= 2;
+                }
+                world.entities = Arrays.copyOf(world.entities, capacity);
+                world.dirtyEntityChunks = Arrays.copyOf(world.dirtyEntityChunks, Archetype.chunkCount(capacity));
+                world.growColdColumns(capacity);
+            }
+            var entityRanges = new IntArrayList(entityRangeCount * 2);
+            for (int i = 0; i < entityRangeCount; i++) {
+                var buffer = file.reserve(RANGE_HEADER_SIZE);
+                int start = buffer.getInt();
+                int length = buffer.getInt();
+                entityRanges.add(start);
+                entityRanges.add(length);
+                buffer = file.reserve((long) length * Long.BYTES);
+                buffer.asLongBuffer().get(world.entities, start, length);
+                skip(buffer, length * Long.BYTES);
+            }
+
+            for (int i = 0; i < archetypeCount; i++) {
+                readArchetype(world, i, file);
+            }
+            readCold(world, coldComponents, entityRanges, file);
+            world.entityCount = entityCount;
+            world.removedEntity = removedEntity;
+        }
+        world.rebuildIndexes();
+        clearDirty(world);
+    }
+
+    /// Returns the number of entity IDs ever handed out, i.e. live entities
+    /// plus the ones in the removed entity stack, which are all below it.
+    private static int countEntityIds(World world) {
+        int count = world.entityCount;
+        for (int entity = world.removedEntity; entity != -1; entity = (int) (world.entities[entity] & World.ENTITY_BITS)) {
+            count++;
+        }
+        return count;
+    }
+
+    /// Returns `start, length` pairs of rows in dirty chunks below `limit`,
+    /// merging adjacent chunks.
+    private static IntArrayList dirtyRanges(boolean[] dirtyChunks, int limit) {
+        var ranges = new IntArrayList();
+        int chunkSize = 1 << Archetype.CHUNK_SHIFT;
+        int chunks = Math.min(dirtyChunks.length, Archetype.chunkCount(limit));
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            if (!dirtyChunks[chunk]) {
+                continue;
+            }
+            int start = chunk * chunkSize;
+            while (chunk + 1 < chunks && dirtyChunks[chunk + 1]) {
+                chunk++;
+            }
+            int end = Math.min((chunk + 1) * chunkSize, limit);
+            ranges.add(start);
+            ranges.add(end - start);
+        }
+        return ranges;
+    }
+
+    /// Splits `start, length` pairs of rows into smaller ones, until the
+    /// largest block written for each of them fits in a single mapping.
+    private static IntArrayList splitRanges(IntArrayList ranges, RangeBlockSize blockSize) {
+        var split = new IntArrayList(ranges.size());
+        for (int r = 0; r < ranges.size(); r += 2) {
+            int start = ranges.getInt(r);
+            int remaining = ranges.getInt(r + 1);
+            do {
+                int length = remaining;
+                while (blockSize.largestBlock(start, length) > maxMappingSize && length > 1) {
+                    // keep parts word-aligned, so bitset columns are copied in bulk
+                    length = length > 2 * Long.SIZE ? (length / 2) & -Long.SIZE : length / 2;
+                }
+                split.add(start);
+                split.add(length);
+                start += length;
+                remaining -= length;
+            } while (remaining > 0);
+        }
+        return split;
+    }
+
+    private static void clearDirty(World world) {
+        Arrays.fill(world.dirtyEntityChunks, false);
+        for (var archetype : world.archetypes) {
+            Arrays.fill(archetype.dirtyChunks, false);
+        }
+    }
+
+    private static long columnSize(ColumnType<Object> columnType, Object column, int component, int start, int length) {
+        long size = columnType.serializedSize(column, start, length);
+        if (size < 0) {
+            throw new IllegalArgumentException("Column type of component " + component + " doesn't support snapshots");
+        }
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static long largestArchetypeBlock(Archetype archetype, int start, int length) {
+        long largest = align(RANGE_HEADER_SIZE + (long) length * Integer.BYTES);
+        for (int i = 0; i < archetype.components.length; i++) {
+            largest = Math.max(largest, Long.BYTES + align(columnSize(archetype.columnTypes[i], archetype.columns[i], archetype.components[i], start, length)));
+        }
+        return largest;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static long archetypeSize(Archetype archetype, IntArrayList ranges) {
+        long size = SECTION_HEADER_SIZE + (long) archetype.componentMask.length * Long.BYTES;
+        for (int r = 0; r < ranges.size(); r += 2) {
+            int start = ranges.getInt(r);
+            int length = ranges.getInt(r + 1);
+            size += align(RANGE_HEADER_SIZE + (long) length * Integer.BYTES);
+            for (int i = 0; i < archetype.components.length; i++) {
+                size += Long.BYTES + align(archetype.columnTypes[i].serializedSize(archetype.columns[i], start, length));
+            }
+        }
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void writeArchetype(Archetype archetype, IntArrayList ranges, MappedFile file) throws IOException {
+        var buffer = file.reserve(SECTION_HEADER_SIZE + (long) archetype.componentMask.length * Long.BYTES);
+        buffer.putInt(archetype.componentMask.length);
+        buffer.putInt(archetype.entityCount());
+        buffer.putInt(ranges.size() / 2);
+        buffer.putInt(0);
+        buffer.asLongBuffer().put(archetype.componentMask);
+        skip(buffer, archetype.componentMask.length * Long.BYTES);
+
+        for (int r = 0; r < ranges.size(); r += 2) {
+            int start = ranges.getInt(r);
+            int length = ranges.getInt(r + 1);
+            buffer = file.reserve(align(RANGE_HEADER_SIZE + (long) length * Integer.BYTES));
+            buffer.putInt(start);
+            buffer.putInt(length);
+            buffer.asIntBuffer().put(archetype.entities, start, length);
+            skip(buffer, length * Integer.BYTES);
+            pad(buffer);
+
+            for (int i = 0; i < archetype.components.length; i++) {
+                long columnSize = archetype.columnTypes[i].serializedSize(archetype.columns[i], start, length);
+                buffer = file.reserve(Long.BYTES + align(columnSize));
+                buffer.putLong(columnSize);
+                int position = buffer.position();
+                archetype.columnTypes[i].write(archetype.columns[i], start, length, buffer);
+                assert buffer.position() - position == columnSize;
+                pad(buffer);
+            }
+        }
+    }
+
+    /// Reads an archetype section starting at the file's position, creating
+    /// the archetype if the world doesn't have it yet, and leaves the
+    /// position right after the section.
+    @SuppressWarnings("unchecked")
+    private static void readArchetype(World world, int id, MappedFile file) throws IOException {
+        var buffer = file.reserve(SECTION_HEADER_SIZE);
+        int maskLength = buffer.getInt();
+        int count = buffer.getInt();
+        int rangeCount = buffer.getInt();
+        buffer.getInt();
+        long[] mask = new long[maskLength];
+        buffer = file.reserve((long) maskLength * Long.BYTES);
+        buffer.asLongBuffer().get(mask);
+        skip(buffer, maskLength * Long.BYTES);
+
+        Archetype archetype;
+        if (id < world.archetypes.size()) {
+            archetype = world.archetypes.get(id);
+            if (!BitSets.equals(archetype.componentMask, mask)) {
+                throw new IllegalArgumentException("Archetype " + id + " in the snapshot doesn't match the one in the world");
+            }
+        } else {
+            for (int i = 0; i < mask.length; i++) {
+                long word = mask[i];
+                while (word != 0) {
+                    int component = i * Long.SIZE + Long.numberOfTrailingZeros(word);
+                    if (component >= world.componentsAndResources.size() || !world.isComponent(component)) {
+                        throw new IllegalArgumentException("Snapshot uses component " + component + " which is not a component in the world");
+                    }
+                    word &= word - 1;
+                }
+            }
+            archetype = world.createArchetype(mask);
+        }
+        archetype.resize(count);
+
+        for (int r = 0; r < rangeCount; r++) {
+            buffer = file.reserve(RANGE_HEADER_SIZE);
+            int start = buffer.getInt();
+            int length = buffer.getInt();
+            buffer = file.reserve(align(RANGE_HEADER_SIZE + (long) length * Integer.BYTES) - RANGE_HEADER_SIZE);
+            buffer.asIntBuffer().get(archetype.entities, start, length);
+            skip(buffer, length * Integer.BYTES);
+            pad(buffer);
+
+            for (int i = 0; i < archetype.components.length; i++) {
+                readColumn(file, archetype.columnTypes[i], archetype.columns[i], start, length);
+            }
+        }
+    }
+
+    private static int[] coldComponents(World world) {
+        var components = new IntArrayList();
+        for (int id = 0; id < world.componentsAndResources.size(); id++) {
+            if (world.isCold(id)) {
+                components.add(id);
+            }
+        }
+        return components.toIntArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static long coldSize(World world, int[] coldComponents, IntArrayList ranges) {
+        long size = 0;
+        for (int r = 0; r < ranges.size(); r += 2) {
+            int start = ranges.getInt(r);
+            int length = ranges.getInt(r + 1);
+            for (int component : coldComponents) {
+                size += Long.BYTES + align(columnSize(world.componentColumnType(component), world.getColdColumn(component), component, start, length));
+            }
+        }
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void writeCold(World world, int[] coldComponents, IntArrayList ranges, MappedFile file) throws IOException {
+        for (int r = 0; r < ranges.size(); r += 2) {
+            int start = ranges.getInt(r);
+            int length = ranges.getInt(r + 1);
+            for (int component : coldComponents) {
+                ColumnType<Object> columnType = world.componentColumnType(component);
+                Object column = world.getColdColumn(component);
+                long columnSize = columnType.serializedSize(column, start, length);
+                var buffer = file.reserve(Long.BYTES + align(columnSize));
+                buffer.putLong(columnSize);
+                columnType.write(column, start, length, buffer);
+                pad(buffer);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void readCold(World world, int[] coldComponents, IntArrayList ranges, MappedFile file) throws IOException {
+        for (int r = 0; r < ranges.size(); r += 2) {
+            int start = ranges.getInt(r);
+            int length = ranges.getInt(r + 1);
+            for (int component : coldComponents) {
+                readColumn(file, world.componentColumnType(component), world.getWritableColdColumn(component), start, length);
+            }
+        }
+    }
+
+    /// Reads a column block written by [#writeArchetype] or [#writeCold].
+    private static void readColumn(MappedFile file, ColumnType<Object> columnType, Object column, int start, int length) throws IOException {
+        long columnSize = file.reserve(Long.BYTES).getLong();
+        var buffer = file.reserve(align(columnSize));
+        int position = buffer.position();
+        columnType.read(column, start, length, buffer.slice(position, (int) columnSize).order(ByteOrder.LITTLE_ENDIAN));
+        buffer.position(position + (int) columnSize);
+        pad(buffer);
+    }
+
+    /// Returns the size of the largest block written for a range of rows.
+    private interface RangeBlockSize {
+        long largestBlock(int start, int length);
+    }
+
+    /// File read or written sequentially through mappings of up to
+    /// [#maxMappingSize] bytes. Each block is reserved before it's accessed,
+    /// and the next mapping starts at the block if it doesn't fit in the
+    /// current one, so blocks never span two mappings.
+    private static final class MappedFile {
+        private final FileChannel channel;
+        private final FileChannel.MapMode mode;
+        private final long size;
+        /// Mappings made so far, kept to force them all at the end of
+        /// writing.
+        private final List<MappedByteBuffer> mappings = new ArrayList<>();
+        private @Nullable MappedByteBuffer buffer;
+        /// Offset of [#buffer] in the file.
+        private long base;
+
+        private MappedFile(FileChannel channel, FileChannel.MapMode mode, long size) {
+            this.channel = channel;
+            this.mode = mode;
+            this.size = size;
+        }
+
+        /// Returns a little-endian buffer positioned at the current offset
+        /// with at least `bytes` remaining. Advancing its position advances
+        /// the offset.
+        private ByteBuffer reserve(long bytes) throws IOException {
+            if (this.buffer != null && this.buffer.remaining() >= bytes) {
+                return this.buffer;
+            }
+            long offset = this.buffer == null ? 0 : this.base + this.buffer.position();
+            if (bytes > this.size - offset) {
+                throw new IOException("Snapshot is truncated");
+            }
+            if (bytes > maxMappingSize) {
+                throw new IllegalArgumentException("Block of " + bytes + " bytes is too large for a snapshot");
+            }
+            this.buffer = this.channel.map(this.mode, offset, Math.min(this.size - offset, maxMappingSize));
+            this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+            this.base = offset;
+            if (this.mode == FileChannel.MapMode.READ_WRITE) {
+                this.mappings.add(this.buffer);
+            }
+            return this.buffer;
+        }
+
+        /// Writes changes in all mappings to the storage device.
+        private void force() {
+            for (var mapping : this.mappings) {
+                mapping.force();
+            }
+        }
+    }
+
+    private static long align(long size) {
+        return (size + Long.BYTES - 1) & -Long.BYTES;
+    }
+
+    private static void skip(ByteBuffer buffer, int bytes) {
+        buffer.position(buffer.position() + bytes);
+    }
+
+    private static void pad(ByteBuffer buffer) {
+        buffer.position((int) align(buffer.position()));
+    }
+}
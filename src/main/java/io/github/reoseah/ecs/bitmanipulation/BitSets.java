@@ -1,6 +1,7 @@
 package io.github.reoseah.ecs.bitmanipulation;
 
 import it.unimi.dsi.fastutil.ints.IntCollection;
+import it.unimi.dsi.fastutil.ints.IntConsumer;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.Arrays;
@@ -106,6 +107,30 @@ public class BitSets {
         }
     }
 
+    /// Sets bits from `from` (inclusive) to `to` (exclusive) to the `enabled`
+    /// value, a word at a time.
+    public static void set(long[] bitset, int from, int to, boolean enabled) {
+        if (from >= to) {
+            return;
+        }
+        int first = from / Long.SIZE;
+        int last = (to - 1) / Long.SIZE;
+        for (int i = first; i <= last; i++) {
+            long mask = -1L;
+            if (i == first) {
+                mask &= -1L << from;
+            }
+            if (i == last) {
+                mask &= -1L >>> -to;
+            }
+            if (enabled) {
+                bitset[i] |= mask;
+            } else {
+                bitset[i] &= ~mask;
+            }
+        }
+    }
+
     public static long[] growAndAdd(long[] bitset, int bit) {
         int index = bit / Long.SIZE;
         int offset = bit % Long.SIZE;
@@ -238,6 +263,75 @@ public class BitSets {
         return result;
     }
 
+    /// Writes the union of two bitsets into `destination` and returns it.
+    /// The destination should be at least as long as the longer argument,
+    /// its remaining words are cleared. It can be the same array as one of
+    /// the arguments.
+    ///
+    /// Unlike [#union], never allocates, so can be used with a reused
+    /// scratch array on hot paths.
+    public static long[] unionInto(long[] left, long[] right, long[] destination) {
+        checkDestination(destination, Math.max(left.length, right.length));
+        for (int i = 0; i < destination.length; i++) {
+            destination[i] = word(left, i) | word(right, i);
+        }
+        return destination;
+    }
+
+    /// Writes the difference of two bitsets into `destination` and returns
+    /// it. The destination should be at least as long as `minuend`.
+    ///
+    /// @see #unionInto
+    public static long[] differenceInto(long[] minuend, long[] subtrahend, long[] destination) {
+        checkDestination(destination, minuend.length);
+        for (int i = 0; i < destination.length; i++) {
+            destination[i] = word(minuend, i) & ~word(subtrahend, i);
+        }
+        return destination;
+    }
+
+    /// Writes `bitset` with bits of `addend` enabled and bits of
+    /// `subtrahend` disabled into `destination` and returns it. The
+    /// destination should be at least as long as `bitset` and `addend`.
+    ///
+    /// @see #unionInto
+    public static long[] unionAndDifferenceInto(long[] bitset, long[] addend, long[] subtrahend, long[] destination) {
+        checkDestination(destination, Math.max(bitset.length, addend.length));
+        for (int i = 0; i < destination.length; i++) {
+            destination[i] = (word(bitset, i) | word(addend, i)) & ~word(subtrahend, i);
+        }
+        return destination;
+    }
+
+    /// Returns the word of the bitset at the index, or `0` past its end, so
+    /// bitsets of up to 64 bits can be combined as plain `long`s.
+    public static long word(long[] bitset, int index) {
+        return index < bitset.length ? bitset[index] : 0;
+    }
+
+    /// Calls the consumer with each enabled bit in increasing order. Each
+    /// word is read once, unlike a loop over [#nextSetBit].
+    public static void forEachSetBit(long[] bitset, IntConsumer consumer) {
+        for (int i = 0; i < bitset.length; i++) {
+            forEachSetBit(bitset[i], i * Long.SIZE, consumer);
+        }
+    }
+
+    /// Calls the consumer with each enabled bit of a single word, adding
+    /// `offset` to them.
+    public static void forEachSetBit(long word, int offset, IntConsumer consumer) {
+        while (word != 0) {
+            consumer.accept(offset + Long.numberOfTrailingZeros(word));
+            word &= word - 1;
+        }
+    }
+
+    private static void checkDestination(long[] destination, int length) {
+        if (destination.length < length) {
+            throw new IllegalArgumentException("Destination should have at least " + length + " words, got " + destination.length);
+        }
+    }
+
     public static long[] addAll(long @Nullable [] bitset, int... bits) {
         if (bits.length == 0) {
             return bitset;
@@ -286,6 +380,29 @@ public class BitSets {
         }
     }
 
+    /// Returns the length of the bitset without trailing zero words.
+    public static int trimmedLength(long[] bitset) {
+        int length = bitset.length;
+        while (length > 0 && bitset[length - 1] == 0) {
+            length--;
+        }
+        return length;
+    }
+
+    /// Returns whether the bitsets have the same bits enabled, regardless
+    /// of trailing zero words.
+    public static boolean equals(long[] left, long[] right) {
+        int length = Math.max(left.length, right.length);
+        for (int i = 0; i < length; i++) {
+            long leftWord = i < left.length ? left[i] : 0;
+            long rightWord = i < right.length ? right[i] : 0;
+            if (leftWord != rightWord) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public static int getRequiredLength(int bit) {
         return (bit / Long.SIZE) + 1;
     }
@@ -2,20 +2,29 @@ package io.github.reoseah.ecs.bitmanipulation;
 
 import it.unimi.dsi.fastutil.Hash;
 
-import java.util.Arrays;
-
 /// Simple implementation of fastutil's HashStrategy. Use in hash maps keyed by
 /// `long[]`, such as used by [BitSets] and [Queries].
+///
+/// Trailing zero words are ignored, so bitsets with the same bits are equal
+/// even if one of them was produced by an operation that doesn't trim its
+/// result, like [BitSets#difference].
 public enum LongArrayHashStrategy implements Hash.Strategy<long[]> {
     INSTANCE;
 
     @Override
     public int hashCode(long[] o) {
-        return Arrays.hashCode(o);
+        int hash = 1;
+        for (int i = 0, length = BitSets.trimmedLength(o); i < length; i++) {
+            hash = 31 * hash + Long.hashCode(o[i]);
+        }
+        return hash;
     }
 
     @Override
     public boolean equals(long[] a, long[] b) {
-        return Arrays.equals(a, b);
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return BitSets.equals(a, b);
     }
 }
@@ -0,0 +1,83 @@
+package io.github.reoseah.ecs.bitmanipulation;
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenCustomHashMap;
+
+import java.util.Arrays;
+
+/// Assigns each distinct bitset a stable `int` ID, so maps keyed by component
+/// masks can be replaced with arrays indexed by the ID.
+///
+/// Bitsets are normalized by ignoring trailing zero words, so `{0b1}` and
+/// `{0b1, 0}` get the same ID. Masks that fit in a single `long`, i.e. of
+/// components with IDs below 64, are looked up by that `long` without
+/// hashing arrays.
+public final class MaskInterner {
+    private final Long2IntOpenHashMap singleWordIds = new Long2IntOpenHashMap();
+    private final Object2IntOpenCustomHashMap<long[]> multiWordIds = new Object2IntOpenCustomHashMap<>(LongArrayHashStrategy.INSTANCE);
+    /// Canonical mask of each ID, with trailing zero words trimmed.
+    private long[][] masks = new long[16][];
+    private int size;
+
+    public MaskInterner() {
+        this.singleWordIds.defaultReturnValue(-1);
+        this.multiWordIds.defaultReturnValue(-1);
+    }
+
+    /// Returns the ID of the mask, assigning the next one if it wasn't seen
+    /// before. The mask is copied, so it can be modified afterward.
+    public int intern(long[] mask) {
+        int length = BitSets.trimmedLength(mask);
+        if (length <= 1) {
+            return this.intern(length == 0 ? 0 : mask[0]);
+        }
+        int id = this.multiWordIds.getInt(mask);
+        if (id == -1) {
+            var canonical = Arrays.copyOf(mask, length);
+            id = this.add(canonical);
+            this.multiWordIds.put(canonical, id);
+        }
+        return id;
+    }
+
+    /// Returns the ID of the mask of bits below 64 given as a single word,
+    /// only allocating the first time the mask is seen.
+    public int intern(long mask) {
+        int id = this.singleWordIds.get(mask);
+        if (id == -1) {
+            id = this.add(mask == 0 ? BitSets.EMPTY : new long[]{mask});
+            this.singleWordIds.put(mask, id);
+        }
+        return id;
+    }
+
+    /// Returns the ID of the mask, or `-1` if it wasn't interned.
+    public int find(long[] mask) {
+        int length = BitSets.trimmedLength(mask);
+        if (length <= 1) {
+            return this.singleWordIds.get(length == 0 ? 0 : mask[0]);
+        }
+        return this.multiWordIds.getInt(mask);
+    }
+
+    /// Returns the canonical mask with the ID, which should not be modified.
+    public long[] get(int id) {
+        if (id < 0 || id >= this.size) {
+            throw new IllegalArgumentException("Unknown mask ID " + id);
+        }
+        return this.masks[id];
+    }
+
+    /// Returns the number of interned masks, IDs are from `0` to `size() - 1`.
+    public int size() {
+        return this.size;
+    }
+
+    private int add(long[] canonical) {
+        if (this.size == this.masks.length) {
+            this.masks = Arrays.copyOf(this.masks, this.size * 2);
+        }
+        this.masks[this.size] = canonical;
+        return this.size++;
+    }
+}
@@ -0,0 +1,203 @@
+package io.github.reoseah.ecs.events;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/// Base class for channels passing messages between systems without
+/// spawning entities for them.
+///
+/// Channels are double-buffered: events sent during a tick become readable
+/// after [#update] is called, usually through
+/// [io.github.reoseah.ecs.World#updateEvents] between runs of the schedule,
+/// and stay readable until the next update. Readers therefore see the same
+/// events regardless of the order systems run in, and never conflict with
+/// writers.
+///
+/// Each thread sending events appends them to its own buffer, picked inside
+/// the `send` methods, so systems can send from any number of threads
+/// without synchronizing. Both sending and reading therefore only need
+/// shared access, declared with
+/// [io.github.reoseah.ecs.Schedule.ScheduleSystemBuilder#readsResources]
+/// on the channel's ID. Events sent from one thread stay in order, events
+/// from different threads are in no particular order relative to each
+/// other.
+///
+/// Buffers are reused between ticks, so once they are large enough for the
+/// number of events in a tick, neither sending nor reading allocates.
+///
+/// @param <A> array type storing the events, e.g. `int[]`
+public abstract class EventChannel<A> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    /// Incremented on each [#update], so readers can notice that their
+    /// cursor refers to events that are no longer readable.
+    int generation;
+    /// Events that can be read during this tick, the first
+    /// [#readableCount] elements of it.
+    A readable;
+    private int readableCapacity = INITIAL_CAPACITY;
+    /// Number of currently readable events.
+    int readableCount;
+
+    /// Buffers of all threads that sent events through this channel,
+    /// synchronized on itself since threads register concurrently.
+    private final List<Buffer<A>> buffers = new ArrayList<>();
+    private final ThreadLocal<Buffer<A>> threadBuffer = ThreadLocal.withInitial(this::registerBuffer);
+
+    EventChannel() {
+        this.readable = this.newArray(INITIAL_CAPACITY);
+    }
+
+    /// Creates an event array of the length.
+    abstract A newArray(int length);
+
+    /// Drops references to events in the range, so they can be garbage
+    /// collected. Only needed for object events.
+    void clear(A array, int from, int to) {
+    }
+
+    /// Returns the number of events that can be read during this tick.
+    public int size() {
+        return this.readableCount;
+    }
+
+    /// Makes the events sent since the previous call readable, dropping the
+    /// events that were readable before. Should not be called concurrently
+    /// with sending or reading.
+    public final void update() {
+        this.generation++;
+        synchronized (this.buffers) {
+            this.swapBuffers();
+        }
+    }
+
+    /// Returns the append buffer of the calling thread with room for
+    /// `length` more events. The caller writes them starting at
+    /// [Buffer#count] and then advances it.
+    final Buffer<A> reserve(int length) {
+        var buffer = this.threadBuffer.get();
+        if (buffer.count + length > buffer.capacity) {
+            int capacity = Math.max(buffer.count + length, buffer.capacity * 2);
+            A grown = this.newArray(capacity);
+            System.arraycopy(buffer.events, 0, grown, 0, buffer.count);
+            buffer.events = grown;
+            buffer.capacity = capacity;
+        }
+        return buffer;
+    }
+
+    private Buffer<A> registerBuffer() {
+        var buffer = new Buffer<>(this.newArray(INITIAL_CAPACITY), INITIAL_CAPACITY);
+        synchronized (this.buffers) {
+            this.buffers.add(buffer);
+        }
+        return buffer;
+    }
+
+    /// Moves the contents of threads' buffers to the readable buffer and
+    /// empties them.
+    private void swapBuffers() {
+        int previousCount = this.readableCount;
+
+        Buffer<A> single = null;
+        int total = 0;
+        for (int i = 0; i < this.buffers.size(); i++) {
+            var buffer = this.buffers.get(i);
+            if (buffer.count > 0) {
+                single = total == 0 ? buffer : null;
+                total += buffer.count;
+            }
+        }
+
+        if (single != null) {
+            // only one thread sent events, swap arrays instead of copying
+            var previous = this.readable;
+            int previousCapacity = this.readableCapacity;
+            this.readable = single.events;
+            this.readableCapacity = single.capacity;
+            single.events = previous;
+            single.capacity = previousCapacity;
+            single.count = 0;
+            this.clear(previous, 0, previousCount);
+        } else {
+            if (total > this.readableCapacity) {
+                this.readableCapacity = Math.max(total, this.readableCapacity * 2);
+                this.readable = this.newArray(this.readableCapacity);
+                previousCount = 0;
+            }
+            int offset = 0;
+            for (int i = 0; i < this.buffers.size(); i++) {
+                var buffer = this.buffers.get(i);
+                System.arraycopy(buffer.events, 0, this.readable, offset, buffer.count);
+                this.clear(buffer.events, 0, buffer.count);
+                offset += buffer.count;
+                buffer.count = 0;
+            }
+            if (total < previousCount) {
+                this.clear(this.readable, total, previousCount);
+            }
+        }
+        this.readableCount = total;
+    }
+
+    /// Append buffer of a single thread for events sent during the current
+    /// tick.
+    static final class Buffer<A> {
+        A events;
+        int capacity;
+        int count;
+
+        Buffer(A events, int capacity) {
+            this.events = events;
+            this.capacity = capacity;
+        }
+    }
+
+    /// Position of a reader in the readable events. Each system reading the
+    /// channel should have its own, so they all see every event.
+    public static abstract class Cursor {
+        private final EventChannel<?> channel;
+        private int generation;
+        private int position;
+
+        Cursor(EventChannel<?> channel) {
+            this.channel = channel;
+            this.generation = channel.generation;
+        }
+
+        /// Returns whether there are events this reader didn't see yet.
+        public boolean hasNext() {
+            this.sync();
+            return this.position < this.channel.readableCount;
+        }
+
+        /// Returns the number of events this reader didn't see yet.
+        public int remaining() {
+            this.sync();
+            return this.channel.readableCount - this.position;
+        }
+
+        /// Marks all readable events as seen.
+        public void skipAll() {
+            this.sync();
+            this.position = this.channel.readableCount;
+        }
+
+        /// Returns the index of the next event in the readable buffer and
+        /// advances past it.
+        int advance() {
+            this.sync();
+            if (this.position >= this.channel.readableCount) {
+                throw new IllegalStateException("No more events to read");
+            }
+            return this.position++;
+        }
+
+        private void sync() {
+            if (this.generation != this.channel.generation) {
+                this.generation = this.channel.generation;
+                this.position = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package io.github.reoseah.ecs.events;
+
+/// Channel of `int` events, e.g. IDs of entities that were hit, stored
+/// without boxing. See [EventChannel] for how sending and reading work.
+public final class IntEventChannel extends EventChannel<int[]> {
+    public Reader createReader() {
+        return new Reader(this);
+    }
+
+    /// Sends an event through the calling thread's buffer.
+    public void send(int event) {
+        var buffer = this.reserve(1);
+        buffer.events[buffer.count++] = event;
+    }
+
+    /// Sends events from `from` (inclusive) to `to` (exclusive) of the
+    /// array through the calling thread's buffer.
+    public void sendAll(int[] events, int from, int to) {
+        int length = to - from;
+        var buffer = this.reserve(length);
+        System.arraycopy(events, from, buffer.events, buffer.count, length);
+        buffer.count += length;
+    }
+
+    /// Returns the readable event at the index, which should be less than
+    /// [#size].
+    public int get(int index) {
+        return this.readable[index];
+    }
+
+    @Override
+    int[] newArray(int length) {
+        return new int[length];
+    }
+
+    public static final class Reader extends Cursor {
+        private final IntEventChannel channel;
+
+        private Reader(IntEventChannel channel) {
+            super(channel);
+            this.channel = channel;
+        }
+
+        /// Returns the next event, should be guarded with [#hasNext].
+        public int next() {
+            return this.channel.readable[this.advance()];
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package io.github.reoseah.ecs.events;
+
+/// Channel of `long` events, e.g. packed pairs of entity IDs, stored
+/// without boxing. See [EventChannel] for how sending and reading work.
+public final class LongEventChannel extends EventChannel<long[]> {
+    public Reader createReader() {
+        return new Reader(this);
+    }
+
+    /// Sends an event through the calling thread's buffer.
+    public void send(long event) {
+        var buffer = this.reserve(1);
+        buffer.events[buffer.count++] = event;
+    }
+
+    /// Sends events from `from` (inclusive) to `to` (exclusive) of the
+    /// array through the calling thread's buffer.
+    public void sendAll(long[] events, int from, int to) {
+        int length = to - from;
+        var buffer = this.reserve(length);
+        System.arraycopy(events, from, buffer.events, buffer.count, length);
+        buffer.count += length;
+    }
+
+    /// Returns the readable event at the index, which should be less than
+    /// [#size].
+    public long get(int index) {
+        return this.readable[index];
+    }
+
+    @Override
+    long[] newArray(int length) {
+        return new long[length];
+    }
+
+    public static final class Reader extends Cursor {
+        private final LongEventChannel channel;
+
+        private Reader(LongEventChannel channel) {
+            super(channel);
+            this.channel = channel;
+        }
+
+        /// Returns the next event, should be guarded with [#hasNext].
+        public long next() {
+            return this.channel.readable[this.advance()];
+        }
+    }
+}
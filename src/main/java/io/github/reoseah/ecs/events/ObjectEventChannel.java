@@ -0,0 +1,50 @@
+package io.github.reoseah.ecs.events;
+
+import java.util.Arrays;
+
+/// Channel of object events. See [EventChannel] for how sending and reading
+/// work. For events that fit in an `int` or `long`, prefer
+/// [IntEventChannel] or [LongEventChannel] to avoid allocating event objects.
+@SuppressWarnings("unchecked")
+public final class ObjectEventChannel<T> extends EventChannel<Object[]> {
+    public Reader<T> createReader() {
+        return new Reader<>(this);
+    }
+
+    /// Sends an event through the calling thread's buffer.
+    public void send(T event) {
+        var buffer = this.reserve(1);
+        buffer.events[buffer.count++] = event;
+    }
+
+    /// Returns the readable event at the index, which should be less than
+    /// [#size].
+    public T get(int index) {
+        return (T) this.readable[index];
+    }
+
+    @Override
+    Object[] newArray(int length) {
+        return new Object[length];
+    }
+
+    @Override
+    void clear(Object[] array, int from, int to) {
+        // don't keep the dropped events strongly referenced
+        Arrays.fill(array, from, to, null);
+    }
+
+    public static final class Reader<T> extends Cursor {
+        private final ObjectEventChannel<T> channel;
+
+        private Reader(ObjectEventChannel<T> channel) {
+            super(channel);
+            this.channel = channel;
+        }
+
+        /// Returns the next event, should be guarded with [#hasNext].
+        public T next() {
+            return (T) this.channel.readable[this.advance()];
+        }
+    }
+}
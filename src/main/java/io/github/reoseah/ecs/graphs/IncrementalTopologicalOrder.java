@@ -0,0 +1,196 @@
+package io.github.reoseah.ecs.graphs;
+
+import io.github.reoseah.ecs.bitmanipulation.BitSets;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.ints.IntComparator;
+import it.unimi.dsi.fastutil.ints.IntList;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/// Maintains a topological order of a directed acyclic graph while nodes and
+/// edges are added, so there's no need to sort the whole graph again.
+///
+/// This is the algorithm from "A Dynamic Topological Sort Algorithm for
+/// Directed Acyclic Graphs" by Pearce and Kelly. An edge that agrees with the
+/// current order is added in constant time, otherwise only nodes positioned
+/// between its endpoints are visited and shuffled around.
+public class IncrementalTopologicalOrder {
+    private int size;
+    /// Position of each node in the order, indexed by node.
+    private int[] positions = new int[8];
+    /// Node at each position in the order, inverse of [#positions].
+    private int[] nodes = new int[8];
+    private @Nullable IntList[] successors = new IntList[8];
+    private @Nullable IntList[] predecessors = new IntList[8];
+
+    // scratch state for #addEdge
+    private long[] visited = new long[1];
+    private final IntArrayList stack = new IntArrayList();
+    private final IntArrayList forward = new IntArrayList();
+    private final IntArrayList backward = new IntArrayList();
+    private final IntArrayList freedPositions = new IntArrayList();
+    private final IntComparator byPosition = (a, b) -> Integer.compare(this.positions[a], this.positions[b]);
+
+    public int size() {
+        return this.size;
+    }
+
+    /// Adds a node without edges at the end of the order and returns its ID.
+    public int addNode() {
+        int node = this.size;
+        if (node == this.positions.length) {
+            int newCapacity = this.positions.length * 2;
+            this.positions = Arrays.copyOf(this.positions, newCapacity);
+            this.nodes = Arrays.copyOf(this.nodes, newCapacity);
+            this.successors = Arrays.copyOf(this.successors, newCapacity);
+            this.predecessors = Arrays.copyOf(this.predecessors, newCapacity);
+        }
+        if (BitSets.getRequiredLength(node) > this.visited.length) {
+            this.visited = Arrays.copyOf(this.visited, this.visited.length * 2);
+        }
+        this.positions[node] = node;
+        this.nodes[node] = node;
+        this.size++;
+        return node;
+    }
+
+    /// Returns position of the node in the order.
+    public int position(int node) {
+        return this.positions[node];
+    }
+
+    /// Returns node at the position in the order.
+    public int nodeAt(int position) {
+        return this.nodes[position];
+    }
+
+    /// Adds an edge requiring `from` to be ordered before `to` and updates
+    /// the order if needed. Returns `false` and leaves the graph unchanged if
+    /// the edge would create a cycle.
+    public boolean addEdge(int from, int to) {
+        if (from == to) {
+            return false;
+        }
+        int lowerBound = this.positions[to];
+        int upperBound = this.positions[from];
+        if (lowerBound < upperBound) {
+            // nodes reachable from `to` that are currently ordered before `from`
+            boolean acyclic = this.search(to, upperBound, from, this.successors, this.forward, true);
+            if (!acyclic) {
+                // the search stopped early, so nodes still on the stack are
+                // marked too
+                this.clearVisited(this.forward);
+                this.clearVisited(this.stack);
+                return false;
+            }
+            // nodes reaching `from` that are currently ordered after `to`
+            this.search(from, lowerBound, -1, this.predecessors, this.backward, false);
+            this.clearVisited(this.forward);
+            this.clearVisited(this.backward);
+
+            this.reorder();
+        }
+
+        this.successors[from] = addToList(this.successors[from], to);
+        this.predecessors[to] = addToList(this.predecessors[to], from);
+        return true;
+    }
+
+    /// Removes all edges to and from the node. The current order stays
+    /// valid, as removing edges can only relax it.
+    public void removeEdges(int node) {
+        var nodeSuccessors = this.successors[node];
+        if (nodeSuccessors != null) {
+            for (int i = 0; i < nodeSuccessors.size(); i++) {
+                this.predecessors[nodeSuccessors.getInt(i)].rem(node);
+            }
+            nodeSuccessors.clear();
+        }
+        var nodePredecessors = this.predecessors[node];
+        if (nodePredecessors != null) {
+            for (int i = 0; i < nodePredecessors.size(); i++) {
+                this.successors[nodePredecessors.getInt(i)].rem(node);
+            }
+            nodePredecessors.clear();
+        }
+    }
+
+    /// Depth-first search from `start` through `adjacency` visiting nodes
+    /// within the affected region, i.e. positioned not after `bound` when
+    /// going `forwards`, or not before it otherwise. Returns `false` if
+    /// `target` was reached.
+    private boolean search(int start, int bound, int target, IntList[] adjacency, IntArrayList result, boolean forwards) {
+        result.clear();
+        this.stack.clear();
+        this.stack.push(start);
+        BitSets.add(this.visited, start);
+        while (!this.stack.isEmpty()) {
+            int node = this.stack.popInt();
+            result.add(node);
+
+            var neighbors = adjacency[node];
+            if (neighbors == null) {
+                continue;
+            }
+            for (int i = 0; i < neighbors.size(); i++) {
+                int neighbor = neighbors.getInt(i);
+                if (neighbor == target) {
+                    return false;
+                }
+                int position = this.positions[neighbor];
+                boolean affected = forwards ? position < bound : position > bound;
+                if (affected && !BitSets.contains(this.visited, neighbor)) {
+                    BitSets.add(this.visited, neighbor);
+                    this.stack.push(neighbor);
+                }
+            }
+        }
+        return true;
+    }
+
+    private void clearVisited(IntList nodes) {
+        for (int i = 0; i < nodes.size(); i++) {
+            BitSets.remove(this.visited, nodes.getInt(i));
+        }
+    }
+
+    /// Moves all nodes in [#backward] before all nodes in [#forward],
+    /// reusing positions they occupied and keeping relative order within
+    /// each set.
+    private void reorder() {
+        IntArrays.quickSort(this.backward.elements(), 0, this.backward.size(), this.byPosition);
+        IntArrays.quickSort(this.forward.elements(), 0, this.forward.size(), this.byPosition);
+
+        this.freedPositions.clear();
+        for (int i = 0; i < this.backward.size(); i++) {
+            this.freedPositions.add(this.positions[this.backward.getInt(i)]);
+        }
+        for (int i = 0; i < this.forward.size(); i++) {
+            this.freedPositions.add(this.positions[this.forward.getInt(i)]);
+        }
+        IntArrays.quickSort(this.freedPositions.elements(), 0, this.freedPositions.size());
+
+        int next = 0;
+        for (int i = 0; i < this.backward.size(); i++) {
+            this.place(this.backward.getInt(i), this.freedPositions.getInt(next++));
+        }
+        for (int i = 0; i < this.forward.size(); i++) {
+            this.place(this.forward.getInt(i), this.freedPositions.getInt(next++));
+        }
+    }
+
+    private void place(int node, int position) {
+        this.positions[node] = position;
+        this.nodes[position] = node;
+    }
+
+    private static IntList addToList(@Nullable IntList list, int value) {
+        if (list == null) {
+            list = new IntArrayList();
+        }
+        list.add(value);
+        return list;
+    }
+}
@@ -0,0 +1,195 @@
+package io.github.reoseah.ecs.graphs;
+
+import io.github.reoseah.ecs.bitmanipulation.BitSets;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.ints.IntList;
+
+import java.util.Arrays;
+
+/// Maintains a transitive reduction of a directed acyclic graph while edges
+/// are added, i.e. the graph with the fewest edges having the same
+/// reachability. For example, with edges `a -> b`, `b -> c` and `a -> c`,
+/// the last one is dropped because `c` is reachable from `a` through `b`.
+///
+/// Reachability is stored as a bitset per node, so adding an edge takes
+/// `O(nodes * nodes / 64)` at most and checking whether one node reaches
+/// another is a single bit lookup.
+public class TransitiveReduction {
+    private int size;
+    private int capacity = 8;
+    /// Bitsets of nodes reachable from each node, excluding the node itself.
+    private long[][] reachable = new long[8][];
+    /// Successors of each node as they were added, including redundant ones,
+    /// so the reduction can be restored when a node is removed.
+    private IntList[] declaredSuccessors = new IntList[8];
+    /// Successors of each node in the reduced graph.
+    private IntList[] successors = new IntList[8];
+    /// Number of predecessors of each node in the reduced graph.
+    private int[] predecessorCount = new int[8];
+
+    private long[] scratch = new long[BitSets.getRequiredLength(8)];
+
+    public int size() {
+        return this.size;
+    }
+
+    /// Adds a node without edges and returns its ID.
+    public int addNode() {
+        int node = this.size;
+        if (node == this.capacity) {
+            this.capacity *= 2;
+            int words = BitSets.getRequiredLength(this.capacity);
+            for (int i = 0; i < node; i++) {
+                this.reachable[i] = Arrays.copyOf(this.reachable[i], words);
+            }
+            this.reachable = Arrays.copyOf(this.reachable, this.capacity);
+            this.declaredSuccessors = Arrays.copyOf(this.declaredSuccessors, this.capacity);
+            this.successors = Arrays.copyOf(this.successors, this.capacity);
+            this.predecessorCount = Arrays.copyOf(this.predecessorCount, this.capacity);
+            this.scratch = new long[words];
+        }
+        this.reachable[node] = new long[BitSets.getRequiredLength(this.capacity)];
+        this.declaredSuccessors[node] = new IntArrayList();
+        this.successors[node] = new IntArrayList();
+        this.size++;
+        return node;
+    }
+
+    /// Returns whether there's a path from `from` to `to`.
+    public boolean reaches(int from, int to) {
+        return BitSets.contains(this.reachable[from], to);
+    }
+
+    /// Returns successors of the node in the reduced graph. The returned
+    /// list is 'live' and should not be modified.
+    public IntList successors(int node) {
+        return this.successors[node];
+    }
+
+    /// Returns the number of predecessors of the node in the reduced graph.
+    public int predecessorCount(int node) {
+        return this.predecessorCount[node];
+    }
+
+    /// Adds an edge from `from` to `to` and drops edges that it makes
+    /// redundant. The caller should make sure the edge doesn't create a
+    /// cycle, e.g. using [IncrementalTopologicalOrder].
+    ///
+    /// Returns `false` if the edge itself is redundant and was not added to
+    /// the reduced graph.
+    public boolean addEdge(int from, int to) {
+        if (from == to || this.declaredSuccessors[from].contains(to)) {
+            return false;
+        }
+        this.declaredSuccessors[from].add(to);
+        if (this.reaches(from, to)) {
+            return false;
+        }
+
+        // nodes that become reachable through the new edge
+        long[] added = this.scratch;
+        System.arraycopy(this.reachable[to], 0, added, 0, added.length);
+        BitSets.add(added, to);
+
+        for (int node = 0; node < this.size; node++) {
+            if (node != from && !this.reaches(node, from)) {
+                continue;
+            }
+            // an edge from `from` or its ancestor to `to` or its descendant
+            // is now implied by a longer path through the new edge
+            var nodeSuccessors = this.successors[node];
+            for (int i = nodeSuccessors.size() - 1; i >= 0; i--) {
+                int successor = nodeSuccessors.getInt(i);
+                if (BitSets.contains(added, successor)) {
+                    nodeSuccessors.removeInt(i);
+                    this.predecessorCount[successor]--;
+                }
+            }
+
+            long[] nodeReachable = this.reachable[node];
+            for (int i = 0; i < added.length; i++) {
+                nodeReachable[i] |= added[i];
+            }
+        }
+
+        this.successors[from].add(to);
+        this.predecessorCount[to]++;
+        return true;
+    }
+
+    /// Removes all edges to and from the node. Edges between other nodes that
+    /// were redundant only because of paths through it are restored, e.g.
+    /// with edges `a -> b`, `b -> c` and `a -> c`, removing `b` brings back
+    /// `a -> c` in the reduced graph.
+    ///
+    /// Only ancestors of the node are revisited, the rest of the graph is not
+    /// affected by the removal.
+    public void removeNode(int node) {
+        var ancestors = new IntArrayList();
+        for (int other = 0; other < this.size; other++) {
+            if (this.reaches(other, node)) {
+                ancestors.add(other);
+            }
+        }
+        // a node reaches strictly more nodes than any of its descendants, so
+        // sorting by that count visits descendants before their ancestors
+        int[] reachableCounts = new int[this.size];
+        for (int i = 0; i < ancestors.size(); i++) {
+            int ancestor = ancestors.getInt(i);
+            reachableCounts[ancestor] = BitSets.count(this.reachable[ancestor]);
+        }
+        IntArrays.quickSort(ancestors.elements(), 0, ancestors.size(), (a, b) -> Integer.compare(reachableCounts[a], reachableCounts[b]));
+
+        var nodeSuccessors = this.successors[node];
+        for (int i = 0; i < nodeSuccessors.size(); i++) {
+            this.predecessorCount[nodeSuccessors.getInt(i)]--;
+        }
+        nodeSuccessors.clear();
+        this.declaredSuccessors[node].clear();
+        Arrays.fill(this.reachable[node], 0);
+
+        for (int i = 0; i < ancestors.size(); i++) {
+            int ancestor = ancestors.getInt(i);
+            var declared = this.declaredSuccessors[ancestor];
+            declared.rem(node);
+
+            long[] ancestorReachable = this.reachable[ancestor];
+            Arrays.fill(ancestorReachable, 0);
+            for (int j = 0; j < declared.size(); j++) {
+                int successor = declared.getInt(j);
+                long[] successorReachable = this.reachable[successor];
+                for (int k = 0; k < ancestorReachable.length; k++) {
+                    ancestorReachable[k] |= successorReachable[k];
+                }
+                BitSets.add(ancestorReachable, successor);
+            }
+
+            var reduced = this.successors[ancestor];
+            for (int j = 0; j < reduced.size(); j++) {
+                this.predecessorCount[reduced.getInt(j)]--;
+            }
+            reduced.clear();
+            for (int j = 0; j < declared.size(); j++) {
+                int successor = declared.getInt(j);
+                if (!this.isImplied(ancestor, successor)) {
+                    reduced.add(successor);
+                    this.predecessorCount[successor]++;
+                }
+            }
+        }
+    }
+
+    /// Returns whether the declared edge `from -> to` is implied by a path
+    /// through another successor of `from`.
+    private boolean isImplied(int from, int to) {
+        var declared = this.declaredSuccessors[from];
+        for (int i = 0; i < declared.size(); i++) {
+            int other = declared.getInt(i);
+            if (other != to && this.reaches(other, to)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
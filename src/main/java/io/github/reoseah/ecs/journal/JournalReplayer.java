@@ -0,0 +1,134 @@
+package io.github.reoseah.ecs.journal;
+
+import io.github.reoseah.ecs.World;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/// Rebuilds a [World] by applying the changes recorded by [JournalWriter].
+///
+/// The journal is streamed through a fixed-size buffer, so it can be much
+/// larger than the memory available. The world should be in the state it was
+/// when the journal was attached, e.g. empty with the same components
+/// created, or loaded from a [io.github.reoseah.ecs.WorldSnapshot] taken at
+/// that point. Since entity IDs are allocated deterministically, every
+/// spawned entity gets the ID it had originally, which is checked to catch
+/// replaying on the wrong world.
+public final class JournalReplayer {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    private JournalReplayer(FileChannel channel) {
+        this.channel = channel;
+        this.buffer.limit(0);
+    }
+
+    /// Applies the whole journal to the world and returns the number of
+    /// ticks recorded.
+    public static long replay(World world, Path path) throws IOException {
+        return replay(world, path, null);
+    }
+
+    /// Applies the whole journal to the world, calling `onTick` at the end
+    /// of each recorded tick, e.g. to compare the world with the expected
+    /// state. Returns the number of ticks recorded.
+    ///
+    /// @throws IllegalStateException if the journal doesn't match the world
+    /// @throws IOException           if the journal is truncated or can't be
+    ///                               read
+    public static long replay(World world, Path path, @Nullable Runnable onTick) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new JournalReplayer(channel).replay(world, onTick);
+        }
+    }
+
+    private long replay(World world, @Nullable Runnable onTick) throws IOException {
+        long ticks = 0;
+        while (this.hasMore()) {
+            int operation = this.readByte();
+            switch (operation) {
+                case JournalWriter.SPAWN -> {
+                    int entity = this.readVarInt();
+                    int spawned = world.spawn(this.readMask()).entity;
+                    if (spawned != entity) {
+                        throw new IllegalStateException("Journal doesn't match the world, expected to spawn entity " + entity + " but got " + spawned);
+                    }
+                }
+                case JournalWriter.REMOVE -> world.removeEntity(this.readVarInt());
+                case JournalWriter.INSERT_COMPONENTS -> world.insertComponents(this.readVarInt(), this.readMask());
+                case JournalWriter.REMOVE_COMPONENTS -> world.removeComponents(this.readVarInt(), this.readMask());
+                case JournalWriter.MODIFY_COMPONENTS -> {
+                    int entity = this.readVarInt();
+                    long[] maskToAdd = this.readMask();
+                    long[] maskToRemove = this.readMask();
+                    world.modifyComponents(entity, maskToAdd, maskToRemove);
+                }
+                case JournalWriter.TICK -> {
+                    ticks++;
+                    if (onTick != null) {
+                        onTick.run();
+                    }
+                }
+                default -> throw new IOException("Unknown journal record " + operation);
+            }
+        }
+        return ticks;
+    }
+
+    private boolean hasMore() throws IOException {
+        if (this.buffer.hasRemaining()) {
+            return true;
+        }
+        this.buffer.clear();
+        int read;
+        do {
+            read = this.channel.read(this.buffer);
+        } while (read == 0);
+        this.buffer.flip();
+        return read > 0;
+    }
+
+    private int readByte() throws IOException {
+        if (!this.hasMore()) {
+            throw new EOFException("Journal ends in the middle of a record");
+        }
+        return this.buffer.get() & 0xFF;
+    }
+
+    private int readVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = this.readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    private long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = this.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    private long[] readMask() throws IOException {
+        long[] mask = new long[this.readVarInt()];
+        for (int i = 0; i < mask.length; i++) {
+            mask[i] = this.readVarLong();
+        }
+        return mask;
+    }
+}
@@ -0,0 +1,239 @@
+package io.github.reoseah.ecs.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/// Append-only log of structural changes of a [io.github.reoseah.ecs.World],
+/// i.e. entities spawned, removed and moved between archetypes, and tick
+/// boundaries. Attach it with [io.github.reoseah.ecs.World#setJournal] and
+/// rebuild the world later with [JournalReplayer], e.g. to reproduce an
+/// incident with the exact same entity IDs and archetypes.
+///
+/// Component values are not recorded, only the structure, so the journal
+/// stays small enough to keep enabled in production.
+///
+/// Records are encoded with varints into a heap buffer on the calling thread,
+/// which costs a few byte stores per change. Full buffers are handed to a
+/// background thread that appends them to the file, so the world never waits
+/// on I/O unless the thread falls behind by several buffers.
+///
+/// ```
+/// spawn:             SPAWN, entity, mask
+/// removeEntity:      REMOVE, entity
+/// insertComponents:  INSERT_COMPONENTS, entity, mask
+/// removeComponents:  REMOVE_COMPONENTS, entity, mask
+/// modifyComponents:  MODIFY_COMPONENTS, entity, mask to add, mask to remove
+/// tick:              TICK
+/// mask:              length, words (unsigned varint each)
+/// ```
+///
+/// Not thread-safe, like the structural methods of the world itself.
+public final class JournalWriter implements AutoCloseable {
+    static final int SPAWN = 1;
+    static final int REMOVE = 2;
+    static final int INSERT_COMPONENTS = 3;
+    static final int REMOVE_COMPONENTS = 4;
+    static final int MODIFY_COMPONENTS = 5;
+    static final int TICK = 6;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_PENDING_BUFFERS = 8;
+    private static final ByteBuffer CLOSE = ByteBuffer.allocate(0);
+
+    private final FileChannel channel;
+    private final Thread thread;
+    private final BlockingQueue<ByteBuffer> pending = new ArrayBlockingQueue<>(MAX_PENDING_BUFFERS);
+    /// Buffers already written by the background thread, reused to avoid
+    /// allocating a new one each time.
+    private final BlockingQueue<byte[]> free = new ArrayBlockingQueue<>(MAX_PENDING_BUFFERS);
+    private volatile IOException failure;
+
+    private byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private boolean closed;
+
+    private JournalWriter(FileChannel channel) {
+        this.channel = channel;
+        this.thread = new Thread(this::writeBuffers, "ecs-journal-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /// Creates the file, or truncates it if it exists, and starts the
+    /// background thread writing to it.
+    public static JournalWriter open(Path path) throws IOException {
+        var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        return new JournalWriter(channel);
+    }
+
+    public void spawn(int entity, long[] mask) {
+        this.ensureCapacity(1 + 5 + maxMaskSize(mask));
+        this.buffer[this.position++] = SPAWN;
+        this.writeVarInt(entity);
+        this.writeMask(mask);
+    }
+
+    public void remove(int entity) {
+        this.ensureCapacity(1 + 5);
+        this.buffer[this.position++] = REMOVE;
+        this.writeVarInt(entity);
+    }
+
+    public void insertComponents(int entity, long[] mask) {
+        this.ensureCapacity(1 + 5 + maxMaskSize(mask));
+        this.buffer[this.position++] = INSERT_COMPONENTS;
+        this.writeVarInt(entity);
+        this.writeMask(mask);
+    }
+
+    public void removeComponents(int entity, long[] mask) {
+        this.ensureCapacity(1 + 5 + maxMaskSize(mask));
+        this.buffer[this.position++] = REMOVE_COMPONENTS;
+        this.writeVarInt(entity);
+        this.writeMask(mask);
+    }
+
+    public void modifyComponents(int entity, long[] maskToAdd, long[] maskToRemove) {
+        this.ensureCapacity(1 + 5 + maxMaskSize(maskToAdd) + maxMaskSize(maskToRemove));
+        this.buffer[this.position++] = MODIFY_COMPONENTS;
+        this.writeVarInt(entity);
+        this.writeMask(maskToAdd);
+        this.writeMask(maskToRemove);
+    }
+
+    /// Records the end of a tick, so [JournalReplayer] can stop between
+    /// ticks. Usually called once after running the schedules of a tick.
+    public void tick() {
+        this.ensureCapacity(1);
+        this.buffer[this.position++] = TICK;
+    }
+
+    /// Hands the records buffered so far to the background thread without
+    /// waiting for them to be written.
+    ///
+    /// @throws UncheckedIOException if the background thread failed to
+    ///                              write earlier records
+    public void flush() {
+        if (this.position > 0) {
+            this.submit();
+        }
+    }
+
+    /// Writes all buffered records, stops the background thread and closes
+    /// the file.
+    @Override
+    public void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        try {
+            if (this.position > 0 && this.failure == null) {
+                this.enqueue(ByteBuffer.wrap(this.buffer, 0, this.position));
+            }
+            this.enqueue(CLOSE);
+            this.thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while closing the journal", e);
+        } finally {
+            this.channel.close();
+        }
+        if (this.failure != null) {
+            throw this.failure;
+        }
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (this.position + bytes > this.buffer.length) {
+            this.flush();
+            if (bytes > this.buffer.length) {
+                this.buffer = new byte[bytes];
+            }
+        }
+    }
+
+    private void submit() {
+        if (this.failure != null) {
+            throw new UncheckedIOException("Failed to write the journal", this.failure);
+        }
+        this.enqueue(ByteBuffer.wrap(this.buffer, 0, this.position));
+        var next = this.free.poll();
+        this.buffer = next != null ? next : new byte[BUFFER_SIZE];
+        this.position = 0;
+    }
+
+    private void enqueue(ByteBuffer buffer) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                this.pending.put(buffer);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeBuffers() {
+        while (true) {
+            ByteBuffer buffer;
+            try {
+                buffer = this.pending.take();
+            } catch (InterruptedException e) {
+                continue;
+            }
+            if (buffer == CLOSE) {
+                break;
+            }
+            if (this.failure == null) {
+                try {
+                    while (buffer.hasRemaining()) {
+                        this.channel.write(buffer);
+                    }
+                } catch (IOException e) {
+                    this.failure = e;
+                }
+            }
+            if (buffer.capacity() == BUFFER_SIZE) {
+                this.free.offer(buffer.array());
+            }
+        }
+    }
+
+    private void writeMask(long[] mask) {
+        this.writeVarInt(mask.length);
+        for (long word : mask) {
+            this.writeVarLong(word);
+        }
+    }
+
+    private void writeVarInt(int value) {
+        while ((value & ~0x7F) != 0) {
+            this.buffer[this.position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        this.buffer[this.position++] = (byte) value;
+    }
+
+    private void writeVarLong(long value) {
+        while ((value & ~0x7FL) != 0) {
+            this.buffer[this.position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        this.buffer[this.position++] = (byte) value;
+    }
+
+    private static int maxMaskSize(long[] mask) {
+        return 5 + mask.length * 10;
+    }
+}
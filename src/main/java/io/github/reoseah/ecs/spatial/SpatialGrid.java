@@ -0,0 +1,420 @@
+package io.github.reoseah.ecs.spatial;
+
+import io.github.reoseah.ecs.Archetype;
+import io.github.reoseah.ecs.ColumnType;
+import io.github.reoseah.ecs.World;
+import io.github.reoseah.ecs.bitmanipulation.BitSets;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/// Uniform grid over a position component stored in a two- or three-lane
+/// [ColumnType.FloatVectorColumn], answering "entities within a radius" and
+/// "k nearest entities" without scanning every archetype.
+///
+/// The grid is rebuilt in bulk, usually once per tick after movement systems:
+/// positions of all entities are gathered, in parallel over archetypes if a
+/// thread pool is given, and counting-sorted by cell. Cells are hashed into
+/// a table sized to the number of entities, so the world doesn't need to
+/// have bounds and empty space costs nothing. Arrays are reused between
+/// rebuilds, and queries never allocate once the grid is warmed up.
+///
+/// Cell size should be around the typical query radius: much smaller cells
+/// make queries visit many empty cells, much larger ones make them check
+/// many far away entities.
+///
+/// The grid is a copy of positions at the time of [#rebuild], so it's safe to
+/// query from systems running in parallel with ones moving entities, but it
+/// doesn't see their changes until the next rebuild. Queries are not
+/// thread-safe with each other, use a grid per thread or synchronize.
+public final class SpatialGrid {
+    private final int component;
+    private final long[] query;
+    private final int dimensions;
+    private final float cellSize;
+    private final float inverseCellSize;
+
+    private int size;
+    /// Entities sorted by bucket, with [#positions] parallel to them.
+    private int[] entities = new int[0];
+    /// Positions sorted by bucket, `dimensions` lanes per entity.
+    private float[] positions = new float[0];
+    /// Start of each bucket in [#entities], with one extra element at the end.
+    private int[] bucketStarts = new int[2];
+    private int bucketMask;
+    private int minCellX, minCellY, minCellZ, maxCellX, maxCellY, maxCellZ;
+
+    // scratch state for rebuilding
+    private int[] gatheredEntities = new int[0];
+    private float[] gatheredPositions = new float[0];
+    private int[] gatheredBuckets = new int[0];
+    private int[] bucketCursors = new int[1];
+
+    // max-heap of the nearest entities found so far in #queryNearest
+    private int[] heapEntities = new int[16];
+    private float[] heapDistances = new float[16];
+    private int heapSize;
+
+    /// @param component  a [ColumnType.FloatVectorColumn] component with
+    ///                   `dimensions` lanes
+    /// @param dimensions either 2 or 3
+    /// @param cellSize   side of a grid cell, in the same units as positions
+    public SpatialGrid(int component, int dimensions, float cellSize) {
+        if (dimensions != 2 && dimensions != 3) {
+            throw new IllegalArgumentException("Spatial grid can be either 2D or 3D, got " + dimensions + " dimensions");
+        }
+        if (!(cellSize > 0)) {
+            throw new IllegalArgumentException("Cell size should be positive, got " + cellSize);
+        }
+        this.component = component;
+        this.query = BitSets.of(component);
+        this.dimensions = dimensions;
+        this.cellSize = cellSize;
+        this.inverseCellSize = 1 / cellSize;
+    }
+
+    /// Returns the number of entities in the grid.
+    public int size() {
+        return this.size;
+    }
+
+    /// Rebuilds the grid from the current positions of all entities with the
+    /// component.
+    public void rebuild(World world) {
+        this.rebuild(world, null);
+    }
+
+    /// Rebuilds the grid, gathering positions from different archetypes in
+    /// parallel on the thread pool.
+    public void rebuild(World world, @Nullable ExecutorService threadPool) {
+        ColumnType<?> columnType = world.componentColumnType(this.component);
+        if (!(columnType instanceof ColumnType.FloatVectorColumn column) || column.lanes != this.dimensions) {
+            throw new IllegalArgumentException("Component " + this.component + " should be a FloatVectorColumn with " + this.dimensions + " lanes");
+        }
+        var archetypes = world.getQueryArchetypes(this.query);
+        int[] offsets = new int[archetypes.size()];
+        int total = 0;
+        for (int i = 0; i < archetypes.size(); i++) {
+            offsets[i] = total;
+            total += archetypes.get(i).entityCount();
+        }
+        this.prepare(total);
+
+        if (threadPool != null && archetypes.size() > 1) {
+            List<Future<?>> tasks = new ArrayList<>(archetypes.size());
+            for (int i = 0; i < archetypes.size(); i++) {
+                var archetype = archetypes.get(i);
+                int offset = offsets[i];
+                tasks.add(threadPool.submit(() -> this.gather(archetype, offset)));
+            }
+            for (var task : tasks) {
+                try {
+                    task.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while rebuilding spatial grid", e);
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Failed to rebuild spatial grid", e.getCause());
+                }
+            }
+        } else {
+            for (int i = 0; i < archetypes.size(); i++) {
+                this.gather(archetypes.get(i), offsets[i]);
+            }
+        }
+
+        this.sortByBucket();
+    }
+
+    private void prepare(int total) {
+        this.size = total;
+        if (this.gatheredEntities.length < total) {
+            int capacity = Math.max(total, this.gatheredEntities.length * 2);
+            this.gatheredEntities = new int[capacity];
+            this.gatheredPositions = new float[capacity * this.dimensions];
+            this.gatheredBuckets = new int[capacity];
+            this.entities = new int[capacity];
+            this.positions = new float[capacity * this.dimensions];
+        }
+        int buckets = Math.max(16, Integer.highestOneBit(Math.max(total, 1) - 1) << 1);
+        if (this.bucketStarts.length != buckets + 1) {
+            this.bucketStarts = new int[buckets + 1];
+            this.bucketCursors = new int[buckets];
+        } else {
+            Arrays.fill(this.bucketStarts, 0);
+        }
+        this.bucketMask = buckets - 1;
+    }
+
+    private void gather(Archetype archetype, int offset) {
+        int count = archetype.entityCount();
+        var column = (float[]) archetype.getColumn(this.component);
+        System.arraycopy(archetype.entities, 0, this.gatheredEntities, offset, count);
+        System.arraycopy(column, 0, this.gatheredPositions, offset * this.dimensions, count * this.dimensions);
+        for (int row = 0; row < count; row++) {
+            int cellX = this.cell(column[row * this.dimensions]);
+            int cellY = this.cell(column[row * this.dimensions + 1]);
+            int cellZ = this.dimensions == 3 ? this.cell(column[row * this.dimensions + 2]) : 0;
+            this.gatheredBuckets[offset + row] = this.bucket(cellX, cellY, cellZ);
+        }
+    }
+
+    /// Counting sort of gathered entities by bucket, also computing bounds.
+    private void sortByBucket() {
+        int[] starts = this.bucketStarts;
+        for (int i = 0; i < this.size; i++) {
+            starts[this.gatheredBuckets[i] + 1]++;
+        }
+        for (int bucket = 0; bucket < this.bucketMask + 1; bucket++) {
+            starts[bucket + 1] += starts[bucket];
+        }
+        System.arraycopy(starts, 0, this.bucketCursors, 0, this.bucketCursors.length);
+
+        this.minCellX = this.minCellY = this.minCellZ = Integer.MAX_VALUE;
+        this.maxCellX = this.maxCellY = this.maxCellZ = Integer.MIN_VALUE;
+        int dimensions = this.dimensions;
+        for (int i = 0; i < this.size; i++) {
+            int target = this.bucketCursors[this.gatheredBuckets[i]]++;
+            this.entities[target] = this.gatheredEntities[i];
+            System.arraycopy(this.gatheredPositions, i * dimensions, this.positions, target * dimensions, dimensions);
+
+            int cellX = this.cell(this.gatheredPositions[i * dimensions]);
+            int cellY = this.cell(this.gatheredPositions[i * dimensions + 1]);
+            int cellZ = dimensions == 3 ? this.cell(this.gatheredPositions[i * dimensions + 2]) : 0;
+            this.minCellX = Math.min(this.minCellX, cellX);
+            this.maxCellX = Math.max(this.maxCellX, cellX);
+            this.minCellY = Math.min(this.minCellY, cellY);
+            this.maxCellY = Math.max(this.maxCellY, cellY);
+            this.minCellZ = Math.min(this.minCellZ, cellZ);
+            this.maxCellZ = Math.max(this.maxCellZ, cellZ);
+        }
+    }
+
+    /// Calls the consumer for each entity within `radius` of the point, in
+    /// no particular order. The grid should be 2D.
+    public void queryRange(float x, float y, float radius, NeighborConsumer consumer) {
+        assert this.dimensions == 2;
+        this.queryRange(x, y, 0, radius, consumer);
+    }
+
+    /// Calls the consumer for each entity within `radius` of the point, in
+    /// no particular order. In a 2D grid, `z` is ignored.
+    public void queryRange(float x, float y, float z, float radius, NeighborConsumer consumer) {
+        if (this.size == 0) {
+            return;
+        }
+        float radiusSquared = radius * radius;
+        int fromX = Math.max(this.cell(x - radius), this.minCellX);
+        int toX = Math.min(this.cell(x + radius), this.maxCellX);
+        int fromY = Math.max(this.cell(y - radius), this.minCellY);
+        int toY = Math.min(this.cell(y + radius), this.maxCellY);
+        int fromZ = this.dimensions == 3 ? Math.max(this.cell(z - radius), this.minCellZ) : 0;
+        int toZ = this.dimensions == 3 ? Math.min(this.cell(z + radius), this.maxCellZ) : 0;
+
+        long cells = (long) (toX - fromX + 1) * (toY - fromY + 1) * (toZ - fromZ + 1);
+        if (cells > this.size) {
+            // visiting mostly empty cells would be slower than checking everything
+            for (int i = 0; i < this.size; i++) {
+                float distance = this.distanceSquared(i, x, y, z);
+                if (distance <= radiusSquared) {
+                    consumer.accept(this.entities[i], distance);
+                }
+            }
+            return;
+        }
+        for (int cellZ = fromZ; cellZ <= toZ; cellZ++) {
+            for (int cellY = fromY; cellY <= toY; cellY++) {
+                for (int cellX = fromX; cellX <= toX; cellX++) {
+                    int bucket = this.bucket(cellX, cellY, cellZ);
+                    for (int i = this.bucketStarts[bucket]; i < this.bucketStarts[bucket + 1]; i++) {
+                        if (!this.isInCell(i, cellX, cellY, cellZ)) {
+                            continue;
+                        }
+                        float distance = this.distanceSquared(i, x, y, z);
+                        if (distance <= radiusSquared) {
+                            consumer.accept(this.entities[i], distance);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /// Calls the consumer for up to `k` entities nearest to the point, from
+    /// the nearest one. The grid should be 2D.
+    public void queryNearest(float x, float y, int k, NeighborConsumer consumer) {
+        assert this.dimensions == 2;
+        this.queryNearest(x, y, 0, k, consumer);
+    }
+
+    /// Calls the consumer for up to `k` entities nearest to the point, from
+    /// the nearest one. In a 2D grid, `z` is ignored.
+    ///
+    /// Cells are visited in growing rings around the point until `k`
+    /// entities are found and no unvisited cell can have a closer one. If
+    /// that would take visiting more cells than there are entities, e.g.
+    /// with far away outliers or `k` close to [#size], all entities are
+    /// checked instead.
+    public void queryNearest(float x, float y, float z, int k, NeighborConsumer consumer) {
+        if (this.size == 0 || k <= 0) {
+            return;
+        }
+        k = Math.min(k, this.size);
+        if (this.heapEntities.length < k) {
+            this.heapEntities = new int[k];
+            this.heapDistances = new float[k];
+        }
+        this.heapSize = 0;
+
+        int centerX = this.cell(x);
+        int centerY = this.cell(y);
+        int centerZ = this.dimensions == 3 ? this.cell(z) : 0;
+        int maxRing = Math.max(Math.max(Math.abs(centerX - this.minCellX), Math.abs(this.maxCellX - centerX)),
+                Math.max(Math.abs(centerY - this.minCellY), Math.abs(this.maxCellY - centerY)));
+        if (this.dimensions == 3) {
+            maxRing = Math.max(maxRing, Math.max(Math.abs(centerZ - this.minCellZ), Math.abs(this.maxCellZ - centerZ)));
+        }
+
+        long visitedCells = 0;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            long side = 2L * ring + 1;
+            long inner = side - 2;
+            long ringCells = ring == 0 ? 1 : this.dimensions == 3 ? side * side * side - inner * inner * inner : side * side - inner * inner;
+            visitedCells += ringCells;
+            if (visitedCells > this.size) {
+                // visiting mostly empty cells would be slower than checking everything
+                this.heapSize = 0;
+                for (int i = 0; i < this.size; i++) {
+                    this.offerNearest(i, this.distanceSquared(i, x, y, z), k);
+                }
+                break;
+            }
+            int ringZ = this.dimensions == 3 ? ring : 0;
+            for (int dz = -ringZ; dz <= ringZ; dz++) {
+                for (int dy = -ring; dy <= ring; dy++) {
+                    boolean onShell = Math.abs(dz) == ring || Math.abs(dy) == ring;
+                    // inside the shell only the two outermost cells along x are new
+                    int step = onShell || ring == 0 ? 1 : 2 * ring;
+                    for (int dx = -ring; dx <= ring; dx += step) {
+                        this.collectNearest(centerX + dx, centerY + dy, centerZ + dz, x, y, z, k);
+                    }
+                }
+            }
+            // unvisited cells are at least `ring` cells away from the point
+            float bound = ring * this.cellSize;
+            if (this.heapSize == k && this.heapDistances[0] <= bound * bound) {
+                break;
+            }
+        }
+
+        // heap sort, leaving the nearest entity first
+        for (int end = this.heapSize - 1; end > 0; end--) {
+            this.swap(0, end);
+            this.siftDown(0, end);
+        }
+        for (int i = 0; i < this.heapSize; i++) {
+            consumer.accept(this.heapEntities[i], this.heapDistances[i]);
+        }
+    }
+
+    private void collectNearest(int cellX, int cellY, int cellZ, float x, float y, float z, int k) {
+        if (cellX < this.minCellX || cellX > this.maxCellX || cellY < this.minCellY || cellY > this.maxCellY || cellZ < this.minCellZ || cellZ > this.maxCellZ) {
+            return;
+        }
+        int bucket = this.bucket(cellX, cellY, cellZ);
+        for (int i = this.bucketStarts[bucket]; i < this.bucketStarts[bucket + 1]; i++) {
+            if (!this.isInCell(i, cellX, cellY, cellZ)) {
+                continue;
+            }
+            this.offerNearest(i, this.distanceSquared(i, x, y, z), k);
+        }
+    }
+
+    /// Adds the entity at index `i` to the heap if it's among the `k`
+    /// nearest ones so far.
+    private void offerNearest(int i, float distance, int k) {
+        if (this.heapSize < k) {
+            int child = this.heapSize++;
+            this.heapEntities[child] = this.entities[i];
+            this.heapDistances[child] = distance;
+            while (child > 0) {
+                int parent = (child - 1) / 2;
+                if (this.heapDistances[parent] >= this.heapDistances[child]) {
+                    break;
+                }
+                this.swap(parent, child);
+                child = parent;
+            }
+        } else if (distance < this.heapDistances[0]) {
+            this.heapEntities[0] = this.entities[i];
+            this.heapDistances[0] = distance;
+            this.siftDown(0, this.heapSize);
+        }
+    }
+
+    private void siftDown(int node, int heapSize) {
+        while (true) {
+            int largest = node;
+            int left = 2 * node + 1;
+            int right = left + 1;
+            if (left < heapSize && this.heapDistances[left] > this.heapDistances[largest]) {
+                largest = left;
+            }
+            if (right < heapSize && this.heapDistances[right] > this.heapDistances[largest]) {
+                largest = right;
+            }
+            if (largest == node) {
+                return;
+            }
+            this.swap(node, largest);
+            node = largest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int entity = this.heapEntities[a];
+        this.heapEntities[a] = this.heapEntities[b];
+        this.heapEntities[b] = entity;
+        float distance = this.heapDistances[a];
+        this.heapDistances[a] = this.heapDistances[b];
+        this.heapDistances[b] = distance;
+    }
+
+    private int cell(float coordinate) {
+        return (int) Math.floor(coordinate * this.inverseCellSize);
+    }
+
+    /// Hashes cell coordinates into a bucket. Different cells can share a
+    /// bucket, so entities found in it are checked with [#isInCell].
+    private int bucket(int cellX, int cellY, int cellZ) {
+        int hash = cellX * 0x8DA6B343 ^ cellY * 0xD8163841 ^ cellZ * 0xCB1AB31F;
+        return (hash ^ (hash >>> 16)) & this.bucketMask;
+    }
+
+    private boolean isInCell(int index, int cellX, int cellY, int cellZ) {
+        int offset = index * this.dimensions;
+        return this.cell(this.positions[offset]) == cellX
+                && this.cell(this.positions[offset + 1]) == cellY
+                && (this.dimensions == 2 || this.cell(this.positions[offset + 2]) == cellZ);
+    }
+
+    private float distanceSquared(int index, float x, float y, float z) {
+        int offset = index * this.dimensions;
+        float dx = this.positions[offset] - x;
+        float dy = this.positions[offset + 1] - y;
+        float dz = this.dimensions == 3 ? this.positions[offset + 2] - z : 0;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /// Receives entities found by a query along with their squared distance
+    /// to the queried point.
+    @FunctionalInterface
+    public interface NeighborConsumer {
+        void accept(int entity, float distanceSquared);
+    }
+}
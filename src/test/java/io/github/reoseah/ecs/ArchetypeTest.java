@@ -0,0 +1,121 @@
+package io.github.reoseah.ecs;
+
+import io.github.reoseah.ecs.bitmanipulation.BitSets;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ArchetypeTest {
+    @Test
+    void testSortBy() {
+        var world = new World();
+        int key = world.createComponent(ColumnType.IntArray.INSTANCE);
+        int name = world.createComponent(ColumnType.ObjectArray.INSTANCE);
+        var random = new Random(1);
+        for (int i = 0; i < 100; i++) {
+            world.spawn(BitSets.of(key, name)).setInt(key, random.nextInt(1000)).setObject(name, "entity " + i);
+        }
+        for (int i = 0; i < 100; i += 7) {
+            world.removeEntity(i);
+        }
+        var archetype = world.archetypes.get(0);
+        var expected = snapshot(world, 100, key, name);
+
+        archetype.sortBy(key, (int[] keys, int row) -> keys[row]);
+
+        int[] keys = (int[]) archetype.getColumn(key);
+        for (int row = 1; row < archetype.entityCount(); row++) {
+            assertTrue(keys[row - 1] <= keys[row]);
+        }
+        assertStateUnchanged(world, 100, key, name, expected);
+        // the temporary row used while permuting is cleared
+        assertNull(((Object[]) archetype.getColumn(name))[archetype.entityCount()]);
+    }
+
+    @Test
+    void testSortByComparator() {
+        var world = new World();
+        int key = world.createComponent(ColumnType.LongArray.INSTANCE);
+        for (int i = 0; i < 20; i++) {
+            world.spawn(BitSets.of(key)).setLong(key, i);
+        }
+        var archetype = world.archetypes.get(0);
+        long[] values = (long[]) archetype.getColumn(key);
+        archetype.sortBy((a, b) -> Long.compare(values[b], values[a]));
+
+        for (int row = 0; row < 20; row++) {
+            assertEquals(19 - row, values[row]);
+            assertEquals(19 - row, archetype.entities[row]);
+        }
+        assertEquals(19, (int) world.entities[0]);
+    }
+
+    @Test
+    void testSortByWithBitColumn() {
+        var world = new World();
+        int key = world.createComponent(ColumnType.IntArray.INSTANCE);
+        int even = world.createComponent(ColumnType.BitSet.INSTANCE);
+        for (int i = 0; i < 100; i++) {
+            world.spawn(BitSets.of(key, even)).setInt(key, 99 - i).setBit(even, i % 2 == 0);
+        }
+        var archetype = world.archetypes.get(0);
+        archetype.sortBy(key, (int[] keys, int row) -> keys[row]);
+
+        for (int entity = 0; entity < 100; entity++) {
+            var helper = world.accessEntity(entity);
+            assertEquals(99 - entity, helper.row());
+            assertEquals(entity % 2 == 0, helper.getBit(even));
+        }
+        assertFalse(archetype.getBit(even, archetype.entityCount()));
+    }
+
+    @Test
+    void testSortIncrementally() {
+        var world = new World();
+        int key = world.createComponent(ColumnType.IntArray.INSTANCE);
+        int name = world.createComponent(ColumnType.ObjectArray.INSTANCE);
+        var random = new Random(2);
+        for (int i = 0; i < 500; i++) {
+            world.spawn(BitSets.of(key, name)).setInt(key, random.nextInt(10_000)).setObject(name, "entity " + i);
+        }
+        var archetype = world.archetypes.get(0);
+        archetype.sortBy(key, (int[] keys, int row) -> keys[row]);
+        // removals move rows from the end into the middle
+        for (int i = 0; i < 500; i += 50) {
+            world.removeEntity(i);
+        }
+        var expected = snapshot(world, 500, key, name);
+
+        for (int tick = 0; tick < 100; tick++) {
+            archetype.sortIncrementally(key, (int[] keys, int row) -> keys[row], 64);
+        }
+        int[] keys = (int[]) archetype.getColumn(key);
+        for (int row = 1; row < archetype.entityCount(); row++) {
+            assertTrue(keys[row - 1] <= keys[row]);
+        }
+        assertStateUnchanged(world, 500, key, name, expected);
+
+        assertThrows(IllegalArgumentException.class, () -> archetype.sortIncrementally(key, (int[] k, int row) -> k[row], 1));
+    }
+
+    /// Returns values of each spawned entity, found through its location.
+    private static Object[] snapshot(World world, int count, int key, int name) {
+        var state = new Object[count];
+        for (int entity = 0; entity < count; entity++) {
+            long location = world.entities[entity];
+            if (world.accessEntity(entity) != null) {
+                var archetype = world.archetypes.get((int) (location >> 32));
+                int row = (int) location;
+                assertEquals(entity, archetype.entities[row]);
+                state[entity] = ((int[]) archetype.getColumn(key))[row] + " " + ((Object[]) archetype.getColumn(name))[row];
+            }
+        }
+        return state;
+    }
+
+    private static void assertStateUnchanged(World world, int count, int key, int name, Object[] expected) {
+        assertArrayEquals(expected, snapshot(world, count, key, name));
+    }
+}
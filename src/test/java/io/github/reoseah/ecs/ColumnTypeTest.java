@@ -0,0 +1,166 @@
+package io.github.reoseah.ecs;
+
+import io.github.reoseah.ecs.bitmanipulation.BitSets;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColumnTypeTest {
+    @Test
+    void testNarrowAccessors() {
+        var world = new World();
+        int b = world.createComponent(ColumnType.ByteArray.INSTANCE);
+        int s = world.createComponent(ColumnType.ShortArray.INSTANCE);
+        int c = world.createComponent(ColumnType.CharArray.INSTANCE);
+        int f = world.createComponent(ColumnType.FloatArray.INSTANCE);
+        int d = world.createComponent(ColumnType.DoubleArray.INSTANCE);
+        int h = world.createComponent(ColumnType.HalfFloatArray.INSTANCE);
+        int x = world.createComponent(new ColumnType.FixedPointColumn(8));
+
+        var mask = BitSets.of(b, s, c, f, d, h, x);
+        var first = world.spawn(mask)
+                .setByte(b, (byte) -5)
+                .setShort(s, (short) 1234)
+                .setChar(c, 'q')
+                .setFloat(f, 1.5F)
+                .setDouble(d, Math.PI)
+                .setHalf(h, 0.1F)
+                .setFixed(x, 3.14159);
+        world.spawn(mask).setByte(b, (byte) 7);
+
+        assertEquals(-5, first.getByte(b));
+        assertEquals(1234, first.getShort(s));
+        assertEquals('q', first.getChar(c));
+        assertEquals(1.5F, first.getFloat(f));
+        assertEquals(Math.PI, first.getDouble(d));
+        assertEquals(0.1F, first.getHalf(h), 0.0001F);
+        assertEquals(804 / 256.0, first.getFixed(x));
+
+        // swap-removing the first entity moves the second one into its row
+        world.removeEntity(first.entity);
+        var cursor = world.cursor();
+        assertTrue(cursor.moveTo(1));
+        assertEquals(0, cursor.row());
+        assertEquals(7, cursor.getByte(b));
+        assertEquals(0, cursor.getShort(s));
+        assertEquals(0, cursor.getHalf(h));
+        assertEquals(0, cursor.getFixed(x));
+    }
+
+    @Test
+    void testFixedPointSaturates() {
+        var type = new ColumnType.FixedPointColumn(16);
+        assertEquals(Integer.MAX_VALUE, type.fromDouble(1e9));
+        assertEquals(Integer.MIN_VALUE, type.fromDouble(-1e9));
+        assertEquals(-0.5, type.toDouble(type.fromDouble(-0.5)));
+        assertThrows(IllegalArgumentException.class, () -> new ColumnType.FixedPointColumn(31));
+    }
+
+    @Test
+    void testBulkConversions() {
+        var halves = new short[4];
+        ColumnType.HalfFloatArray.encode(new float[]{0, 1, -2, 65504}, 0, halves, 0, 4);
+        var floats = new float[5];
+        ColumnType.HalfFloatArray.decode(halves, 0, floats, 1, 4);
+        assertArrayEquals(new float[]{0, 0, 1, -2, 65504}, floats);
+
+        var type = new ColumnType.FixedPointColumn(4);
+        var fixed = new int[3];
+        type.encode(new double[]{0.25, -1, 2.0625}, 0, fixed, 0, 3);
+        assertArrayEquals(new int[]{4, -16, 33}, fixed);
+        var doubles = new double[3];
+        type.decode(fixed, 0, doubles, 0, 3);
+        assertArrayEquals(new double[]{0.25, -1, 2.0625}, doubles);
+    }
+
+    @Test
+    void testRanges() {
+        var type = ColumnType.ShortArray.INSTANCE;
+        short[] storage = {1, 2, 3, 4, 5};
+        short[] destination = new short[5];
+        type.transferRange(storage, 1, destination, 2, 3);
+        assertArrayEquals(new short[]{0, 0, 2, 3, 4}, destination);
+        type.removeRange(storage, 0, 2);
+        assertArrayEquals(new short[]{0, 0, 3, 4, 5}, storage);
+
+        var vectors = new ColumnType.FloatVectorColumn(2);
+        float[] points = {1, 2, 3, 4, 5, 6};
+        float[] copy = vectors.createStorage(3);
+        vectors.transferRange(points, 1, copy, 0, 2);
+        assertArrayEquals(new float[]{3, 4, 5, 6, 0, 0}, copy);
+
+        // default implementation goes through transfer and remove
+        var bits = ColumnType.BitSet.INSTANCE;
+        long[] flags = {0b1011};
+        long[] moved = bits.createStorage(64);
+        bits.transferRange(flags, 0, moved, 1, 4);
+        assertEquals(0b10110, moved[0]);
+        bits.removeRange(flags, 0, 2);
+        assertArrayEquals(new long[]{0b1000}, flags);
+    }
+
+    @Test
+    void testBitSetReplace() {
+        var bits = ColumnType.BitSet.INSTANCE;
+        long[] storage = {0b0010};
+        bits.replace(storage, 1, 3);
+        assertTrue(BitSets.contains(storage, 3));
+        assertFalse(BitSets.contains(storage, 1));
+
+        // a cleared source clears the destination too
+        bits.replace(storage, 0, 3);
+        assertEquals(0, storage[0]);
+    }
+
+    @Test
+    void testSerialization() {
+        var type = ColumnType.CharArray.INSTANCE;
+        char[] storage = {'a', 'b', 'c'};
+        var buffer = ByteBuffer.allocate((int) type.serializedSize(storage, 1, 2) + 1);
+        type.write(storage, 1, 2, buffer);
+        assertEquals(4, buffer.position());
+        buffer.put((byte) 42);
+        buffer.flip();
+
+        char[] read = new char[2];
+        type.read(read, 0, 2, buffer);
+        assertArrayEquals(new char[]{'b', 'c'}, read);
+        assertEquals(42, buffer.get());
+    }
+
+    @Test
+    void testSnapshot() throws IOException {
+        var world = new World();
+        int b = world.createComponent(ColumnType.ByteArray.INSTANCE);
+        int h = world.createComponent(ColumnType.HalfFloatArray.INSTANCE);
+        int d = world.createComponent(ColumnType.DoubleArray.INSTANCE);
+        var mask = BitSets.of(b, h, d);
+        for (int i = 0; i < 10; i++) {
+            world.spawn(mask).setByte(b, (byte) i).setHalf(h, i * 0.5F).setDouble(d, -i);
+        }
+
+        var file = Files.createTempFile("world", ".snapshot");
+        try {
+            WorldSnapshot.save(world, file);
+            var loaded = new World();
+            loaded.createComponent(ColumnType.ByteArray.INSTANCE);
+            loaded.createComponent(ColumnType.HalfFloatArray.INSTANCE);
+            loaded.createComponent(ColumnType.DoubleArray.INSTANCE);
+            WorldSnapshot.load(loaded, file);
+
+            var cursor = loaded.cursor();
+            for (int i = 0; i < 10; i++) {
+                assertTrue(cursor.moveTo(i));
+                assertEquals(i, cursor.getByte(b));
+                assertEquals(i * 0.5F, cursor.getHalf(h));
+                assertEquals(-i, cursor.getDouble(d));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package io.github.reoseah.ecs;
+
+import io.github.reoseah.ecs.bitmanipulation.BitSets;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EntityBatchTest {
+    @Test
+    void testGatherAndScatter() {
+        var world = new World();
+        int health = world.createComponent(ColumnType.IntArray.INSTANCE);
+        int position = world.createComponent(new ColumnType.FloatVectorColumn(2));
+        int tag = world.createComponent(ColumnType.BitSet.INSTANCE);
+        for (int i = 0; i < 30; i++) {
+            var mask = i % 3 == 0 ? BitSets.of(health, position, tag) : BitSets.of(health, position);
+            world.spawn(mask).setInt(health, i).setVector(position, i, -i);
+        }
+        world.removeEntity(7);
+        var index = world.createIndex(health);
+
+        int[] targets = {25, 3, 7, 12, 1, 3};
+        var batch = world.createBatch();
+        batch.resolve(targets);
+        assertEquals(5, batch.count());
+        assertEquals(2, batch.archetypeCount());
+
+        int[] values = new int[targets.length];
+        values[2] = -1;
+        batch.gatherInt(health, values);
+        assertArrayEquals(new int[]{25, 3, -1, 12, 1, 3}, values);
+
+        float[] positions = new float[targets.length * 2];
+        batch.gatherVector(position, positions);
+        assertEquals(25, positions[0]);
+        assertEquals(-12, positions[7]);
+
+        for (int i = 0; i < values.length; i++) {
+            values[i] += 100;
+            positions[i * 2] = i;
+        }
+        batch.scatterInt(health, values);
+        batch.scatterVector(position, positions);
+        assertEquals(125, world.accessEntity(25).getInt(health));
+        assertEquals(101, world.accessEntity(1).getInt(health));
+        assertEquals(3, world.accessEntity(12).getVector(position, 0));
+        assertEquals(-12, world.accessEntity(12).getVector(position, 1));
+        assertEquals(12, index.first(112));
+        assertFalse(index.contains(12));
+
+        // the batch is reused for another list
+        batch.resolve(new int[]{2, 4, 8}, 2);
+        assertEquals(2, batch.count());
+        int[] small = new int[2];
+        batch.gatherInt(health, small);
+        assertArrayEquals(new int[]{2, 4}, small);
+
+        int mana = world.createComponent(ColumnType.IntArray.INSTANCE);
+        assertThrows(IllegalArgumentException.class, () -> batch.gatherInt(mana, small));
+    }
+}
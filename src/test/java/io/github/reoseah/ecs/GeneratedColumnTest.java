@@ -0,0 +1,85 @@
+package io.github.reoseah.ecs;
+
+import io.github.reoseah.ecs.bitmanipulation.BitSets;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GeneratedColumnTest {
+    @Component
+    record Particle(float x, float y, int age, boolean visible) {
+    }
+
+    @Component
+    record Label(String text, List<String> tags, int[] counts) {
+    }
+
+    /// Uses the names of parameters of the generated setters.
+    @Component
+    record Cell(int row, int column, float value, boolean entity) {
+    }
+
+    @Test
+    void testGeneratedColumn() {
+        var world = new World();
+        int particle = world.createComponent(ParticleColumn.INSTANCE);
+        int label = world.createComponent(LabelColumn.INSTANCE);
+
+        for (int i = 0; i < 20; i++) {
+            var entity = world.spawn(BitSets.of(particle));
+            ParticleColumn.set(entity, particle, i, -i, i * 10, i % 2 == 0);
+        }
+        var labeled = world.insertComponents(5, BitSets.of(label));
+        LabelColumn.set(labeled, label, new Label("five", List.of("odd"), new int[]{5}));
+        world.removeEntity(0);
+
+        var helper = world.accessEntity(5);
+        var archetype = world.archetypes.get((int) (world.entities[5] >> 32));
+        assertEquals(new Particle(5, -5, 50, false), ParticleColumn.get((ParticleColumn.Storage) archetype.getColumn(particle), helper.row()));
+        var text = LabelColumn.get((LabelColumn.Storage) archetype.getColumn(label), helper.row());
+        assertEquals("five", text.text());
+        assertEquals(List.of("odd"), text.tags());
+
+        // rows are moved field by field on removal
+        var particles = (ParticleColumn.Storage) world.archetypes.get(0).getColumn(particle);
+        // entity 5 took 19 away from the end, so removing 0 moves 18 into its row
+        assertEquals(18, particles.x[0]);
+        assertEquals(0, particles.age[world.archetypes.get(0).entityCount()]);
+    }
+
+    @Test
+    void testComponentNamesMatchingParameters() {
+        var world = new World();
+        int cell = world.createComponent(CellColumn.INSTANCE);
+
+        var entity = world.spawn(BitSets.of(cell));
+        CellColumn.set(entity, cell, 3, 4, 0.5F, true);
+        var cells = (CellColumn.Storage) world.archetypeAt(world.locate(entity.entity)).getColumn(cell);
+        assertEquals(new Cell(3, 4, 0.5F, true), CellColumn.get(cells, entity.row()));
+    }
+
+    @Test
+    void testSnapshot() throws Exception {
+        var world = new World();
+        int particle = world.createComponent(ParticleColumn.INSTANCE);
+        for (int i = 0; i < 10; i++) {
+            ParticleColumn.set(world.spawn(BitSets.of(particle)), particle, new Particle(i, i + 0.5f, i, true));
+        }
+        var path = Files.createTempFile("particles", ".snapshot");
+        try {
+            WorldSnapshot.save(world, path);
+            var loaded = new World();
+            loaded.createComponent(ParticleColumn.INSTANCE);
+            WorldSnapshot.load(loaded, path);
+            var particles = (ParticleColumn.Storage) loaded.archetypes.get(0).getColumn(particle);
+            for (int row = 0; row < 10; row++) {
+                assertEquals(new Particle(row, row + 0.5f, row, true), ParticleColumn.get(particles, row));
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+}
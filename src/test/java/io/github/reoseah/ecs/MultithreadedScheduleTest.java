@@ -1,5 +1,6 @@
 package io.github.reoseah.ecs;
 
+import io.github.reoseah.ecs.bitmanipulation.BitSets;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
@@ -69,6 +70,34 @@ public class MultithreadedScheduleTest {
         }
     }
 
+    @Test
+    void testReaderAndWriterRunSequentially() {
+        try (var threadPool = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()))) {
+            var schedule = new MultithreadedSchedule(world, threadPool);
+
+            List<Long> timestamps = Collections.synchronizedList(new ArrayList<>());
+            SystemRunnable system = (_1, _2) -> {
+                timestamps.add(System.currentTimeMillis());
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException ignored) {
+                }
+            };
+
+            // the writer is started first, and the reader has to wait for it
+            // even though the reader doesn't write anything
+            schedule.configure(system).writes(0).apply();
+            schedule.configure(system).reads(0).apply();
+
+            schedule.run();
+
+            assertEquals(2, timestamps.size());
+
+            long delta = Math.abs(timestamps.get(1) - timestamps.get(0));
+            assertTrue(delta > 90, "Reader and writer probably ran in parallel (too quickly): " + delta + "ms");
+        }
+    }
+
     @Test
     void testDependentSystemsRunSequentially() {
         try (var threadPool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors())) {
@@ -103,6 +132,271 @@ public class MultithreadedScheduleTest {
         }
     }
 
+    @Test
+    void testCriticalPathStartsFirst() {
+        try (var threadPool = Executors.newSingleThreadExecutor()) {
+            var schedule = new MultithreadedSchedule(world, threadPool);
+
+            List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+
+            // registered first, but short and nothing depends on it
+            var shortSystem = schedule.configure((_1, _2) -> order.add(0))
+                    .apply();
+            var longSystem = schedule.configure((_1, _2) -> {
+                        order.add(1);
+                        try {
+                            Thread.sleep(20);
+                        } catch (InterruptedException ignored) {
+                        }
+                    })
+                    .apply();
+            var dependentSystem = schedule.configure((_1, _2) -> order.add(2))
+                    .after(longSystem)
+                    .apply();
+
+            // first run has no measurements, so systems start in order of IDs
+            schedule.run();
+            assertEquals(List.of(shortSystem, longSystem, dependentSystem), order);
+            assertTrue(schedule.averageCost(longSystem) > schedule.averageCost(shortSystem));
+
+            order.clear();
+            schedule.run();
+            assertEquals(List.of(longSystem, shortSystem, dependentSystem), order);
+        }
+    }
+
+    @Test
+    void testSystemAddedBetweenRuns() {
+        try (var threadPool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors())) {
+            var schedule = new MultithreadedSchedule(world, threadPool);
+
+            List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+
+            var system0 = schedule.configure((_1, _2) -> order.add(0))
+                    .apply();
+            var system1 = schedule.configure((_1, _2) -> order.add(1))
+                    .after(system0)
+                    .apply();
+            schedule.run();
+            assertEquals(List.of(0, 1), order);
+
+            // added later, but has to run before both of the existing systems
+            schedule.configure((_1, _2) -> order.add(2))
+                    .before(system0, system1)
+                    .apply();
+
+            order.clear();
+            schedule.run();
+            assertEquals(List.of(2, 0, 1), order);
+        }
+    }
+
+    @Test
+    void testManySystemsAddedBetweenRuns() {
+        try (var threadPool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors())) {
+            var schedule = new MultithreadedSchedule(world, threadPool);
+
+            List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+
+            // grows the dependency lists past their initial capacity
+            int previous = schedule.configure((_1, _2) -> order.add(0)).apply();
+            for (int i = 1; i < 12; i++) {
+                int value = i;
+                previous = schedule.configure((_1, _2) -> order.add(value))
+                        .after(previous)
+                        .apply();
+                schedule.run();
+            }
+            schedule.configure((_1, _2) -> order.add(12))
+                    .before(8)
+                    .apply();
+
+            order.clear();
+            schedule.run();
+            assertEquals(13, order.size());
+            for (int i = 1; i < 12; i++) {
+                assertTrue(order.indexOf(i - 1) < order.indexOf(i));
+            }
+            assertTrue(order.indexOf(12) < order.indexOf(8));
+        }
+    }
+
+    @Test
+    void testDisabledSystemKeepsOrdering() {
+        try (var threadPool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors())) {
+            var schedule = new MultithreadedSchedule(world, threadPool);
+
+            List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+
+            var system0 = schedule.configure((_1, _2) -> {
+                        try {
+                            Thread.sleep(50);
+                        } catch (InterruptedException ignored) {
+                        }
+                        order.add(0);
+                    })
+                    .apply();
+            var system1 = schedule.configure((_1, _2) -> order.add(1))
+                    .after(system0)
+                    .apply();
+            schedule.configure((_1, _2) -> order.add(2))
+                    .after(system1)
+                    .apply();
+
+            schedule.setEnabled(system1, false);
+            schedule.run();
+            // system 2 still waits for system 0 through the disabled system
+            assertEquals(List.of(0, 2), order);
+
+            schedule.setEnabled(system1, true);
+            order.clear();
+            schedule.run();
+            assertEquals(List.of(0, 1, 2), order);
+        }
+    }
+
+    @Test
+    void testRemovedSystem() {
+        try (var threadPool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors())) {
+            var schedule = new MultithreadedSchedule(world, threadPool);
+
+            List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+
+            var system0 = schedule.configure((_1, _2) -> order.add(0))
+                    .apply();
+            var system1 = schedule.configure((_1, _2) -> order.add(1))
+                    .after(system0)
+                    .apply();
+            var system2 = schedule.configure((_1, _2) -> order.add(2))
+                    .after(system1)
+                    .apply();
+            schedule.run();
+            assertEquals(List.of(0, 1, 2), order);
+
+            schedule.remove(system1);
+            assertTrue(schedule.isRemoved(system1));
+
+            order.clear();
+            schedule.run();
+            assertEquals(2, order.size());
+            assertFalse(order.contains(1));
+
+            // the removed ID is not reused and can't be depended on anymore
+            schedule.configure((_1, _2) -> order.add(3))
+                    .after(system1, system2)
+                    .apply();
+            order.clear();
+            schedule.run();
+            assertEquals(3, order.size());
+            assertTrue(order.indexOf(3) > order.indexOf(2));
+        }
+    }
+
+    @Test
+    void testRunConditions() {
+        try (var threadPool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors())) {
+            var schedule = new MultithreadedSchedule(world, threadPool);
+            int component = world.createComponent(ColumnType.IntArray.INSTANCE);
+
+            int[] counters = new int[3];
+            schedule.configure((_1, _2) -> counters[0]++)
+                    .runIf(RunCondition.everyNTicks(3, 1))
+                    .apply();
+            schedule.configure((_1, _2) -> counters[1]++)
+                    .reads(component)
+                    .runIf(RunCondition.hasEntities(BitSets.of(component)))
+                    .apply();
+            schedule.configure((_1, _2) -> counters[2]++)
+                    .runIf((_w, tick) -> tick < 2)
+                    .apply();
+
+            for (int i = 0; i < 6; i++) {
+                if (i == 4) {
+                    world.spawn(BitSets.of(component));
+                }
+                schedule.run();
+            }
+
+            // ticks 1 and 4
+            assertEquals(2, counters[0]);
+            // ticks 4 and 5
+            assertEquals(2, counters[1]);
+            // ticks 0 and 1
+            assertEquals(2, counters[2]);
+        }
+    }
+
+    @Test
+    void testRunConditionEvaluatedOncePerRun() {
+        try (var threadPool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors())) {
+            var schedule = new MultithreadedSchedule(world, threadPool);
+
+            int[] evaluations = new int[1];
+            schedule.configure((_1, _2) -> {
+                        try {
+                            Thread.sleep(20);
+                        } catch (InterruptedException ignored) {
+                        }
+                    })
+                    .writes(0)
+                    .apply();
+            // ready from the start, but has to wait for the first system
+            schedule.configure((_1, _2) -> {
+                    })
+                    .writes(0)
+                    .runIf((_w, _t) -> {
+                        evaluations[0]++;
+                        return true;
+                    })
+                    .apply();
+
+            for (int i = 0; i < 3; i++) {
+                schedule.run();
+            }
+            assertEquals(3, evaluations[0]);
+        }
+    }
+
+    @Test
+    void testCheapChainIsFused() {
+        try (var threadPool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors())) {
+            var schedule = new MultithreadedSchedule(world, threadPool);
+
+            List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+
+            var system0 = schedule.configure((_1, _2) -> order.add(0))
+                    .apply();
+            var system1 = schedule.configure((_1, _2) -> order.add(1))
+                    .after(system0)
+                    .apply();
+            var system2 = schedule.configure((_1, _2) -> order.add(2))
+                    .after(system1)
+                    .apply();
+            // has two dependencies, so it can't be fused into either chain
+            var system3 = schedule.configure((_1, _2) -> order.add(3))
+                    .after(system2)
+                    .after(schedule.configure((_1, _2) -> order.add(4)).apply())
+                    .apply();
+
+            // let measured costs settle after warm-up
+            for (int i = 0; i < 50; i++) {
+                schedule.run();
+            }
+            assertEquals(system1, schedule.fusedNext(system0));
+            assertEquals(system2, schedule.fusedNext(system1));
+            assertEquals(-1, schedule.fusedNext(system2));
+
+            // fused systems still run in order, exactly once
+            order.clear();
+            schedule.run();
+            assertEquals(5, order.size());
+            assertTrue(order.indexOf(0) < order.indexOf(1));
+            assertTrue(order.indexOf(1) < order.indexOf(2));
+            assertTrue(order.indexOf(2) < order.indexOf(3));
+            assertTrue(order.indexOf(4) < order.indexOf(3));
+        }
+    }
+
     @Test
     void testThrowsOnDependencyCycle() {
         try (var threadPool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors())) {
@@ -145,6 +439,32 @@ public class MultithreadedScheduleTest {
         }
     }
 
+    @Test
+    void testSystemThrowingAnError() {
+        try (var threadPool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors())) {
+            var schedule = new MultithreadedSchedule(world, threadPool);
+            int[] runs = new int[1];
+            var failing = schedule.configure((_1, _2) -> {
+                        throw new AssertionError("Test error thrown from a system");
+                    })
+                    .writes(0)
+                    .apply();
+            // has two dependencies, so it's never fused after the failing one
+            schedule.configure((_1, _2) -> runs[0]++)
+                    .writes(0)
+                    .after(failing)
+                    .after(schedule.configure((_1, _2) -> {
+                    }).apply())
+                    .apply();
+
+            for (int i = 0; i < 50; i++) {
+                schedule.run();
+            }
+            // the failing system was marked completed every time
+            assertEquals(50, runs[0]);
+        }
+    }
+
     static void throwingSystem(List<Archetype> archetypes, World world) {
         throw new RuntimeException("Test exception thrown from a system");
     }
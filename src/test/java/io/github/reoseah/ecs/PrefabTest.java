@@ -0,0 +1,100 @@
+package io.github.reoseah.ecs;
+
+import io.github.reoseah.ecs.bitmanipulation.BitSets;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PrefabTest {
+    @Test
+    void testInstantiate() {
+        var world = new World();
+        int health = world.createComponent(ColumnType.IntArray.INSTANCE);
+        int position = world.createComponent(new ColumnType.FloatVectorColumn(3));
+        int flag = world.createComponent(ColumnType.BitSet.INSTANCE);
+        int name = world.createColdComponent(ColumnType.ObjectArray.INSTANCE);
+        int particle = world.createComponent(ParticleColumn.INSTANCE);
+
+        var prefab = world.createPrefab(BitSets.of(health, position, flag, name, particle))
+                .setInt(health, 10)
+                .setVector(position, 1, 2, 3)
+                .setBit(flag, true)
+                .setObject(name, "goblin");
+        ParticleColumn.set(prefab.<ParticleColumn.Storage>column(particle), 0, 0.5F, 1.5F, 7, true);
+        world.createIndex(health);
+
+        world.spawn(BitSets.of(health)).setInt(health, 1);
+        int[] entities = world.instantiate(prefab, 100);
+        assertEquals(100, entities.length);
+        assertEquals(101, world.entityCount());
+
+        var cursor = world.cursor();
+        for (int entity : entities) {
+            assertTrue(cursor.moveTo(entity));
+            assertEquals(10, cursor.getInt(health));
+            assertEquals(3, cursor.getVector(position, 2));
+            assertTrue(cursor.getBit(flag));
+            assertEquals("goblin", world.<Object[]>getColdColumn(name)[entity]);
+            var particles = (ParticleColumn.Storage) cursor.archetype().getColumn(particle);
+            assertEquals(new GeneratedColumnTest.Particle(0.5F, 1.5F, 7, true), ParticleColumn.get(particles, cursor.row()));
+        }
+        assertEquals(100, world.getIndex(health).lookup(10).length);
+
+        assertThrows(IllegalArgumentException.class, () -> world.createPrefab(BitSets.of(world.createResource())));
+        assertThrows(IllegalArgumentException.class, () -> prefab.setInt(world.createComponent(ColumnType.IntArray.INSTANCE), 1));
+    }
+
+    @Test
+    void testSmallColumnTypes() {
+        var world = new World();
+        int level = world.createComponent(ColumnType.ByteArray.INSTANCE);
+        int ammo = world.createComponent(ColumnType.ShortArray.INSTANCE);
+        int symbol = world.createComponent(ColumnType.CharArray.INSTANCE);
+        int scale = world.createComponent(ColumnType.HalfFloatArray.INSTANCE);
+        int speed = world.createComponent(new ColumnType.FixedPointColumn(8));
+
+        var prefab = world.createPrefab(BitSets.of(level, ammo, symbol, scale, speed))
+                .setByte(level, (byte) 3)
+                .setShort(ammo, (short) 300)
+                .setChar(symbol, 'g')
+                .setHalf(scale, 1.5F)
+                .setFixed(speed, 2.25);
+        int[] entities = world.instantiate(prefab, 10);
+
+        var cursor = world.cursor();
+        for (int entity : entities) {
+            assertTrue(cursor.moveTo(entity));
+            assertEquals(3, cursor.getByte(level));
+            assertEquals(300, cursor.getShort(ammo));
+            assertEquals('g', cursor.getChar(symbol));
+            assertEquals(1.5F, cursor.getHalf(scale));
+            assertEquals(2.25, cursor.getFixed(speed));
+        }
+    }
+
+    @Test
+    void testCloneEntity() {
+        var world = new World();
+        int health = world.createComponent(ColumnType.IntArray.INSTANCE);
+        int position = world.createComponent(new ColumnType.FloatVectorColumn(2));
+        int name = world.createColdComponent(ColumnType.ObjectArray.INSTANCE);
+
+        var original = world.spawn(BitSets.of(health, position, name)).setInt(health, 5).setVector(position, 4, 2);
+        original.<Object[]>coldColumn(name)[original.entity] = "original";
+        // spans several doublings of the block copy and grows the archetype
+        int[] clones = world.cloneEntity(original.entity, 37);
+
+        var cursor = world.cursor();
+        for (int clone : clones) {
+            assertTrue(cursor.moveTo(clone));
+            assertEquals(5, cursor.getInt(health));
+            assertEquals(4, cursor.getVector(position, 0));
+            assertEquals(2, cursor.getVector(position, 1));
+            assertEquals("original", world.<Object[]>getColdColumn(name)[clone]);
+        }
+        assertEquals(38, world.archetypeAt(world.locate(original.entity)).entityCount());
+
+        world.removeEntity(clones[0]);
+        assertThrows(IllegalArgumentException.class, () -> world.cloneEntity(clones[0], 1));
+    }
+}
@@ -0,0 +1,114 @@
+package io.github.reoseah.ecs;
+
+import io.github.reoseah.ecs.bitmanipulation.BitSets;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import org.junit.jupiter.api.Test;
+
+import java.util.Spliterator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QueryTest {
+    @Test
+    void testForEachArchetype() {
+        var world = new World();
+        int position = world.createComponent(ColumnType.IntArray.INSTANCE);
+        int velocity = world.createComponent(ColumnType.LongArray.INSTANCE);
+        int name = world.createComponent(ColumnType.ObjectArray.INSTANCE);
+        for (int i = 0; i < 10; i++) {
+            world.spawn(BitSets.of(position, velocity)).setLong(velocity, 2);
+        }
+        var movement = world.<int[], long[]>query(position, velocity);
+        movement.forEachArchetype((positions, velocities, count, _) -> {
+            for (int row = 0; row < count; row++) {
+                positions[row] += (int) velocities[row];
+            }
+        });
+
+        // archetypes created after the query and columns regrown since
+        for (int i = 0; i < 100; i++) {
+            world.spawn(BitSets.of(name, velocity, position)).setLong(velocity, 3);
+        }
+        world.spawn(BitSets.of(position));
+        assertEquals(2, movement.archetypeCount());
+        assertEquals(110, movement.entityCount());
+
+        movement.forEachRow((_, positions, velocities, row) -> positions[row] += (int) velocities[row]);
+
+        var positions = world.<int[]>query(position);
+        var sums = new long[1];
+        positions.forEachArchetype((column, count, _) -> {
+            for (int row = 0; row < count; row++) {
+                sums[0] += column[row];
+            }
+        });
+        assertEquals(10 * 4 + 100 * 3, sums[0]);
+    }
+
+    @Test
+    void testForEachRowEntities() {
+        var world = new World();
+        int a = world.createComponent(ColumnType.IntArray.INSTANCE);
+        int b = world.createComponent(ColumnType.IntArray.INSTANCE);
+        int c = world.createComponent(ColumnType.ObjectArray.INSTANCE);
+        for (int i = 0; i < 5; i++) {
+            world.spawn(BitSets.of(a, b, c)).setInt(a, i).setInt(b, i * 10).setObject(c, "entity " + i);
+        }
+        var query = world.<int[], int[], Object[]>query(a, b, c);
+        var entities = new IntArrayList();
+        query.forEachRow((entity, as, bs, cs, row) -> {
+            assertEquals(entity, as[row]);
+            assertEquals(entity * 10, bs[row]);
+            assertEquals("entity " + entity, cs[row]);
+            entities.add(entity);
+        });
+        assertEquals(IntArrayList.of(0, 1, 2, 3, 4), entities);
+    }
+
+    @Test
+    void testSpliterator() {
+        var world = new World();
+        int health = world.createComponent(ColumnType.IntArray.INSTANCE);
+        int tag = world.createComponent(ColumnType.BitSet.INSTANCE);
+        int other = world.createComponent(ColumnType.BitSet.INSTANCE);
+        for (int i = 0; i < 3000; i++) {
+            world.spawn(i % 10 == 0 ? BitSets.of(health, tag) : BitSets.of(health)).setInt(health, i);
+        }
+        world.spawn(BitSets.of(health, other)).setInt(health, -1);
+        world.createArchetype(BitSets.of(health, tag, other));
+
+        var query = world.<int[]>query(health);
+        assertEquals(3001, query.entities().count());
+        assertEquals(3000L * 2999 / 2 - 1, query.locations().parallel().map(location -> world.archetypeAt(location).getInt(health, (int) location)).sum());
+        query.locations().forEach(location -> assertEquals(location, world.locate(world.archetypeAt(location).entities[(int) location])));
+        assertEquals(300, query.locationSpliterator().trySplit().getExactSizeIfKnown());
+
+        var spliterator = query.spliterator();
+        assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED));
+        assertEquals(3001, spliterator.getExactSizeIfKnown());
+
+        // 300 + 2700 + 1 rows split at the boundary closest to the middle
+        var tagged = spliterator.trySplit();
+        assertEquals(300, tagged.getExactSizeIfKnown());
+        assertEquals(2701, spliterator.getExactSizeIfKnown());
+        var untagged = spliterator.trySplit();
+        assertEquals(2700, untagged.getExactSizeIfKnown());
+        assertNull(spliterator.trySplit());
+        assertTrue(spliterator.tryAdvance((int entity) -> assertEquals(3000, entity)));
+        assertFalse(spliterator.tryAdvance((int entity) -> fail()));
+
+        // then by rows of a single archetype, down to the minimum size
+        var half = untagged.trySplit();
+        assertEquals(1350, half.getExactSizeIfKnown());
+        assertEquals(1350, untagged.getExactSizeIfKnown());
+        assertNull(tagged.trySplit());
+
+        var seen = new IntArrayList();
+        half.forEachRemaining((int entity) -> seen.add(entity));
+        untagged.tryAdvance((int entity) -> seen.add(entity));
+        untagged.forEachRemaining((int entity) -> seen.add(entity));
+        assertEquals(2700, seen.size());
+        assertEquals(1, seen.getInt(0));
+        assertEquals(2999, seen.getInt(2699));
+    }
+}
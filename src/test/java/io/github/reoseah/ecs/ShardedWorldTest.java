@@ -0,0 +1,148 @@
+package io.github.reoseah.ecs;
+
+import io.github.reoseah.ecs.bitmanipulation.BitSets;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShardedWorldTest {
+    static final int POSITION = 0;
+    static final int NAME = 1;
+
+    ExecutorService threadPool;
+
+    @BeforeEach
+    void createThreadPool() {
+        threadPool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    @AfterEach
+    void shutdownThreadPool() {
+        threadPool.shutdown();
+    }
+
+    @Test
+    void testMigrationAtSyncPoint() {
+        var sharded = new ShardedWorld(threadPool);
+        int left = sharded.addShard(createWorld());
+        int right = sharded.addShard(createWorld());
+
+        // entities move right by one every tick and change shard past 10
+        for (int shard = 0; shard < 2; shard++) {
+            int current = shard;
+            sharded.schedule(shard).configure((archetypes, _) -> {
+                for (var archetype : archetypes) {
+                    var positions = (int[]) archetype.getColumn(POSITION);
+                    for (int row = 0; row < archetype.entityCount(); row++) {
+                        positions[row]++;
+                        if (current == left && positions[row] >= 10) {
+                            sharded.requestMigration(left, archetype.entities[row], right);
+                        }
+                    }
+                }
+            }).writes(POSITION).apply();
+        }
+        for (int i = 0; i < 10; i++) {
+            sharded.world(left).spawn(BitSets.of(POSITION, NAME)).setInt(POSITION, i).setObject(NAME, "entity " + i);
+        }
+
+        var migrated = new IntArrayList();
+        sharded.setMigrationListener((shard, entity, targetShard, newEntity) -> {
+            assertEquals(left, shard);
+            assertEquals(right, targetShard);
+            migrated.add(entity);
+        });
+
+        sharded.run();
+        assertEquals(IntArrayList.of(9), migrated);
+        assertEquals(9, sharded.world(left).entityCount());
+        assertEquals(1, sharded.world(right).entityCount());
+
+        for (int tick = 0; tick < 9; tick++) {
+            sharded.run();
+        }
+        assertEquals(0, sharded.world(left).entityCount());
+        assertEquals(10, sharded.world(right).entityCount());
+
+        var names = new IntArrayList();
+        sharded.world(right).runOnce(BitSets.of(POSITION, NAME), (archetypes, _) -> {
+            for (var archetype : archetypes) {
+                var positions = (int[]) archetype.getColumn(POSITION);
+                var entityNames = (Object[]) archetype.getColumn(NAME);
+                for (int row = 0; row < archetype.entityCount(); row++) {
+                    // each entity moved one step per tick in either shard
+                    int initial = Integer.parseInt(((String) entityNames[row]).substring("entity ".length()));
+                    assertEquals(initial + 10, positions[row]);
+                    names.add(initial);
+                }
+            }
+        });
+        names.sort(null);
+        assertEquals(IntArrayList.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), names);
+    }
+
+    @Test
+    void testBulkMigrate() {
+        var sharded = new ShardedWorld(threadPool);
+        var source = sharded.world(sharded.addShard(createWorld()));
+        var target = sharded.world(sharded.addShard(createWorld()));
+        for (int i = 0; i < 5; i++) {
+            target.spawn(BitSets.of(POSITION));
+        }
+        for (int i = 0; i < 20; i++) {
+            var mask = i % 2 == 0 ? BitSets.of(POSITION) : BitSets.of(POSITION, NAME);
+            source.spawn(mask).setInt(POSITION, i);
+        }
+        source.removeEntity(3);
+
+        int[] newIds = sharded.migrate(0, new int[]{1, 2, 3, 4, 2, 15}, 1);
+        assertEquals(-1, newIds[2]);
+        assertEquals(-1, newIds[4]);
+        assertEquals(15, source.entityCount());
+        assertEquals(9, target.entityCount());
+
+        int[] moved = {0, 1, 3, 5};
+        for (int i : moved) {
+            assertNotEquals(-1, newIds[i]);
+            assertNotNull(target.accessEntity(newIds[i]));
+        }
+        var archetypes = target.getQueryArchetypes(BitSets.of(POSITION));
+        int[] expectedPositions = {1, 2, 4, 15};
+        int found = 0;
+        for (var archetype : archetypes) {
+            var positions = (int[]) archetype.getColumn(POSITION);
+            for (int row = 0; row < archetype.entityCount(); row++) {
+                for (int i = 0; i < expectedPositions.length; i++) {
+                    int entity = newIds[moved[i]];
+                    if (archetype.entities[row] == entity) {
+                        assertEquals(expectedPositions[i], positions[row]);
+                        found++;
+                    }
+                }
+            }
+        }
+        assertEquals(4, found);
+    }
+
+    @Test
+    void testMismatchedComponents() {
+        var sharded = new ShardedWorld(threadPool);
+        sharded.addShard(createWorld());
+        var other = new World();
+        other.createComponent(ColumnType.LongArray.INSTANCE);
+        assertThrows(IllegalArgumentException.class, () -> sharded.addShard(other));
+    }
+
+    private static World createWorld() {
+        var world = new World();
+        world.createComponent(ColumnType.IntArray.INSTANCE);
+        world.createComponent(ColumnType.ObjectArray.INSTANCE);
+        return world;
+    }
+}
@@ -0,0 +1,96 @@
+package io.github.reoseah.ecs;
+
+import io.github.reoseah.ecs.bitmanipulation.BitSets;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ValueIndexTest {
+    @Test
+    void testKeptInSync() {
+        var world = new World();
+        int owner = world.createComponent(ColumnType.LongArray.INSTANCE);
+        int health = world.createComponent(ColumnType.IntArray.INSTANCE);
+        int name = world.createComponent(ColumnType.ObjectArray.INSTANCE);
+
+        for (int i = 0; i < 10; i++) {
+            world.spawn(BitSets.of(owner, health)).setLong(owner, i % 3).setInt(health, 100);
+        }
+        // entities indexed when the index is created
+        var owners = world.createIndex(owner);
+        var healths = world.createIndex(health);
+        assertSame(owners, world.createIndex(owner));
+        assertArrayEquals(new int[]{0, 3, 6, 9}, sorted(owners.lookup(0)));
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9}, sorted(healths.lookup(100)));
+
+        // setters
+        world.accessEntity(3).setLong(owner, 42);
+        assertArrayEquals(new int[]{0, 6, 9}, sorted(owners.lookup(0)));
+        assertEquals(3, owners.first(42));
+        assertEquals(-1, owners.next(3));
+
+        // removal, including the entity swapped into its row
+        world.removeEntity(0);
+        assertArrayEquals(new int[]{6, 9}, sorted(owners.lookup(0)));
+        world.removeEntity(3);
+        assertFalse(owners.contains(42));
+        assertEquals(-1, owners.first(42));
+
+        // moving between archetypes keeps the value or drops the entity
+        world.insertComponents(6, BitSets.of(name));
+        assertArrayEquals(new int[]{6, 9}, sorted(owners.lookup(0)));
+        world.removeComponents(9, BitSets.of(owner));
+        assertArrayEquals(new int[]{6}, sorted(owners.lookup(0)));
+        world.insertComponents(9, BitSets.of(owner));
+        assertArrayEquals(new int[]{6, 9}, sorted(owners.lookup(0)));
+
+        // spawned entities are indexed with the default value
+        int spawned = world.spawn(BitSets.of(owner)).entity;
+        assertArrayEquals(sorted(new int[]{6, 9, spawned}), sorted(owners.lookup(0)));
+
+        // direct writes need an explicit update
+        var archetype = world.archetypes.get((int) (world.entities[spawned] >> 32));
+        ((long[]) archetype.getColumn(owner))[(int) world.entities[spawned]] = 7;
+        owners.update(spawned);
+        assertArrayEquals(new int[]{spawned}, owners.lookup(7));
+
+        var collected = new IntArrayList();
+        owners.forEach(1, collected::add);
+        collected.sort(null);
+        assertEquals(IntArrayList.of(1, 4, 7), collected);
+    }
+
+    @Test
+    void testRestore() {
+        var world = new World();
+        int owner = world.createComponent(ColumnType.IntArray.INSTANCE);
+        var owners = world.createIndex(owner);
+        for (int i = 0; i < 5; i++) {
+            world.spawn(BitSets.of(owner)).setInt(owner, 1);
+        }
+        var fork = world.fork();
+        world.accessEntity(2).setInt(owner, 2);
+        world.removeEntity(4);
+
+        world.restore(fork);
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4}, sorted(owners.lookup(1)));
+        assertFalse(owners.contains(2));
+    }
+
+    @Test
+    void testUnsupportedComponent() {
+        var world = new World();
+        int name = world.createComponent(ColumnType.ObjectArray.INSTANCE);
+        assertThrows(IllegalArgumentException.class, () -> world.createIndex(name));
+        world.removeIndex(name);
+        assertNull(world.getIndex(name));
+    }
+
+    private static int[] sorted(int[] entities) {
+        Arrays.sort(entities);
+        return entities;
+    }
+}
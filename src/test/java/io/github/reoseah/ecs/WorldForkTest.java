@@ -0,0 +1,88 @@
+package io.github.reoseah.ecs;
+
+import io.github.reoseah.ecs.bitmanipulation.BitSets;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WorldForkTest {
+    @Test
+    void testRestore() {
+        var world = new World();
+        int position = world.createComponent(ColumnType.IntArray.INSTANCE);
+        int velocity = world.createComponent(ColumnType.LongArray.INSTANCE);
+        var mask = BitSets.of(position, velocity);
+        for (int i = 0; i < 100; i++) {
+            world.spawn(mask).setInt(position, i).setLong(velocity, i);
+        }
+        var archetype = world.archetypes.get(0);
+        var velocities = archetype.getColumn(velocity);
+
+        var fork = world.fork();
+        world.accessEntity(5).setInt(position, -5);
+        world.removeEntity(10);
+        world.spawn(BitSets.of(position)).setInt(position, 1000);
+
+        assertEquals(100, world.entityCount());
+        assertEquals(-5, ((int[]) archetype.getColumn(position))[5]);
+
+        world.restore(fork);
+        assertEquals(100, world.entityCount());
+        assertEquals(100, archetype.entityCount());
+        assertEquals(0, world.archetypes.get(1).entityCount());
+        assertNotNull(world.accessEntity(10));
+        int[] positions = (int[]) archetype.getColumn(position);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, positions[i]);
+        }
+        // columns that weren't written are never copied
+        assertSame(velocities, archetype.getColumn(velocity));
+
+        // fork stays intact after restoring, so it can be restored again
+        world.accessEntity(7).setInt(position, -7);
+        world.restore(fork);
+        assertEquals(7, ((int[]) archetype.getColumn(position))[7]);
+        assertEquals(100, world.spawn(mask).entity);
+    }
+
+    @Test
+    void testScheduleCopiesWrittenColumns() {
+        var world = new World();
+        int position = world.createComponent(ColumnType.IntArray.INSTANCE);
+        int velocity = world.createComponent(ColumnType.IntArray.INSTANCE);
+        for (int i = 0; i < 10; i++) {
+            world.spawn(BitSets.of(position, velocity)).setInt(position, i).setInt(velocity, 1);
+        }
+
+        var threadPool = Executors.newSingleThreadExecutor();
+        try {
+            var schedule = world.createSchedule(threadPool);
+            schedule.configure((archetypes, _) -> {
+                        for (var archetype : archetypes) {
+                            var positions = (int[]) archetype.getColumn(position);
+                            var velocities = (int[]) archetype.getColumn(velocity);
+                            for (int row = 0; row < archetype.entityCount(); row++) {
+                                positions[row] += velocities[row];
+                            }
+                        }
+                    }) //
+                    .reads(velocity) //
+                    .writes(position) //
+                    .apply();
+
+            var archetype = world.archetypes.get(0);
+            var fork = world.fork();
+            var velocities = archetype.getColumn(velocity);
+            schedule.run();
+            assertEquals(10, ((int[]) archetype.getColumn(position))[9]);
+            assertSame(velocities, archetype.getColumn(velocity));
+
+            world.restore(fork);
+            assertEquals(9, ((int[]) archetype.getColumn(position))[9]);
+        } finally {
+            threadPool.shutdown();
+        }
+    }
+}
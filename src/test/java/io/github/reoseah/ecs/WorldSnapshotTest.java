@@ -0,0 +1,272 @@
+package io.github.reoseah.ecs;
+
+import io.github.reoseah.ecs.bitmanipulation.BitSets;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WorldSnapshotTest {
+    @Test
+    void testSaveAndLoad() throws IOException {
+        var world = new World();
+        int position = world.createComponent(ColumnType.IntArray.INSTANCE);
+        int velocity = world.createComponent(ColumnType.LongArray.INSTANCE);
+        int flag = world.createComponent(ColumnType.BitSet.INSTANCE);
+
+        var moving = BitSets.of(position, velocity, flag);
+        var still = BitSets.of(position);
+        for (int i = 0; i < 100; i++) {
+            world.spawn(moving).setInt(position, i).setLong(velocity, -i).setBit(flag, i % 3 == 0);
+            world.spawn(still).setInt(position, 1000 + i);
+        }
+        world.removeEntity(10);
+        world.removeEntity(51);
+
+        var file = Files.createTempFile("world", ".snapshot");
+        try {
+            WorldSnapshot.save(world, file);
+
+            var loaded = new World();
+            loaded.createComponent(ColumnType.IntArray.INSTANCE);
+            loaded.createComponent(ColumnType.LongArray.INSTANCE);
+            loaded.createComponent(ColumnType.BitSet.INSTANCE);
+            WorldSnapshot.load(loaded, file);
+
+            assertSameState(world, loaded);
+
+            // removed entity IDs are reused in the same order
+            assertEquals(51, loaded.spawn(still).entity);
+            assertEquals(10, loaded.spawn(still).entity);
+            assertEquals(200, loaded.spawn(still).entity);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testDelta() throws IOException {
+        var world = new World();
+        int position = world.createComponent(ColumnType.IntArray.INSTANCE);
+        int velocity = world.createComponent(ColumnType.LongArray.INSTANCE);
+        int flag = world.createComponent(ColumnType.BitSet.INSTANCE);
+
+        var moving = BitSets.of(position, velocity);
+        for (int i = 0; i < 20_000; i++) {
+            world.spawn(moving).setInt(position, i).setLong(velocity, i * 2L);
+        }
+
+        var base = Files.createTempFile("world", ".snapshot");
+        var delta = Files.createTempFile("world", ".delta");
+        try {
+            WorldSnapshot.save(world, base);
+
+            world.accessEntity(7).setInt(position, -7);
+            world.removeEntity(15_000);
+            world.insertComponents(100, BitSets.of(flag)).setBit(flag, true);
+            world.spawn(BitSets.of(position, flag)).setInt(position, 42);
+            world.spawn(moving).setInt(position, 43).setLong(velocity, 44);
+            WorldSnapshot.saveDelta(world, delta);
+
+            assertTrue(Files.size(delta) < Files.size(base) / 2, "delta should only contain changed chunks");
+
+            var loaded = new World();
+            loaded.createComponent(ColumnType.IntArray.INSTANCE);
+            loaded.createComponent(ColumnType.LongArray.INSTANCE);
+            loaded.createComponent(ColumnType.BitSet.INSTANCE);
+            WorldSnapshot.load(loaded, base);
+            WorldSnapshot.applyDelta(loaded, delta);
+            assertSameState(world, loaded);
+
+            // nothing changed since the last delta
+            WorldSnapshot.saveDelta(world, delta);
+            WorldSnapshot.applyDelta(loaded, delta);
+            assertSameState(world, loaded);
+
+            assertThrows(IOException.class, () -> WorldSnapshot.load(new World(), delta));
+        } finally {
+            Files.delete(base);
+            Files.delete(delta);
+        }
+    }
+
+    @Test
+    void testDeltaAfterScheduledWriter() throws IOException {
+        var world = new World();
+        int position = world.createComponent(ColumnType.IntArray.INSTANCE);
+        int velocity = world.createComponent(ColumnType.IntArray.INSTANCE);
+        int score = world.createColdComponent(ColumnType.LongArray.INSTANCE);
+        for (int i = 0; i < 100; i++) {
+            world.spawn(BitSets.of(position, velocity, score)).setInt(position, i).setInt(velocity, 1);
+            world.spawn(BitSets.of(position)).setInt(position, -i);
+        }
+
+        var base = Files.createTempFile("world", ".snapshot");
+        var delta = Files.createTempFile("world", ".delta");
+        try (var threadPool = Executors.newFixedThreadPool(2)) {
+            WorldSnapshot.save(world, base);
+
+            // writes columns directly, without marking rows as changed
+            var schedule = world.createSchedule(threadPool);
+            schedule.configure((archetypes, w) -> {
+                        long[] scores = w.getWritableColdColumn(score);
+                        for (var archetype : archetypes) {
+                            var positions = (int[]) archetype.getColumn(position);
+                            var velocities = (int[]) archetype.getColumn(velocity);
+                            for (int row = 0; row < archetype.entityCount(); row++) {
+                                positions[row] += velocities[row];
+                                scores[archetype.entities[row]]++;
+                            }
+                        }
+                    })
+                    .reads(velocity)
+                    .writes(position, score)
+                    .apply();
+            schedule.run();
+            WorldSnapshot.saveDelta(world, delta);
+
+            var loaded = new World();
+            loaded.createComponent(ColumnType.IntArray.INSTANCE);
+            loaded.createComponent(ColumnType.IntArray.INSTANCE);
+            loaded.createColdComponent(ColumnType.LongArray.INSTANCE);
+            WorldSnapshot.load(loaded, base);
+            WorldSnapshot.applyDelta(loaded, delta);
+            assertSameState(world, loaded);
+            assertEquals(1, loaded.accessEntity(0).getInt(position));
+            assertEquals(1, loaded.<long[]>getColdColumn(score)[0]);
+        } finally {
+            Files.delete(base);
+            Files.delete(delta);
+        }
+    }
+
+    @Test
+    void testColdComponents() throws IOException {
+        var world = new World();
+        int position = world.createComponent(ColumnType.IntArray.INSTANCE);
+        int score = world.createColdComponent(ColumnType.LongArray.INSTANCE);
+        for (int i = 0; i < 50; i++) {
+            var entity = world.spawn(BitSets.of(position, score)).setInt(position, i);
+            entity.<long[]>coldColumn(score)[entity.entity] = i * 10L;
+        }
+
+        var base = Files.createTempFile("world", ".snapshot");
+        var delta = Files.createTempFile("world", ".delta");
+        try {
+            WorldSnapshot.save(world, base);
+            world.accessEntity(3).<long[]>coldColumn(score)[3] = -3;
+            world.removeEntity(4);
+            WorldSnapshot.saveDelta(world, delta);
+
+            var loaded = new World();
+            loaded.createComponent(ColumnType.IntArray.INSTANCE);
+            loaded.createColdComponent(ColumnType.LongArray.INSTANCE);
+            WorldSnapshot.load(loaded, base);
+            assertEquals(40, loaded.<long[]>getColdColumn(score)[4]);
+            WorldSnapshot.applyDelta(loaded, delta);
+            assertSameState(world, loaded);
+            long[] scores = loaded.getColdColumn(score);
+            assertEquals(-3, scores[3]);
+            assertEquals(0, scores[4]);
+            assertEquals(490, scores[49]);
+
+            var hot = new World();
+            hot.createComponent(ColumnType.IntArray.INSTANCE);
+            hot.createComponent(ColumnType.LongArray.INSTANCE);
+            assertThrows(IllegalArgumentException.class, () -> WorldSnapshot.load(hot, base));
+        } finally {
+            Files.delete(base);
+            Files.delete(delta);
+        }
+    }
+
+    @Test
+    void testSectionsSplitAcrossMappings() throws IOException {
+        var world = new World();
+        int position = world.createComponent(ColumnType.IntArray.INSTANCE);
+        int velocity = world.createComponent(ColumnType.LongArray.INSTANCE);
+        int flag = world.createComponent(ColumnType.BitSet.INSTANCE);
+        int score = world.createColdComponent(ColumnType.LongArray.INSTANCE);
+        for (int i = 0; i < 20_000; i++) {
+            var mask = i % 5 == 0 ? BitSets.of(position, flag, score) : BitSets.of(position, velocity, flag);
+            world.spawn(mask).setInt(position, i).setBit(flag, i % 3 == 0);
+        }
+        for (int i = 0; i < 20_000; i += 5) {
+            world.<long[]>getWritableColdColumn(score)[i] = i * 10L;
+        }
+
+        var base = Files.createTempFile("world", ".snapshot");
+        var delta = Files.createTempFile("world", ".delta");
+        // every section and the location table are larger than a mapping
+        WorldSnapshot.maxMappingSize = 4096;
+        try {
+            WorldSnapshot.save(world, base);
+            for (int i = 0; i < 20_000; i += 7) {
+                world.accessEntity(i).setInt(position, -i);
+            }
+            world.removeEntity(12_345);
+            WorldSnapshot.saveDelta(world, delta);
+
+            var loaded = new World();
+            loaded.createComponent(ColumnType.IntArray.INSTANCE);
+            loaded.createComponent(ColumnType.LongArray.INSTANCE);
+            loaded.createComponent(ColumnType.BitSet.INSTANCE);
+            loaded.createColdComponent(ColumnType.LongArray.INSTANCE);
+            WorldSnapshot.load(loaded, base);
+            WorldSnapshot.applyDelta(loaded, delta);
+            assertSameState(world, loaded);
+            assertArrayEquals(world.<long[]>getColdColumn(score), loaded.<long[]>getColdColumn(score));
+        } finally {
+            WorldSnapshot.maxMappingSize = Integer.MAX_VALUE;
+            Files.delete(base);
+            Files.delete(delta);
+        }
+    }
+
+    @Test
+    void testUnsupportedColumn() throws IOException {
+        var world = new World();
+        int name = world.createComponent(ColumnType.ObjectArray.INSTANCE);
+        world.spawn(BitSets.of(name)).setObject(name, "entity");
+
+        var file = Files.createTempFile("world", ".snapshot");
+        try {
+            assertThrows(IllegalArgumentException.class, () -> WorldSnapshot.save(world, file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    static void assertSameState(World expected, World actual) {
+        assertEquals(expected.entityCount(), actual.entityCount());
+        assertEquals(expected.archetypes.size(), actual.archetypes.size());
+        for (int i = 0; i < expected.archetypes.size(); i++) {
+            var expectedArchetype = expected.archetypes.get(i);
+            var actualArchetype = actual.archetypes.get(i);
+            int count = expectedArchetype.entityCount();
+            assertArrayEquals(expectedArchetype.componentMask, actualArchetype.componentMask);
+            assertEquals(count, actualArchetype.entityCount());
+            assertArrayEquals(Arrays.copyOf(expectedArchetype.entities, count), Arrays.copyOf(actualArchetype.entities, count));
+            for (int component : expectedArchetype.components) {
+                Object expectedColumn = expectedArchetype.getColumn(component);
+                Object actualColumn = actualArchetype.getColumn(component);
+                if (expectedColumn instanceof int[] ints) {
+                    assertArrayEquals(Arrays.copyOf(ints, count), Arrays.copyOf((int[]) actualColumn, count));
+                } else if (expected.<long[]>componentColumnType(component) == ColumnType.LongArray.INSTANCE) {
+                    assertArrayEquals(Arrays.copyOf((long[]) expectedColumn, count), Arrays.copyOf((long[]) actualColumn, count));
+                } else {
+                    for (int row = 0; row < count; row++) {
+                        assertEquals(BitSets.contains((long[]) expectedColumn, row), BitSets.contains((long[]) actualColumn, row));
+                    }
+                }
+            }
+        }
+        for (int entity = 0; entity < expected.entities.length; entity++) {
+            assertEquals(expected.entities[entity], entity < actual.entities.length ? actual.entities[entity] : 0L);
+        }
+    }
+}
@@ -8,8 +8,7 @@ import org.junit.jupiter.api.Test;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class WorldTest {
     World world;
@@ -120,6 +119,144 @@ public class WorldTest {
         assertEntityMatchCount(world, BitSets.of(componentA, componentB), 0);
     }
 
+    @Test
+    void testMasksWithTrailingZerosShareArchetype() {
+        for (int i = 2; i < 70; i++) {
+            world.createComponent(ColumnType.IntArray.INSTANCE);
+        }
+        int entity = world.spawn(BitSets.of(componentA)).entity;
+        // difference keeps the second word, which is now all zeros
+        world.insertComponents(entity, BitSets.of(69));
+        world.removeComponents(entity, BitSets.of(69));
+        world.spawn(BitSets.of(componentA));
+
+        assertEquals(2, world.archetypes.size());
+        assertEquals(2, world.archetypes.get(0).entityCount());
+        assertSame(world.getQueryArchetypes(BitSets.of(componentA)), world.getQueryArchetypes(new long[]{1L << componentA, 0}));
+    }
+
+    @Test
+    void testGettersAndCursor() {
+        int name = world.createComponent(ColumnType.ObjectArray.INSTANCE);
+        int flag = world.createComponent(ColumnType.BitSet.INSTANCE);
+        int velocity = world.createComponent(new ColumnType.FloatVectorColumn(2));
+
+        var helper = world.spawn(BitSets.of(componentA, componentB, name, flag, velocity)) //
+                .setInt(componentA, 3) //
+                .setLong(componentB, 4) //
+                .setObject(name, "three") //
+                .setBit(flag, true) //
+                .setVector(velocity, 1, 2);
+        assertEquals(3, helper.getInt(componentA));
+        assertEquals(4, helper.getLong(componentB));
+        assertEquals("three", helper.getObject(name));
+        assertTrue(helper.getBit(flag));
+        assertEquals(2, helper.getVector(velocity, 1));
+
+        var cursor = world.cursor();
+        int other = cursor.spawn(BitSets.of(componentA)).setInt(componentA, 7).entity();
+        assertFalse(cursor.has(componentB));
+
+        assertTrue(cursor.moveTo(helper.entity));
+        cursor.setInt(componentA, cursor.getInt(componentA) + 1).setVector(velocity, 0, 5);
+        assertEquals(4, world.accessEntity(helper.entity).getInt(componentA));
+        assertEquals(5, world.accessEntity(helper.entity).getVector(velocity, 0));
+        // lanes outside the vector would read another entity's values
+        assertThrows(IllegalArgumentException.class, () -> cursor.getVector(velocity, 2));
+        assertThrows(IllegalArgumentException.class, () -> cursor.setVector(velocity, -1, 0));
+        assertThrows(IllegalArgumentException.class, () -> helper.setVector(velocity, 1, 2, 3));
+        assertThrows(IllegalArgumentException.class, () -> helper.setVector(componentA, 1, 2));
+
+        long location = world.locate(other);
+        assertEquals(7, world.archetypeAt(location).getInt(componentA, (int) location));
+
+        world.removeEntity(other);
+        assertEquals(-1, world.locate(other));
+        assertFalse(cursor.moveTo(other));
+        assertThrows(IllegalStateException.class, () -> cursor.getInt(componentA));
+        assertThrows(IllegalArgumentException.class, () -> world.accessEntity(helper.entity).getInt(100));
+    }
+
+    @Test
+    void testColdComponents() {
+        int name = world.createColdComponent(ColumnType.ObjectArray.INSTANCE);
+        assertTrue(world.isCold(name));
+        assertFalse(world.isCold(componentA));
+
+        var first = world.spawn(BitSets.of(componentA, name)).setInt(componentA, 1);
+        first.<Object[]>coldColumn(name)[first.entity] = "first";
+        var second = world.spawn(BitSets.of(componentA, name)).setInt(componentA, 2);
+        second.<Object[]>coldColumn(name)[second.entity] = "second";
+
+        var archetype = world.archetypeAt(world.locate(first.entity));
+        assertTrue(archetype.has(name));
+        assertEquals(1, archetype.components.length);
+        assertThrows(IllegalArgumentException.class, () -> archetype.getColumn(name));
+        assertEquals(1, world.getQueryArchetypes(BitSets.of(name)).size());
+
+        // moving and swap-removing entities doesn't touch cold values
+        world.insertComponents(first.entity, BitSets.of(componentB));
+        Object[] names = world.getColdColumn(name);
+        assertEquals("first", names[first.entity]);
+        assertEquals("second", names[second.entity]);
+
+        // values are cleared when the component is removed
+        var fork = world.fork();
+        world.removeComponents(first.entity, BitSets.of(name));
+        world.removeEntity(second.entity);
+        assertNull(world.<Object[]>getColdColumn(name)[first.entity]);
+        assertNull(world.<Object[]>getColdColumn(name)[second.entity]);
+        assertSame(names, fork.coldColumns[name]);
+        assertEquals("first", names[first.entity]);
+
+        world.restore(fork);
+        assertEquals("second", world.<Object[]>getColdColumn(name)[second.entity]);
+        assertThrows(IllegalArgumentException.class, () -> world.getColdColumn(componentA));
+        assertThrows(IllegalArgumentException.class, () -> world.createIndex(world.createColdComponent(ColumnType.IntArray.INSTANCE)));
+    }
+
+    @Test
+    void testResources() {
+        int counter = world.createResource(new int[]{0});
+        int name = world.createResource("initial");
+
+        assertEquals("initial", world.getResource(name));
+        world.setResource(name, "changed");
+        assertEquals("changed", world.getResource(name));
+        assertFalse(world.isComponent(name));
+        assertTrue(world.isComponent(componentA));
+
+        world.spawn(mask).setInt(componentA, 5);
+
+        var schedule = world.createSchedule(threadPool);
+        int[] archetypeCounts = new int[2];
+        int[] runs = {0};
+        schedule.configure((archetypes, w) -> {
+                    // resources don't narrow down the query
+                    archetypeCounts[runs[0]++] = archetypes.size();
+
+                    int[] value = w.getResource(counter);
+                    for (var archetype : archetypes) {
+                        var columnA = (int[]) archetype.getColumn(componentA);
+                        for (int i = 0; i < archetype.entityCount(); i++) {
+                            value[0] += columnA[i];
+                        }
+                    }
+                })
+                .reads(componentA)
+                .writesResources(counter)
+                .apply();
+
+        schedule.run();
+        schedule.run();
+        assertEquals(2, runs[0]);
+        assertArrayEquals(new int[]{1, 1}, archetypeCounts);
+        assertEquals(10, world.<int[]>getResource(counter)[0]);
+
+        assertThrows(IllegalArgumentException.class, () -> world.getResource(componentA));
+        assertThrows(IllegalArgumentException.class, () -> world.setResource(1000, "missing"));
+    }
+
     void assertEntityMatchCount(World world, long[] query, int count) {
         int[] counter = {0};
 
@@ -1,5 +1,6 @@
 package io.github.reoseah.ecs.bitmanipulation;
 
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import it.unimi.dsi.fastutil.ints.IntArraySet;
 import org.junit.jupiter.api.Test;
 
@@ -88,4 +89,56 @@ public class BitSetsTest {
         assertThrows(IndexOutOfBoundsException.class, () ->
                 BitSets.nextSetBit(singleWord, -1));
     }
+
+    @Test
+    void testOperationsInto() {
+        long[] destination = {-1, -1, -1};
+
+        BitSets.unionInto(BitSets.of(1, 70), BitSets.of(2), destination);
+        assertArrayEquals(new long[]{0b110, 1L << 6, 0}, destination);
+
+        BitSets.differenceInto(BitSets.of(1, 2, 70), BitSets.of(70), destination);
+        assertArrayEquals(new long[]{0b110, 0, 0}, destination);
+
+        BitSets.unionAndDifferenceInto(BitSets.of(1, 2), BitSets.of(130), BitSets.of(1), destination);
+        assertArrayEquals(new long[]{0b100, 0, 1L << 2}, destination);
+
+        // destination can be one of the arguments
+        long[] left = BitSets.of(1);
+        assertSame(left, BitSets.unionInto(left, BitSets.of(3), left));
+        assertArrayEquals(new long[]{0b1010}, left);
+
+        assertThrows(IllegalArgumentException.class, () -> BitSets.unionInto(BitSets.of(200), BitSets.EMPTY, new long[1]));
+    }
+
+    @Test
+    void testForEachSetBit() {
+        var bits = new IntArraySet();
+        BitSets.forEachSetBit(BitSets.of(0, 5, 63, 64, 200), bits::add);
+        assertEquals(new IntArraySet(new int[]{0, 5, 63, 64, 200}), bits);
+
+        var list = new IntArrayList();
+        BitSets.forEachSetBit(0b1001L, 64, list::add);
+        assertEquals(IntArrayList.of(64, 67), list);
+
+        assertEquals(0, BitSets.word(BitSets.of(3), 1));
+    }
+
+    @Test
+    void testSetRange() {
+        long[] bits = new long[3];
+        BitSets.set(bits, 3, 130, true);
+        assertEquals(127, BitSets.count(bits));
+        assertFalse(BitSets.contains(bits, 2));
+        assertTrue(BitSets.contains(bits, 129));
+        assertFalse(BitSets.contains(bits, 130));
+
+        BitSets.set(bits, 64, 128, false);
+        assertEquals(-1L << 3, bits[0]);
+        assertEquals(0, bits[1]);
+        assertEquals(0b11, bits[2]);
+
+        BitSets.set(bits, 5, 5, false);
+        assertEquals(-1L << 3, bits[0]);
+    }
 }
@@ -0,0 +1,45 @@
+package io.github.reoseah.ecs.bitmanipulation;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MaskInternerTest {
+    @Test
+    void testIntern() {
+        var interner = new MaskInterner();
+        int empty = interner.intern(BitSets.EMPTY);
+        int single = interner.intern(BitSets.of(1, 5));
+        int multi = interner.intern(BitSets.of(1, 100));
+
+        assertEquals(3, interner.size());
+        assertEquals(empty, interner.intern(new long[]{0, 0}));
+        assertEquals(single, interner.intern(new long[]{0b100010, 0}));
+        assertEquals(multi, interner.intern(new long[]{0b10, 1L << 36, 0, 0}));
+        assertEquals(3, interner.size());
+
+        assertArrayEquals(new long[0], interner.get(empty));
+        assertArrayEquals(new long[]{0b100010}, interner.get(single));
+        assertArrayEquals(new long[]{0b10, 1L << 36}, interner.get(multi));
+    }
+
+    @Test
+    void testInternCopiesMask() {
+        var interner = new MaskInterner();
+        long[] mask = {1, 1};
+        int id = interner.intern(mask);
+        mask[1] = 0;
+        assertArrayEquals(new long[]{1, 1}, interner.get(id));
+        assertNotEquals(id, interner.intern(mask));
+    }
+
+    @Test
+    void testFind() {
+        var interner = new MaskInterner();
+        assertEquals(-1, interner.find(BitSets.of(3)));
+        assertEquals(-1, interner.find(BitSets.of(3, 200)));
+        int id = interner.intern(BitSets.of(3, 200));
+        assertEquals(id, interner.find(BitSets.of(3, 200)));
+        assertThrows(IllegalArgumentException.class, () -> interner.get(5));
+    }
+}
@@ -0,0 +1,153 @@
+package io.github.reoseah.ecs.events;
+
+import io.github.reoseah.ecs.World;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventChannelTest {
+    @Test
+    void testEventsBecomeReadableAfterUpdate() {
+        var channel = new IntEventChannel();
+        var reader = channel.createReader();
+
+        channel.send(1);
+        channel.send(2);
+        // sent during this tick, not readable yet
+        assertFalse(reader.hasNext());
+
+        channel.update();
+        assertEquals(2, channel.size());
+        assertEquals(1, reader.next());
+        assertEquals(2, reader.next());
+        assertFalse(reader.hasNext());
+
+        channel.update();
+        // dropped after one tick
+        assertEquals(0, channel.size());
+        assertFalse(reader.hasNext());
+    }
+
+    @Test
+    void testReadersHaveIndependentCursors() {
+        var channel = new LongEventChannel();
+        var reader1 = channel.createReader();
+        var reader2 = channel.createReader();
+
+        channel.send(10L);
+        channel.send(20L);
+        channel.update();
+
+        assertEquals(10L, reader1.next());
+        assertEquals(1, reader1.remaining());
+        assertEquals(2, reader2.remaining());
+        assertEquals(10L, reader2.next());
+        assertEquals(20L, reader2.next());
+        assertEquals(20L, reader1.next());
+
+        channel.send(30L);
+        channel.update();
+        // cursors start over for the new events
+        assertEquals(30L, reader1.next());
+        assertEquals(30L, reader2.next());
+    }
+
+    @Test
+    void testSendingFromSeveralThreads() throws InterruptedException {
+        var channel = new ObjectEventChannel<String>();
+        var reader = channel.createReader();
+
+        channel.send("a");
+        var thread = new Thread(() -> {
+            channel.send("b");
+            channel.send("c");
+        });
+        thread.start();
+        thread.join();
+        channel.update();
+
+        // events from one thread stay in order
+        assertEquals(3, reader.remaining());
+        assertEquals("a", reader.next());
+        assertEquals("b", reader.next());
+        assertEquals("c", reader.next());
+
+        // only a single thread sent events, buffers are swapped
+        channel.send("d");
+        channel.update();
+        assertEquals(1, channel.size());
+        assertEquals("d", channel.get(0));
+    }
+
+    @Test
+    void testBuffersGrow() throws InterruptedException {
+        var channel = new IntEventChannel();
+        for (int i = 0; i < 100; i++) {
+            channel.send(i);
+        }
+        var thread = new Thread(() -> channel.sendAll(new int[]{100, 101, 102}, 0, 3));
+        thread.start();
+        thread.join();
+        channel.update();
+
+        assertEquals(103, channel.size());
+        for (int i = 0; i < 103; i++) {
+            assertEquals(i, channel.get(i));
+        }
+    }
+
+    @Test
+    void testConcurrentSends() {
+        var channel = new LongEventChannel();
+        int threads = 4;
+        int perThread = 10_000;
+        try (var threadPool = Executors.newFixedThreadPool(threads)) {
+            for (int t = 0; t < threads; t++) {
+                threadPool.execute(() -> {
+                    for (int i = 1; i <= perThread; i++) {
+                        channel.send(i);
+                    }
+                });
+            }
+        }
+        channel.update();
+
+        assertEquals(threads * perThread, channel.size());
+        long sum = 0;
+        for (int i = 0; i < channel.size(); i++) {
+            sum += channel.get(i);
+        }
+        assertEquals(threads * (perThread * (perThread + 1L) / 2), sum);
+    }
+
+    @Test
+    void testScheduledSystems() {
+        var world = new World();
+        int hits = world.createEvents(new IntEventChannel());
+        IntEventChannel channel = world.getResource(hits);
+
+        var reader = channel.createReader();
+        int[] sum = {0};
+
+        try (var threadPool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors())) {
+            var schedule = world.createSchedule(threadPool);
+            // sending only needs shared access, so all three can run at once
+            schedule.configure((_a, _w) -> channel.send(1)).readsResources(hits).apply();
+            schedule.configure((_a, _w) -> channel.send(2)).readsResources(hits).apply();
+            schedule.configure((_a, _w) -> {
+                while (reader.hasNext()) {
+                    sum[0] += reader.next();
+                }
+            }).readsResources(hits).apply();
+
+            schedule.run();
+            assertEquals(0, sum[0]);
+
+            world.updateEvents();
+            schedule.run();
+            assertEquals(3, sum[0]);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package io.github.reoseah.ecs.graphs;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IncrementalTopologicalOrderTest {
+    @Test
+    void testEdgeAgreeingWithOrder() {
+        var order = new IncrementalTopologicalOrder();
+        order.addNode();
+        order.addNode();
+
+        assertTrue(order.addEdge(0, 1));
+        assertEquals(0, order.position(0));
+        assertEquals(1, order.position(1));
+    }
+
+    @Test
+    void testEdgeReordersNodes() {
+        var order = new IncrementalTopologicalOrder();
+        for (int i = 0; i < 4; i++) {
+            order.addNode();
+        }
+        assertTrue(order.addEdge(0, 1));
+        // 3 -> 0 should move 3 before 0 and, transitively, before 1
+        assertTrue(order.addEdge(3, 0));
+
+        assertTrue(order.position(3) < order.position(0));
+        assertTrue(order.position(0) < order.position(1));
+        for (int position = 0; position < 4; position++) {
+            assertEquals(position, order.position(order.nodeAt(position)));
+        }
+    }
+
+    @Test
+    void testRejectsCycle() {
+        var order = new IncrementalTopologicalOrder();
+        for (int i = 0; i < 3; i++) {
+            order.addNode();
+        }
+        assertTrue(order.addEdge(0, 1));
+        assertTrue(order.addEdge(1, 2));
+
+        assertFalse(order.addEdge(2, 0));
+        assertFalse(order.addEdge(1, 1));
+
+        // rejected edges don't change the graph
+        assertTrue(order.position(0) < order.position(1));
+        assertTrue(order.position(1) < order.position(2));
+    }
+
+    @Test
+    void testEdgeAfterRejectedCycle() {
+        var order = new IncrementalTopologicalOrder();
+        for (int i = 0; i < 4; i++) {
+            order.addNode();
+        }
+        assertTrue(order.addEdge(0, 1));
+        assertTrue(order.addEdge(0, 2));
+        // the search reaches 2 from 0 while 1 is still waiting to be visited
+        assertFalse(order.addEdge(2, 0));
+
+        // 3 -> 0 has to move 0 and both of its successors after 3
+        assertTrue(order.addEdge(3, 0));
+        assertTrue(order.position(3) < order.position(0));
+        assertTrue(order.position(0) < order.position(1));
+        assertTrue(order.position(0) < order.position(2));
+        for (int position = 0; position < 4; position++) {
+            assertEquals(position, order.position(order.nodeAt(position)));
+        }
+    }
+
+    @Test
+    void testRandomEdgesKeepValidOrder() {
+        var random = new Random(42);
+        var order = new IncrementalTopologicalOrder();
+        int size = 50;
+        for (int i = 0; i < size; i++) {
+            order.addNode();
+        }
+
+        // edges are generated by a hidden permutation, so they never form a cycle
+        int[] hidden = new int[size];
+        for (int i = 0; i < size; i++) {
+            hidden[i] = i;
+        }
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = hidden[i];
+            hidden[i] = hidden[j];
+            hidden[j] = tmp;
+        }
+
+        int[][] edges = new int[200][];
+        for (int i = 0; i < edges.length; i++) {
+            int a = random.nextInt(size);
+            int b = random.nextInt(size);
+            if (a == b) {
+                b = (b + 1) % size;
+            }
+            int from = Math.min(a, b);
+            int to = Math.max(a, b);
+            edges[i] = new int[]{hidden[from], hidden[to]};
+            assertTrue(order.addEdge(hidden[from], hidden[to]));
+        }
+
+        for (var edge : edges) {
+            assertTrue(order.position(edge[0]) < order.position(edge[1]));
+        }
+    }
+}
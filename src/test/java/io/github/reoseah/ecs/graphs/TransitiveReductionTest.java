@@ -0,0 +1,95 @@
+package io.github.reoseah.ecs.graphs;
+
+import it.unimi.dsi.fastutil.ints.IntList;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransitiveReductionTest {
+    @Test
+    void testRedundantEdgeIsNotAdded() {
+        var graph = new TransitiveReduction();
+        for (int i = 0; i < 3; i++) {
+            graph.addNode();
+        }
+        assertTrue(graph.addEdge(0, 1));
+        assertTrue(graph.addEdge(1, 2));
+        assertFalse(graph.addEdge(0, 2));
+
+        assertEquals(IntList.of(1), graph.successors(0));
+        assertEquals(1, graph.predecessorCount(2));
+        assertTrue(graph.reaches(0, 2));
+    }
+
+    @Test
+    void testEdgeMadeRedundantIsRemoved() {
+        var graph = new TransitiveReduction();
+        for (int i = 0; i < 3; i++) {
+            graph.addNode();
+        }
+        assertTrue(graph.addEdge(0, 2));
+        assertTrue(graph.addEdge(0, 1));
+        // 0 -> 2 is now implied by 0 -> 1 -> 2
+        assertTrue(graph.addEdge(1, 2));
+
+        assertEquals(IntList.of(1), graph.successors(0));
+        assertEquals(IntList.of(2), graph.successors(1));
+        assertEquals(0, graph.predecessorCount(0));
+        assertEquals(1, graph.predecessorCount(1));
+        assertEquals(1, graph.predecessorCount(2));
+    }
+
+    @Test
+    void testAncestorsGetReachability() {
+        var graph = new TransitiveReduction();
+        for (int i = 0; i < 4; i++) {
+            graph.addNode();
+        }
+        graph.addEdge(0, 1);
+        graph.addEdge(2, 3);
+        graph.addEdge(0, 3);
+        graph.addEdge(1, 2);
+
+        assertTrue(graph.reaches(0, 3));
+        assertTrue(graph.reaches(1, 3));
+        assertFalse(graph.reaches(3, 0));
+        // 0 -> 3 is implied by 0 -> 1 -> 2 -> 3
+        assertEquals(IntList.of(1), graph.successors(0));
+        assertEquals(1, graph.predecessorCount(3));
+    }
+
+    @Test
+    void testRemoveNodeRestoresImpliedEdges() {
+        var graph = new TransitiveReduction();
+        for (int i = 0; i < 4; i++) {
+            graph.addNode();
+        }
+        graph.addEdge(0, 1);
+        graph.addEdge(1, 2);
+        graph.addEdge(0, 2);
+        graph.addEdge(1, 3);
+
+        graph.removeNode(1);
+
+        assertEquals(IntList.of(2), graph.successors(0));
+        assertTrue(graph.successors(1).isEmpty());
+        assertEquals(0, graph.predecessorCount(1));
+        assertEquals(1, graph.predecessorCount(2));
+        assertEquals(0, graph.predecessorCount(3));
+        assertTrue(graph.reaches(0, 2));
+        assertFalse(graph.reaches(0, 3));
+    }
+
+    @Test
+    void testGrowsPastInitialCapacity() {
+        var graph = new TransitiveReduction();
+        for (int i = 0; i < 100; i++) {
+            graph.addNode();
+            if (i > 0) {
+                graph.addEdge(i - 1, i);
+            }
+        }
+        assertTrue(graph.reaches(0, 99));
+        assertFalse(graph.addEdge(0, 99));
+    }
+}
@@ -0,0 +1,95 @@
+package io.github.reoseah.ecs.journal;
+
+import io.github.reoseah.ecs.ColumnType;
+import io.github.reoseah.ecs.World;
+import io.github.reoseah.ecs.bitmanipulation.BitSets;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JournalTest {
+    @Test
+    void testReplay() throws IOException {
+        var world = createWorld();
+        var file = Files.createTempFile("world", ".journal");
+        try {
+            try (var journal = JournalWriter.open(file)) {
+                world.setJournal(journal);
+                // enough records to fill several buffers
+                for (int tick = 0; tick < 100; tick++) {
+                    for (int i = 0; i < 1000; i++) {
+                        world.spawn(BitSets.of(0));
+                    }
+                    for (int i = 0; i < 300; i++) {
+                        int entity = tick * 700 + i * 2;
+                        switch (i % 3) {
+                            case 0 -> world.insertComponents(entity, BitSets.of(1));
+                            case 1 -> world.modifyComponents(entity, BitSets.of(2), BitSets.of(0));
+                            default -> world.removeEntity(entity);
+                        }
+                    }
+                    journal.tick();
+                }
+                world.setJournal(null);
+            }
+
+            var replayed = createWorld();
+            var ticks = new int[1];
+            assertEquals(100, JournalReplayer.replay(replayed, file, () -> ticks[0]++));
+            assertEquals(100, ticks[0]);
+
+            assertEquals(world.entityCount(), replayed.entityCount());
+            for (int entity = 0; entity < 100_000; entity++) {
+                assertEquals(world.accessEntity(entity) == null, replayed.accessEntity(entity) == null);
+            }
+            for (int component = 0; component < 3; component++) {
+                assertEquals(queryEntities(world, component), queryEntities(replayed, component));
+            }
+            // entity IDs are reused in the same order
+            assertEquals(world.spawn(BitSets.of(0)).entity, replayed.spawn(BitSets.of(0)).entity);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testReplayOnWrongWorld() throws IOException {
+        var world = createWorld();
+        var file = Files.createTempFile("world", ".journal");
+        try {
+            try (var journal = JournalWriter.open(file)) {
+                world.setJournal(journal);
+                world.spawn(BitSets.of(0));
+            }
+
+            var other = createWorld();
+            other.spawn(BitSets.of(1));
+            assertThrows(IllegalStateException.class, () -> JournalReplayer.replay(other, file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static World createWorld() {
+        var world = new World();
+        world.createComponent(ColumnType.IntArray.INSTANCE);
+        world.createComponent(ColumnType.LongArray.INSTANCE);
+        world.createComponent(ColumnType.BitSet.INSTANCE);
+        return world;
+    }
+
+    private static IntArrayList queryEntities(World world, int component) {
+        var entities = new IntArrayList();
+        world.runOnce(BitSets.of(component), (archetypes, _) -> {
+            for (var archetype : archetypes) {
+                entities.addElements(entities.size(), archetype.entities, 0, archetype.entityCount());
+            }
+        });
+        entities.sort(null);
+        return entities;
+    }
+}
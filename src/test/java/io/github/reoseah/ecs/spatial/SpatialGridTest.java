@@ -0,0 +1,133 @@
+package io.github.reoseah.ecs.spatial;
+
+import io.github.reoseah.ecs.ColumnType;
+import io.github.reoseah.ecs.World;
+import io.github.reoseah.ecs.bitmanipulation.BitSets;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SpatialGridTest {
+    @Test
+    void testRangeAndNearest2D() {
+        var world = new World();
+        int position = world.createComponent(new ColumnType.FloatVectorColumn(2));
+        int tag = world.createComponent(ColumnType.IntArray.INSTANCE);
+
+        var random = new Random(1);
+        int count = 2000;
+        float[] xs = new float[count];
+        float[] ys = new float[count];
+        for (int i = 0; i < count; i++) {
+            xs[i] = random.nextFloat() * 200 - 100;
+            ys[i] = random.nextFloat() * 200 - 100;
+            var mask = i % 3 == 0 ? BitSets.of(position, tag) : BitSets.of(position);
+            int entity = world.spawn(mask).setVector(position, xs[i], ys[i]).entity;
+            assertEquals(i, entity);
+        }
+
+        var threadPool = Executors.newFixedThreadPool(2);
+        try {
+            var grid = new SpatialGrid(position, 2, 5);
+            grid.rebuild(world, threadPool);
+            assertEquals(count, grid.size());
+
+            for (int query = 0; query < 50; query++) {
+                float x = random.nextFloat() * 240 - 120;
+                float y = random.nextFloat() * 240 - 120;
+                float radius = random.nextFloat() * (query % 10 == 0 ? 150 : 15);
+
+                var expected = new IntArrayList();
+                for (int i = 0; i < count; i++) {
+                    float dx = xs[i] - x;
+                    float dy = ys[i] - y;
+                    if (dx * dx + dy * dy <= radius * radius) {
+                        expected.add(i);
+                    }
+                }
+                var actual = new IntArrayList();
+                grid.queryRange(x, y, radius, (entity, _) -> actual.add(entity));
+                actual.sort(null);
+                assertEquals(expected, actual);
+
+                int k = 1 + query % 8;
+                var nearest = new IntArrayList();
+                var distances = new float[k];
+                grid.queryNearest(x, y, k, (entity, distance) -> {
+                    distances[nearest.size()] = distance;
+                    nearest.add(entity);
+                });
+                assertEquals(k, nearest.size());
+                for (int i = 1; i < k; i++) {
+                    assertTrue(distances[i - 1] <= distances[i]);
+                }
+                // nothing outside the result is closer than its farthest entity
+                for (int i = 0; i < count; i++) {
+                    float dx = xs[i] - x;
+                    float dy = ys[i] - y;
+                    if (!nearest.contains(i)) {
+                        assertTrue(dx * dx + dy * dy >= distances[k - 1]);
+                    }
+                }
+            }
+        } finally {
+            threadPool.shutdown();
+        }
+    }
+
+    @Test
+    void testNearest3DWithFewEntities() {
+        var world = new World();
+        int position = world.createComponent(new ColumnType.FloatVectorColumn(3));
+        world.spawn(BitSets.of(position)).setVector(position, 0, 0, 0);
+        world.spawn(BitSets.of(position)).setVector(position, 0, 0, 100);
+        world.spawn(BitSets.of(position)).setVector(position, 30, 0, 0);
+
+        var grid = new SpatialGrid(position, 3, 1);
+        grid.rebuild(world);
+
+        var nearest = new IntArrayList();
+        grid.queryNearest(0, 0, 90, 5, (entity, _) -> nearest.add(entity));
+        assertEquals(IntArrayList.of(1, 0, 2), nearest);
+
+        var inRange = new IntArrayList();
+        grid.queryRange(0, 0, 0, 30, (entity, _) -> inRange.add(entity));
+        inRange.sort(null);
+        assertEquals(IntArrayList.of(0, 2), inRange);
+    }
+
+    @Test
+    void testNearestWithFarOutlier() {
+        var world = new World();
+        int position = world.createComponent(new ColumnType.FloatVectorColumn(2));
+        for (int i = 0; i < 10; i++) {
+            world.spawn(BitSets.of(position)).setVector(position, i, 0);
+        }
+        world.spawn(BitSets.of(position)).setVector(position, 1_000_000, 0);
+
+        var grid = new SpatialGrid(position, 2, 1);
+        grid.rebuild(world);
+
+        // would visit trillions of cells to reach the outlier ring by ring
+        var nearest = new IntArrayList();
+        grid.queryNearest(0.5F, 0, 20, (entity, _) -> nearest.add(entity));
+        assertEquals(11, nearest.size());
+        assertEquals(10, nearest.getInt(10));
+
+        nearest.clear();
+        grid.queryNearest(7.2F, 0, 2, (entity, _) -> nearest.add(entity));
+        assertEquals(IntArrayList.of(7, 8), nearest);
+    }
+
+    @Test
+    void testWrongComponent() {
+        var world = new World();
+        int position = world.createComponent(new ColumnType.FloatVectorColumn(3));
+        var grid = new SpatialGrid(position, 2, 1);
+        assertThrows(IllegalArgumentException.class, () -> grid.rebuild(world));
+    }
+}